@@ -0,0 +1,533 @@
+package com.ctgu;
+
+import com.ctgu.service.ArticleDiscoverer;
+import com.ctgu.service.ArticleSaver;
+import com.ctgu.service.CSDNDownloader;
+import com.ctgu.service.DownloadJob;
+import com.ctgu.service.DownloadScheduler;
+import com.ctgu.service.PdfRenderService;
+import com.ctgu.service.WatchFolderIngest;
+import com.ctgu.util.JsonUtils;
+import com.ctgu.util.LogProfile;
+import com.ctgu.util.StartupTimer;
+import com.ctgu.util.UrlUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 守护进程模式：常驻 JVM，通过本地 HTTP 接口接收下载任务。下载器（连接池、Cookie 会话）、调度器、
+ * 保存阶段（增量日志、搜索索引）与 PDF 渲染器（字体、资源缓存）只初始化一次，由所有任务共享。
+ * 用法: --daemon [--host 127.0.0.1] [--port 8765] [--out 目录] [--pdf|--no-pdf] [--markdown|--no-markdown] [--low-memory] [--watch 目录]
+ * 指定 --watch 时持续监听该目录中的链接文件，新写入的链接加入常驻任务 watch（GET /jobs/watch 查看进度，只保留最近结束的 1000 篇），
+ * 已下载过的文章跳过
+ * <pre>
+ * POST   /jobs[?priority=HIGH|NORMAL|LOW]      提交任务，请求体为每行一个链接或 {"urls": [...]}，返回 202 与任务 ID
+ * GET    /jobs                                 任务列表
+ * GET    /jobs/{id}                            任务状态与每篇文章的进度
+ * GET    /jobs/{id}/events                     SSE 进度推送（snapshot、article、done 事件）
+ * GET    /jobs/{id}/articles/{序号}/{html|pdf|md} 下载生成的文件
+ * DELETE /jobs/{id}                            取消任务
+ * GET    /health                               运行状态
+ * GET    /logging                              当前日志配置
+ * PUT    /logging?profile=production|debug     切换日志配置（无需重启）
+ * </pre>
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class DaemonServer {
+    private static final String USAGE = "用法: --daemon [--host 127.0.0.1] [--port 8765] [--out 目录] [--pdf|--no-pdf] [--markdown|--no-markdown] [--low-memory] [--watch 目录]";
+    private static final String WATCH_JOB_ID = "watch";
+    /**
+     * 常驻任务最多保留的已结束文章数，避免长期运行时进度列表无限增长
+     **/
+    private static final int WATCH_RETAINED_ARTICLES = 1000;
+    /**
+     * 最多保留的任务数，超出时移除最早结束的任务
+     **/
+    private static final int MAX_JOBS = 200;
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    private static final long HEARTBEAT_MS = 15000;
+    private static final Pattern JOB_PATH = Pattern.compile("^/jobs/([\\w-]+)(/events)?$");
+    private static final Pattern FILE_PATH = Pattern.compile("^/jobs/([\\w-]+)/articles/(\\d+)/(html|pdf|md)$");
+
+    private final RunnerOptions options;
+    private String host = "127.0.0.1";
+    private int port = 8765;
+    private File watchDir;
+
+    private final Map<String, DownloadJob> jobs = new LinkedHashMap<>();
+    private final AtomicLong jobSeq = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private CSDNDownloader downloader;
+    private DownloadScheduler scheduler;
+    private ArticleDiscoverer discoverer;
+    private ArticleSaver saver;
+    private HttpServer server;
+    private ExecutorService executor;
+    private WatchFolderIngest watchIngest;
+
+    DaemonServer(RunnerOptions options) {
+        this.options = options;
+        port = RunnerOptions.parseInt(options.getConfig().getProperty("daemon.port"), port);
+        host = options.getConfig().getProperty("daemon.host", host).trim();
+    }
+
+    /**
+     * 启动守护进程并阻塞到进程退出
+     *
+     * @param args 命令行参数（不含 --daemon）
+     * @return 进程退出码：正常退出为 0，启动失败为 1，参数错误为 2
+     */
+    public static int run(String[] args) {
+        DaemonServer daemon = new DaemonServer(RunnerOptions.load());
+        try {
+            daemon.parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            daemon.start();
+        } catch (IOException e) {
+            log.error("守护进程启动失败: {}:{}", daemon.host, daemon.port, e);
+            daemon.stop();
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop, "daemon-shutdown"));
+        try {
+            daemon.stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 0;
+    }
+
+    /**
+     * 初始化共享组件并开始监听，不阻塞
+     **/
+    void start() throws IOException {
+        downloader = new CSDNDownloader(options.getConfig());
+        downloader.setMarkdownEnabled(options.isMarkdownEnabled());
+        if (options.isPdfEnabled()) {
+            PdfRenderService.getInstance().setBoundedMemory(options.isPdfBoundedMemory());
+            PdfRenderService.getInstance().configureResources(downloader);
+            PdfRenderService.getInstance().prewarmAsync();
+        }
+        scheduler = new DownloadScheduler(options.getThreads(), options.getMaxPerHost());
+        discoverer = new ArticleDiscoverer(downloader);
+        saver = new ArticleSaver(options.getSavePath(), downloader.getOutputLayout());
+        saver.setPdfEnabled(options.isPdfEnabled());
+
+        server = HttpServer.create(new InetSocketAddress(host, port), 64);
+        AtomicInteger seq = new AtomicInteger();
+        // SSE 连接会长期占用线程，使用可伸缩的线程池
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "daemon-http-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+        if (watchDir != null) {
+            startWatch();
+        }
+        log.info("守护进程已启动: http://{}:{}，输出目录 {}", host, server.getAddress().getPort(), saver.getBaseDir().getAbsolutePath());
+        StartupTimer.ready("守护进程");
+    }
+
+    /**
+     * 停止接收请求并释放共享资源，由关闭钩子调用
+     **/
+    synchronized void stop() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+        log.info("守护进程正在退出...");
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+        synchronized (jobs) {
+            for (DownloadJob job : jobs.values()) {
+                job.cancel();
+            }
+        }
+        if (watchIngest != null) {
+            watchIngest.stop();
+        }
+        if (discoverer != null) {
+            discoverer.shutdown();
+        }
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (saver != null) {
+            try {
+                saver.close();
+            } catch (IOException e) {
+                log.warn("关闭保存阶段失败", e);
+            }
+        }
+        CSDNDownloader.shutdownAsync();
+        stopped.countDown();
+    }
+
+    /**
+     * 实际监听的端口，配置为 0 时由系统分配
+     **/
+    int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String path = exchange.getRequestURI().getPath();
+            if ("/health".equals(path)) {
+                sendJson(exchange, 200, healthJson());
+            } else if ("/jobs".equals(path) && "POST".equals(method)) {
+                submitJob(exchange);
+            } else if ("/jobs".equals(path) && "GET".equals(method)) {
+                sendJson(exchange, 200, jobsJson());
+            } else if ("/logging".equals(path)) {
+                handleLogging(exchange, method);
+            } else {
+                Matcher file = FILE_PATH.matcher(path);
+                Matcher job = JOB_PATH.matcher(path);
+                if (file.matches() && "GET".equals(method)) {
+                    sendArticleFile(exchange, file.group(1), Integer.parseInt(file.group(2)), file.group(3));
+                } else if (job.matches()) {
+                    handleJob(exchange, method, job.group(1), job.group(2) != null);
+                } else {
+                    sendError(exchange, 404, "接口不存在: " + method + " " + path);
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开连接
+            log.debug("请求处理中断: {}", exchange.getRequestURI(), e);
+        } catch (RuntimeException e) {
+            log.warn("请求处理失败: {}", exchange.getRequestURI(), e);
+            sendError(exchange, 500, "服务器内部错误");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleLogging(HttpExchange exchange, String method) throws IOException {
+        if ("PUT".equals(method) || "POST".equals(method)) {
+            try {
+                LogProfile.apply(queryParam(exchange, "profile"));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            } catch (IllegalStateException e) {
+                sendError(exchange, 500, e.getMessage());
+                return;
+            }
+        } else if (!"GET".equals(method)) {
+            sendError(exchange, 405, "不支持的请求方法: " + method);
+            return;
+        }
+        sendJson(exchange, 200, "{\"profile\":" + JsonUtils.quote(LogProfile.current()) + "}");
+    }
+
+    private void handleJob(HttpExchange exchange, String method, String id, boolean events) throws IOException {
+        DownloadJob job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        if (job == null) {
+            sendError(exchange, 404, "任务不存在: " + id);
+        } else if (events && "GET".equals(method)) {
+            streamEvents(exchange, job);
+        } else if (!events && "GET".equals(method)) {
+            sendJson(exchange, 200, job.toJson(true));
+        } else if (!events && "DELETE".equals(method)) {
+            job.cancel();
+            sendJson(exchange, 200, job.summaryJson());
+        } else {
+            sendError(exchange, 405, "不支持的请求方法: " + method);
+        }
+    }
+
+    /**
+     * 创建任务：文章链接直接提交，主页、专栏或列表页边发现边提交
+     **/
+    private void submitJob(HttpExchange exchange) throws IOException {
+        DownloadScheduler.Priority priority;
+        try {
+            String value = queryParam(exchange, "priority");
+            priority = value == null ? DownloadScheduler.Priority.NORMAL : DownloadScheduler.Priority.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, "priority 只能是 HIGH、NORMAL 或 LOW");
+            return;
+        }
+        byte[] body;
+        try (InputStream is = new BoundedInputStream(exchange.getRequestBody(), MAX_BODY_BYTES + 1)) {
+            body = IOUtils.toByteArray(is);
+        }
+        if (body.length > MAX_BODY_BYTES) {
+            sendError(exchange, 413, "请求体过大");
+            return;
+        }
+        Set<String> inputs = new LinkedHashSet<>();
+        List<String> rejected = new ArrayList<>();
+        for (String candidate : parseInputs(new String(body, StandardCharsets.UTF_8))) {
+            if (UrlUtils.isArticleUrl(candidate) || ArticleDiscoverer.isListingUrl(candidate, downloader.getBaseUrl())) {
+                inputs.add(candidate);
+            } else {
+                rejected.add(candidate);
+            }
+        }
+        if (inputs.isEmpty()) {
+            sendError(exchange, 400, "未提供有效的 CSDN 文章或列表链接");
+            return;
+        }
+        String id = Long.toString(System.currentTimeMillis(), 36) + "-" + jobSeq.incrementAndGet();
+        DownloadJob job = new DownloadJob(id, downloader, saver, scheduler, options.getDelay(), priority);
+        register(job);
+        for (String input : inputs) {
+            addInput(job, input, job::addArticle);
+        }
+        job.release();
+        log.info("已创建任务 {}: {} 个链接，优先级 {}", id, inputs.size(), priority.name());
+        List<String> quoted = new ArrayList<>(rejected.size());
+        for (String r : rejected) {
+            quoted.add(JsonUtils.quote(r));
+        }
+        exchange.getResponseHeaders().set("Location", "/jobs/" + id);
+        sendJson(exchange, 202, "{\"id\":" + JsonUtils.quote(id) + ",\"inputs\":" + inputs.size()
+                + ",\"rejected\":[" + String.join(",", quoted) + "]}");
+    }
+
+    /**
+     * 文章链接直接加入任务，主页、专栏或列表页边发现边加入
+     *
+     * @param add 加入单篇文章
+     */
+    private void addInput(DownloadJob job, String input, Consumer<String> add) {
+        if (ArticleDiscoverer.isListingUrl(input, downloader.getBaseUrl())) {
+            job.retain();
+            discoverer.discover(input, add).whenComplete((count, e) -> {
+                if (e != null) {
+                    log.warn("文章发现失败: {}", input, e);
+                }
+                job.release();
+            });
+        } else {
+            add.accept(input);
+        }
+    }
+
+    /**
+     * 创建常驻任务并开始监听链接目录。任务创建时持有的计数不释放，因此任务一直处于运行状态，
+     * 导入的文章陆续加入同一调度队列，无需再次发起批量下载
+     **/
+    private void startWatch() throws IOException {
+        DownloadJob job = new DownloadJob(WATCH_JOB_ID, downloader, saver, scheduler, options.getDelay(), DownloadScheduler.Priority.NORMAL);
+        job.setFinishedLimit(WATCH_RETAINED_ARTICLES);
+        register(job);
+        // 已成功保存过的文章不再下载，重启后从头读取链接文件也不会重复下载
+        Consumer<String> add = url -> {
+            if (!saver.isSaved(url)) {
+                job.addArticle(url);
+            }
+        };
+        watchIngest = new WatchFolderIngest(watchDir, url -> addInput(job, url, add));
+        watchIngest.start();
+    }
+
+    /**
+     * 请求体为 JSON 时取其中的字符串，否则按行读取，# 开头的行视为注释
+     **/
+    private static List<String> parseInputs(String body) {
+        String trimmed = body.trim();
+        List<String> values = new ArrayList<>();
+        if (trimmed.startsWith("{") || trimmed.startsWith("[")) {
+            for (String value : JsonUtils.stringLiterals(trimmed)) {
+                if (value.startsWith("http://") || value.startsWith("https://")) {
+                    values.add(value.trim());
+                }
+            }
+        } else {
+            for (String line : trimmed.split("\\r?\\n")) {
+                String url = line.trim();
+                if (!url.isEmpty() && !url.startsWith("#")) {
+                    values.add(url);
+                }
+            }
+        }
+        return values;
+    }
+
+    private void register(DownloadJob job) {
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            Iterator<DownloadJob> it = jobs.values().iterator();
+            while (jobs.size() > MAX_JOBS && it.hasNext()) {
+                if (it.next().getState() != DownloadJob.State.RUNNING) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * 推送任务进度，每 15 秒发送一次注释行保持连接，收到 done 事件后结束
+     **/
+    private void streamEvents(HttpExchange exchange, DownloadJob job) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        BlockingQueue<String> queue = job.subscribe();
+        try (OutputStream os = exchange.getResponseBody()) {
+            while (true) {
+                String message = queue.poll(HEARTBEAT_MS, TimeUnit.MILLISECONDS);
+                os.write((message != null ? message : ": ping\n\n").getBytes(StandardCharsets.UTF_8));
+                os.flush();
+                if (message != null && message.startsWith("event: done")) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            job.unsubscribe(queue);
+        }
+    }
+
+    /**
+     * 返回文章生成的文件，只允许访问输出目录下的文件
+     **/
+    private void sendArticleFile(HttpExchange exchange, String id, int index, String ext) throws IOException {
+        DownloadJob job;
+        synchronized (jobs) {
+            job = jobs.get(id);
+        }
+        DownloadJob.Article article = job == null ? null : job.getArticle(index);
+        if (article == null || article.getSavedPath() == null) {
+            sendError(exchange, 404, "文件不存在");
+            return;
+        }
+        File file = new File(article.getSavedPath() + "." + ext);
+        String baseDir = saver.getBaseDir().getCanonicalPath() + File.separator;
+        if (!file.isFile() || !file.getCanonicalPath().startsWith(baseDir)) {
+            sendError(exchange, 404, "文件不存在");
+            return;
+        }
+        String contentType = "pdf".equals(ext) ? "application/pdf"
+                : "md".equals(ext) ? "text/markdown; charset=utf-8" : "text/html; charset=utf-8";
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, file.length());
+        try (OutputStream os = exchange.getResponseBody()) {
+            Files.copy(file.toPath(), os);
+        }
+    }
+
+    private String jobsJson() {
+        List<String> items = new ArrayList<>();
+        synchronized (jobs) {
+            for (DownloadJob job : jobs.values()) {
+                items.add(job.summaryJson());
+            }
+        }
+        return "[" + String.join(",", items) + "]";
+    }
+
+    private String healthJson() {
+        int running = 0;
+        int total;
+        synchronized (jobs) {
+            total = jobs.size();
+            for (DownloadJob job : jobs.values()) {
+                if (job.getState() == DownloadJob.State.RUNNING) {
+                    running++;
+                }
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return "{\"status\":\"ok\",\"jobs\":" + total + ",\"runningJobs\":" + running + ",\"pending\":" + scheduler.getPendingCount()
+                + ",\"heapUsedMb\":" + (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)
+                + ",\"heapMaxMb\":" + runtime.maxMemory() / (1024 * 1024) + "}";
+    }
+
+    private static String queryParam(HttpExchange exchange, String name) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && name.equals(pair.substring(0, eq))) {
+                return URLDecoder.decode(pair.substring(eq + 1), "UTF-8");
+            }
+        }
+        return null;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJson(exchange, status, "{\"error\":" + JsonUtils.quote(message) + "}");
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    void parseArgs(String[] args) throws IOException {
+        options.parse(args, false, (all, i) -> {
+            String arg = all[i];
+            switch (arg) {
+                case "--host":
+                    host = RunnerOptions.requireValue(all, i + 1, arg);
+                    return i + 1;
+                case "--port":
+                    port = Integer.parseInt(RunnerOptions.requireValue(all, i + 1, arg));
+                    return i + 1;
+                case "--watch":
+                    watchDir = new File(RunnerOptions.requireValue(all, i + 1, arg));
+                    return i + 1;
+                default:
+                    return -1;
+            }
+        });
+        options.requireSavePath();
+    }
+}
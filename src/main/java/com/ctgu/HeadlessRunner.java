@@ -0,0 +1,240 @@
+package com.ctgu;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.service.ArticleDiscoverer;
+import com.ctgu.service.ArticleSaver;
+import com.ctgu.service.BatchDownloadEngine;
+import com.ctgu.service.CSDNDownloader;
+import com.ctgu.service.DownloadJournal;
+import com.ctgu.service.DownloadScheduler;
+import com.ctgu.service.EpubExporter;
+import com.ctgu.service.LinkPreflight;
+import com.ctgu.service.PdfRenderService;
+import com.ctgu.service.RecordExporter;
+import com.ctgu.util.StartupTimer;
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 无界面批量下载，复用与图形界面相同的下载引擎，适合脚本与服务器环境。
+ * 用法: --headless [--out 目录] [--file 链接文件] [--pdf|--no-pdf] [--markdown|--no-markdown] [--low-memory] [--preflight] [--epub 文件] [链接...]
+ * 导出下载记录: --export 导出文件(.csv|.jsonl) [--out 目录]
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class HeadlessRunner {
+    private final RunnerOptions options;
+    private boolean preflight = false;
+    private File epubFile;
+
+    private HeadlessRunner(RunnerOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 执行批量下载
+     *
+     * @param args 命令行参数（不含 --headless）
+     * @return 进程退出码：全部成功为 0，存在失败为 1，参数错误为 2
+     */
+    public static int run(String[] args) {
+        HeadlessRunner runner = new HeadlessRunner(RunnerOptions.load());
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            return 2;
+        }
+        if (runner.options.getInputs().isEmpty()) {
+            System.err.println("未提供任何链接，用法: --headless [--out 目录] [--file 链接文件] [--pdf|--no-pdf] [--markdown|--no-markdown] [--preflight] [--epub 文件] [链接...]");
+            return 2;
+        }
+        return runner.execute();
+    }
+
+    private int execute() {
+        CSDNDownloader downloader = new CSDNDownloader(options.getConfig());
+        downloader.setMarkdownEnabled(options.isMarkdownEnabled());
+        if (options.isPdfEnabled()) {
+            PdfRenderService.getInstance().setBoundedMemory(options.isPdfBoundedMemory());
+            PdfRenderService.getInstance().configureResources(downloader);
+            PdfRenderService.getInstance().prewarmAsync();
+        }
+        DownloadScheduler scheduler = new DownloadScheduler(options.getThreads(), options.getMaxPerHost());
+        ArticleDiscoverer discoverer = new ArticleDiscoverer(downloader);
+        AtomicInteger failed = new AtomicInteger(0);
+        // 按序号保存成功文章的元数据（不含正文），用于生成 EPUB
+        Map<Integer, DownloadResult> chapters = new ConcurrentSkipListMap<>();
+        // 未完成的工作数：主线程占一个，每篇文章、每个发现任务各占一个，归零时放行主线程；不用 Phaser，其参与者上限为 65535
+        AtomicLong pending = new AtomicLong(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        Runnable arrive = () -> {
+            if (pending.decrementAndGet() == 0) {
+                finished.countDown();
+            }
+        };
+        try (ArticleSaver saver = new ArticleSaver(options.getSavePath(), downloader.getOutputLayout())) {
+            saver.setPdfEnabled(options.isPdfEnabled());
+            BatchDownloadEngine engine = new BatchDownloadEngine(downloader, saver, scheduler, options.getDelay(), new BatchDownloadEngine.Listener() {
+                @Override
+                public void onComplete(int index, DownloadResult result) {
+                    if (result.isSuccess()) {
+                        log.debug("[{}] {} {}", index + 1, result.getSaveStatus().getLabel(), result.getTitle());
+                        if (epubFile != null) {
+                            chapters.put(index, DownloadResult.builder().success(true).url(result.getUrl())
+                                    .title(result.getTitle()).author(result.getAuthor()).savedPath(result.getSavedPath()).build());
+                        }
+                    } else {
+                        failed.incrementAndGet();
+                        log.warn("[{}] 失败 {}: {}", index + 1, result.getUrl(), result.getError());
+                    }
+                    arrive.run();
+                }
+            });
+            Set<String> queued = ConcurrentHashMap.newKeySet();
+            AtomicInteger index = new AtomicInteger(0);
+            StartupTimer.ready("无界面");
+            Set<String> targets = preflight ? preflight(downloader, saver, failed) : options.getInputs();
+            for (String input : targets) {
+                if (ArticleDiscoverer.isListingUrl(input, downloader.getBaseUrl())) {
+                    pending.incrementAndGet();
+                    discoverer.discover(input, url -> submit(engine, pending, queued, index, url))
+                            .whenComplete((count, e) -> {
+                                if (e != null) {
+                                    log.warn("文章发现失败: {}", input, e);
+                                }
+                                arrive.run();
+                            });
+                } else {
+                    submit(engine, pending, queued, index, input);
+                }
+            }
+            arrive.run();
+            finished.await();
+            log.info("下载结束: 共 {} 篇，新增 {}，已更新 {}，未变化 {}，失败 {}，输出目录 {}",
+                    engine.getCompletedCount(), saver.getNewCount(), saver.getUpdatedCount(),
+                    saver.getUnchangedCount(), failed.get(), saver.getBaseDir().getAbsolutePath());
+            if (epubFile != null && !chapters.isEmpty()) {
+                String bookTitle = epubFile.getName().replaceFirst("\\.epub$", "");
+                new EpubExporter(downloader).export(new ArrayList<>(chapters.values()), epubFile, bookTitle);
+            }
+        } catch (IOException e) {
+            log.error("保存失败: {}", options.getSavePath(), e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("等待下载结束时被中断");
+            return 1;
+        } finally {
+            discoverer.shutdown();
+            scheduler.shutdownNow();
+            CSDNDownloader.shutdownAsync();
+        }
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    /**
+     * 预检文章链接：不存在的文章记入下载日志并跳过，其余链接（含无法确认的）照常下载
+     *
+     * @return 需要下载的链接
+     */
+    private Set<String> preflight(CSDNDownloader downloader, ArticleSaver saver, AtomicInteger failed) {
+        List<String> articles = new ArrayList<>();
+        for (String input : options.getInputs()) {
+            if (!ArticleDiscoverer.isListingUrl(input, downloader.getBaseUrl())) {
+                articles.add(input);
+            }
+        }
+        Set<String> targets = new LinkedHashSet<>(options.getInputs());
+        if (articles.isEmpty()) {
+            return targets;
+        }
+        long start = System.currentTimeMillis();
+        for (LinkPreflight.Result result : new LinkPreflight(downloader, options.getThreads()).check(articles, null)) {
+            if (result.getStatus() == LinkPreflight.Status.NOT_FOUND) {
+                targets.remove(result.getUrl());
+                failed.incrementAndGet();
+                saver.recordFailure(DownloadResult.createErrorResult(result.getUrl(), "预检: " + LinkPreflight.Status.NOT_FOUND.getLabel(), result.getHttpStatus()));
+                log.warn("预检: 文章不存在，跳过 {}", result.getUrl());
+            }
+        }
+        log.info("链接预检完成: {} 篇，失效 {} 篇，耗时 {}ms", articles.size(), options.getInputs().size() - targets.size(), System.currentTimeMillis() - start);
+        return targets;
+    }
+
+    private static void submit(BatchDownloadEngine engine, AtomicLong pending, Set<String> queued, AtomicInteger index, String url) {
+        String canonical = UrlUtils.canonicalize(url);
+        if (queued.add(canonical)) {
+            pending.incrementAndGet();
+            engine.submit(index.getAndIncrement(), canonical, DownloadScheduler.Priority.NORMAL);
+        }
+    }
+
+    private void parseArgs(String[] args) throws IOException {
+        options.parse(args, true, (all, i) -> {
+            switch (all[i]) {
+                case "--preflight":
+                    preflight = true;
+                    return i;
+                case "--epub":
+                    epubFile = new File(RunnerOptions.requireValue(all, i + 1, all[i]));
+                    return i + 1;
+                default:
+                    return -1;
+            }
+        });
+        options.requireSavePath();
+    }
+
+    /**
+     * 把输出目录中的下载日志导出为 CSV 或 JSONL
+     *
+     * @param args 命令行参数（不含 --export）：导出文件 [--out 目录]
+     * @return 进程退出码：成功为 0，导出失败为 1，参数错误为 2
+     */
+    public static int runExport(String[] args) {
+        String dir = RunnerOptions.loadProperties().getProperty("output.dir");
+        File target = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--out".equals(args[i]) && i + 1 < args.length) {
+                dir = args[++i];
+            } else if (target == null && !args[i].startsWith("--")) {
+                target = new File(args[i]);
+            } else {
+                target = null;
+                break;
+            }
+        }
+        if (target == null || dir == null || dir.trim().isEmpty()) {
+            System.err.println("用法: --export 导出文件(.csv|.jsonl) [--out 目录]");
+            return 2;
+        }
+        File journalFile = new File(dir.trim(), DownloadJournal.FILE_NAME);
+        if (!journalFile.isFile()) {
+            log.error("下载日志不存在: {}", journalFile.getAbsolutePath());
+            return 1;
+        }
+        try {
+            new RecordExporter(Runtime.getRuntime().availableProcessors()).export(journalFile, target, RecordExporter.Format.ofFile(target), null);
+            return 0;
+        } catch (IOException e) {
+            log.error("导出下载记录失败: {}", target, e);
+            return 1;
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.ctgu;
 
 import com.ctgu.ui.CSDNDownloaderUI;
+import com.ctgu.util.StartupTimer;
 
 import javax.swing.*;
 import javax.swing.plaf.FontUIResource;
 import java.awt.*;
+import java.util.Arrays;
 
 /**
  * @author lh2
@@ -14,11 +16,26 @@ import java.awt.*;
  */
 public class Main {
     /**
-     * 启动方法
+     * 启动方法，带 --headless 参数时以无界面模式批量下载，带 --daemon 参数时以守护进程模式提供本地 HTTP 接口，
+     * 带 --worker 参数时从共享队列领取链接下载，带 --export 参数时导出下载记录
      *
      * @param args
      */
     public static void main(String[] args) {
+        StartupTimer.begin();
+        if (args.length > 0 && "--headless".equals(args[0])) {
+            System.exit(HeadlessRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "--daemon".equals(args[0])) {
+            System.exit(DaemonServer.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "--worker".equals(args[0])) {
+            System.exit(WorkerRunner.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && "--export".equals(args[0])) {
+            System.exit(HeadlessRunner.runExport(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        // PDF 渲染器与字体不在启动时加载，开始下载且勾选了生成 PDF 时才在后台预热
         // 设置抗锯齿和系统风格
         System.setProperty("awt.useSystemAAFontSettings", "on");
         System.setProperty("swing.aatext", "true");
@@ -36,6 +53,7 @@ public class Main {
 
                 CSDNDownloaderUI ui = new CSDNDownloaderUI();
                 ui.setVisible(true);
+                StartupTimer.ready("图形界面");
             } catch (Exception e) {
                 e.printStackTrace();
             }
@@ -0,0 +1,182 @@
+package com.ctgu;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 无界面、守护进程与 worker 模式共用的运行参数：先读取配置文件，再由命令行覆盖。
+ * 通用参数 --out、--pdf|--no-pdf、--markdown|--no-markdown、--low-memory 在此处理，
+ * 允许链接输入时还处理 --file 与位置参数，其余参数交给各模式自己解析
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+@Getter
+class RunnerOptions {
+    private static final String CONFIG_FILE = "config.properties";
+
+    /**
+     * 已加载的配置，传给下载器避免重复读取配置文件
+     **/
+    private final Properties config;
+    private String savePath;
+    private int threads = 6;
+    /**
+     * 单主机并发上限，0 表示与线程数相同
+     **/
+    private int maxPerHost = 0;
+    private long delay = 1500;
+    private boolean pdfEnabled = true;
+    private boolean markdownEnabled = false;
+    private boolean pdfBoundedMemory = false;
+    /**
+     * 命令行与链接文件中的链接，按出现顺序去重
+     **/
+    private final Set<String> inputs = new LinkedHashSet<>();
+
+    /**
+     * 处理各模式特有的参数
+     **/
+    interface ExtraOption {
+        /**
+         * @param args 全部命令行参数
+         * @param i    当前参数下标
+         * @return 已处理时返回最后一个被使用的参数下标，不认识该参数时返回 -1
+         */
+        int apply(String[] args, int i) throws IOException;
+    }
+
+    RunnerOptions(Properties config) {
+        this.config = config;
+        savePath = config.getProperty("output.dir");
+        threads = parseInt(config.getProperty("thread.pool.size"), threads);
+        maxPerHost = parseInt(config.getProperty("host.max.concurrent"), maxPerHost);
+        delay = parseInt(config.getProperty("delay.ms"), (int) delay);
+        markdownEnabled = Boolean.parseBoolean(config.getProperty("export.markdown", "false").trim());
+        pdfBoundedMemory = Boolean.parseBoolean(config.getProperty("pdf.bounded.memory", "false").trim());
+    }
+
+    /**
+     * 读取与图形界面相同的配置
+     **/
+    static RunnerOptions load() {
+        return new RunnerOptions(loadProperties());
+    }
+
+    /**
+     * 解析命令行，参数错误时抛出 IllegalArgumentException
+     *
+     * @param args        命令行参数（不含模式参数）
+     * @param acceptLinks 是否接受 --file 与位置参数形式的链接
+     * @param extra       各模式特有的参数
+     */
+    void parse(String[] args, boolean acceptLinks, ExtraOption extra) throws IOException {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--out":
+                    savePath = requireValue(args, ++i, arg);
+                    break;
+                case "--pdf":
+                    pdfEnabled = true;
+                    break;
+                case "--no-pdf":
+                    pdfEnabled = false;
+                    break;
+                case "--markdown":
+                    markdownEnabled = true;
+                    break;
+                case "--no-markdown":
+                    markdownEnabled = false;
+                    break;
+                case "--low-memory":
+                    pdfBoundedMemory = true;
+                    break;
+                default:
+                    int last = extra.apply(args, i);
+                    if (last >= 0) {
+                        i = last;
+                    } else if (acceptLinks && "--file".equals(arg)) {
+                        File file = new File(requireValue(args, ++i, arg));
+                        for (String line : FileUtils.readLines(file, StandardCharsets.UTF_8)) {
+                            addInput(line);
+                        }
+                    } else if (acceptLinks && !arg.startsWith("--")) {
+                        addInput(arg);
+                    } else {
+                        throw new IllegalArgumentException("未知参数 " + arg);
+                    }
+            }
+        }
+    }
+
+    /**
+     * 检查是否配置了输出目录
+     **/
+    void requireSavePath() {
+        if (savePath == null || savePath.trim().isEmpty()) {
+            throw new IllegalArgumentException("未配置输出目录，请使用 --out 指定");
+        }
+    }
+
+    static String requireValue(String[] args, int i, String name) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(name + " 缺少参数值");
+        }
+        return args[i];
+    }
+
+    /**
+     * 加载内置默认配置，运行目录下存在 config.properties 时覆盖
+     **/
+    static Properties loadProperties() {
+        Properties props = new Properties();
+        try {
+            try (InputStream is = RunnerOptions.class.getResourceAsStream("/" + CONFIG_FILE)) {
+                if (is != null) {
+                    props.load(new InputStreamReader(is, StandardCharsets.UTF_8));
+                }
+            }
+            File externalFile = new File(CONFIG_FILE);
+            if (externalFile.exists()) {
+                try (FileInputStream fis = new FileInputStream(externalFile)) {
+                    props.load(new InputStreamReader(fis, StandardCharsets.UTF_8));
+                }
+            }
+        } catch (IOException e) {
+            log.error("加载配置文件过程中发生异常", e);
+        }
+        return props;
+    }
+
+    static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("配置格式错误: {}，使用默认值 {}", value, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private void addInput(String line) {
+        String url = line.trim();
+        if (!url.isEmpty() && !url.startsWith("#")) {
+            inputs.add(url);
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.ctgu;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.service.ArticleDiscoverer;
+import com.ctgu.service.ArticleSaver;
+import com.ctgu.service.BatchDownloadEngine;
+import com.ctgu.service.CSDNDownloader;
+import com.ctgu.service.DownloadScheduler;
+import com.ctgu.service.PdfRenderService;
+import com.ctgu.service.SharedWorkQueue;
+import com.ctgu.util.StartupTimer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 分布式 worker 模式：多个下载进程（可在不同机器上）从共享目录中的工作队列领取链接，
+ * 结果写入同一个输出目录（下载日志与检索索引均带文件锁）。每个 worker 的出口 IP 与 CPU 相互独立，整体吞吐随 worker 数增加。
+ * 同一台 Linux 机器上启动多个进程即可模拟多节点。
+ * 用法: --worker --queue 队列目录 [--out 目录] [--id 名称] [--lease-seconds 120] [--max-attempts 3] [--follow]
+ * [--enqueue-only] [--file 链接文件] [--pdf|--no-pdf] [--markdown|--no-markdown] [--low-memory] [链接...]
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class WorkerRunner {
+    private static final String USAGE = "用法: --worker --queue 队列目录 [--out 目录] [--id 名称] [--lease-seconds 120] [--max-attempts 3] "
+            + "[--follow] [--enqueue-only] [--file 链接文件] [--pdf|--no-pdf] [--markdown|--no-markdown] [--low-memory] [链接...]";
+    /**
+     * 队列暂时为空时的轮询间隔
+     **/
+    private static final long POLL_INTERVAL_MS = 2000;
+
+    private final RunnerOptions options;
+    private File queueDir;
+    private String workerId;
+    private long leaseSeconds = 120;
+    private int maxAttempts = 3;
+    private boolean follow = false;
+    private boolean enqueueOnly = false;
+
+    private WorkerRunner(RunnerOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * 执行 worker
+     *
+     * @param args 命令行参数（不含 --worker）
+     * @return 进程退出码：正常结束为 0，运行出错为 1，参数错误为 2
+     */
+    public static int run(String[] args) {
+        WorkerRunner runner = new WorkerRunner(RunnerOptions.load());
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try {
+            return runner.execute();
+        } catch (IOException e) {
+            log.error("worker 运行失败", e);
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    private int execute() throws IOException, InterruptedException {
+        SharedWorkQueue queue = new SharedWorkQueue(queueDir, workerId, TimeUnit.SECONDS.toMillis(leaseSeconds), maxAttempts);
+        if (!options.getInputs().isEmpty()) {
+            log.info("加入队列 {} 个链接，新增 {} 个", options.getInputs().size(), queue.enqueue(options.getInputs()));
+        }
+        if (enqueueOnly) {
+            log.info("队列状态: {}", queue.stats());
+            return 0;
+        }
+        CSDNDownloader downloader = new CSDNDownloader(options.getConfig());
+        downloader.setMarkdownEnabled(options.isMarkdownEnabled());
+        if (options.isPdfEnabled()) {
+            PdfRenderService.getInstance().setBoundedMemory(options.isPdfBoundedMemory());
+            PdfRenderService.getInstance().configureResources(downloader);
+            PdfRenderService.getInstance().prewarmAsync();
+        }
+        DownloadScheduler scheduler = new DownloadScheduler(options.getThreads(), options.getMaxPerHost());
+        ArticleDiscoverer discoverer = new ArticleDiscoverer(downloader);
+        // 心跳间隔取租约时长的三分之一，偶尔一次写入延迟不会导致租约过期
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "worker-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        long heartbeatMs = Math.max(1000, queue.getLeaseTimeoutMs() / 3);
+        heartbeat.scheduleWithFixedDelay(() -> {
+            queue.heartbeat();
+            queue.requeueExpired();
+        }, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        // 在途条目数上限：保持调度器忙碌，但不替其他 worker 囤积租约
+        Semaphore inFlight = new Semaphore(options.getThreads() * 2);
+        Map<Integer, SharedWorkQueue.Lease> leases = new ConcurrentHashMap<>();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        log.info("worker {} 启动: 队列 {}，输出目录 {}，租约 {} 秒", queue.getWorkerId(), queueDir.getAbsolutePath(), options.getSavePath(), leaseSeconds);
+        try (ArticleSaver saver = new ArticleSaver(options.getSavePath(), downloader.getOutputLayout())) {
+            saver.setPdfEnabled(options.isPdfEnabled());
+            BatchDownloadEngine engine = new BatchDownloadEngine(downloader, saver, scheduler, options.getDelay(), new BatchDownloadEngine.Listener() {
+                @Override
+                public void onComplete(int index, DownloadResult result) {
+                    SharedWorkQueue.Lease lease = leases.remove(index);
+                    try {
+                        if (result.isSuccess()) {
+                            succeeded.incrementAndGet();
+                            queue.complete(lease);
+                        } else {
+                            failed.incrementAndGet();
+                            log.warn("下载失败 {}（第 {} 次）: {}", lease.getUrl(), lease.getAttempts(), result.getError());
+                            queue.fail(lease, result.getError(), result.isArticleExists());
+                        }
+                    } catch (IOException e) {
+                        log.error("更新队列状态失败: {}", lease.getUrl(), e);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+            AtomicInteger index = new AtomicInteger();
+            StartupTimer.ready("worker");
+            while (true) {
+                inFlight.acquire();
+                SharedWorkQueue.Lease lease = queue.claim();
+                if (lease == null) {
+                    inFlight.release();
+                    if (!follow && isDrained(queue, inFlight)) {
+                        break;
+                    }
+                    // 其他 worker 仍持有租约时继续等待，它们退出后条目会被回收
+                    Thread.sleep(POLL_INTERVAL_MS);
+                    queue.requeueExpired();
+                    continue;
+                }
+                if (ArticleDiscoverer.isListingUrl(lease.getUrl(), downloader.getBaseUrl())) {
+                    expand(discoverer, queue, lease, inFlight);
+                } else {
+                    int i = index.getAndIncrement();
+                    leases.put(i, lease);
+                    engine.submit(i, lease.getUrl(), DownloadScheduler.Priority.NORMAL);
+                }
+            }
+            SharedWorkQueue.Stats stats = queue.stats();
+            log.info("worker {} 结束: 成功 {}，失败 {}；队列已完成 {}，失败 {}", queue.getWorkerId(), succeeded.get(), failed.get(),
+                    stats.getDone(), stats.getFailed());
+        } finally {
+            heartbeat.shutdownNow();
+            discoverer.shutdown();
+            scheduler.shutdownNow();
+            CSDNDownloader.shutdownAsync();
+        }
+        return 0;
+    }
+
+    /**
+     * 主页、专栏等列表链接由领取到的 worker 负责翻页发现，发现的文章重新放入共享队列，由所有 worker 分摊
+     **/
+    private static void expand(ArticleDiscoverer discoverer, SharedWorkQueue queue, SharedWorkQueue.Lease lease, Semaphore inFlight) {
+        List<String> found = new ArrayList<>();
+        discoverer.discover(lease.getUrl(), url -> {
+            synchronized (found) {
+                found.add(url);
+            }
+        }).whenComplete((count, e) -> {
+            try {
+                if (e != null) {
+                    log.warn("文章发现失败: {}", lease.getUrl(), e);
+                    queue.fail(lease, e.getMessage(), true);
+                    return;
+                }
+                synchronized (found) {
+                    log.info("列表 {} 发现 {} 篇，新加入队列 {} 篇", lease.getUrl(), found.size(), queue.enqueue(found));
+                }
+                queue.complete(lease);
+            } catch (IOException ex) {
+                log.error("更新队列状态失败: {}", lease.getUrl(), ex);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * 本 worker 没有在途条目，且共享队列中既没有待领取也没有被租用的条目
+     **/
+    private boolean isDrained(SharedWorkQueue queue, Semaphore inFlight) {
+        if (inFlight.availablePermits() < options.getThreads() * 2) {
+            return false;
+        }
+        SharedWorkQueue.Stats stats = queue.stats();
+        return stats.getPending() == 0 && stats.getLeased() == 0;
+    }
+
+    private void parseArgs(String[] args) throws IOException {
+        options.parse(args, true, (all, i) -> {
+            String arg = all[i];
+            switch (arg) {
+                case "--queue":
+                    queueDir = new File(RunnerOptions.requireValue(all, i + 1, arg));
+                    return i + 1;
+                case "--id":
+                    workerId = RunnerOptions.requireValue(all, i + 1, arg);
+                    return i + 1;
+                case "--lease-seconds":
+                    leaseSeconds = Long.parseLong(RunnerOptions.requireValue(all, i + 1, arg));
+                    return i + 1;
+                case "--max-attempts":
+                    maxAttempts = Integer.parseInt(RunnerOptions.requireValue(all, i + 1, arg));
+                    return i + 1;
+                case "--follow":
+                    follow = true;
+                    return i;
+                case "--enqueue-only":
+                    enqueueOnly = true;
+                    return i;
+                default:
+                    return -1;
+            }
+        });
+        if (queueDir == null) {
+            throw new IllegalArgumentException("未指定队列目录，请使用 --queue 指定（多个 worker 使用同一共享目录）");
+        }
+        if (!enqueueOnly) {
+            options.requireSavePath();
+        }
+        if (leaseSeconds < 3) {
+            throw new IllegalArgumentException("--lease-seconds 不能小于 3");
+        }
+    }
+}
@@ -32,14 +32,42 @@ public class DownloadResult {
      * 文章标题
      */
     private String title;
+    /**
+     * 文章作者
+     */
+    private String author;
+    /**
+     * 发布日期（yyyy-MM-dd）
+     */
+    private String publishDate;
     /**
      * 错误信息（下载失败时记录）
      */
     private String error;
     /**
-     * 清洗后的 HTML 正文内容
+     * 套用模板后的完整 HTML（由保存阶段生成，内容未变化而跳过保存时为空）
      */
     private String html;
+    /**
+     * 清洗后的正文 HTML 片段（未套用模板）
+     */
+    private String contentHtml;
+    /**
+     * 由清洗后的正文生成的 Markdown（未启用 Markdown 导出时为空）
+     */
+    private String contentMarkdown;
+    /**
+     * 规范化正文内容的 SHA-256 摘要，用于增量更新时判断文章是否变化
+     */
+    private String contentHash;
+    /**
+     * 本次保存结果：新增 / 已更新 / 未变化
+     */
+    private SaveStatus saveStatus;
+    /**
+     * 输出文件路径（不含扩展名）
+     */
+    private String savedPath;
     /**
      * HTTP 响应状态码，默认为 200
      */
@@ -0,0 +1,63 @@
+package com.ctgu.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载日志记录，每处理一篇文章追加一条，保存在输出目录的下载日志文件中
+ * @date 2026-01-03 14:42
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+    /**
+     * 记录时间（毫秒时间戳）
+     */
+    private long time;
+    /**
+     * CSDN 文章唯一标识 ID
+     */
+    private String articleId;
+    /**
+     * 文章原始 URL
+     */
+    private String url;
+    /**
+     * 文章标题
+     */
+    private String title;
+    /**
+     * 处理结果：NEW / UPDATED / UNCHANGED / FAILED
+     */
+    private String status;
+    /**
+     * HTTP 响应状态码
+     */
+    private int httpStatus;
+    /**
+     * 下载及处理耗时（毫秒）
+     */
+    private long downloadTime;
+    /**
+     * 正文内容的字符长度
+     */
+    private int contentLength;
+    /**
+     * 规范化正文内容摘要
+     */
+    private String contentHash;
+    /**
+     * 输出文件路径（不含扩展名）
+     */
+    private String savedPath;
+    /**
+     * 错误信息（失败时记录）
+     */
+    private String error;
+}
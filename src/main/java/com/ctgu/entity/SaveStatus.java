@@ -0,0 +1,32 @@
+package com.ctgu.entity;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 文章保存结果，用于增量更新模式下统计新增、更新与未变化的文章
+ * @date 2026-01-03 14:42
+ */
+public enum SaveStatus {
+    /**
+     * 首次下载
+     */
+    NEW("新增"),
+    /**
+     * 内容发生变化，已重新生成
+     */
+    UPDATED("已更新"),
+    /**
+     * 内容未变化，跳过模板、HTML 与 PDF 生成
+     */
+    UNCHANGED("未变化");
+
+    private final String label;
+
+    SaveStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,289 @@
+package com.ctgu.service;
+
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 文章发现器，根据博主主页、专栏 (category_*.html) 或文章列表页自动翻页，
+ * 并发抓取列表页并把发现的文章链接逐条推送给下载队列，下载无需等待发现结束即可开始。
+ * 列表页遇到 429/503 等临时错误或超时时按 Retry-After（没有时指数退避）等待后重试，重试用尽才停止翻页
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class ArticleDiscoverer {
+    /**
+     * 专栏页：/{用户名}/category_{专栏ID}.html 或 /{用户名}/category_{专栏ID}_{页码}.html
+     **/
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("^/([^/]+)/category_(\\d+)(?:_\\d+)?\\.html$");
+    /**
+     * 文章列表页：/{用户名}/article/list 或 /{用户名}/article/list/{页码}
+     **/
+    private static final Pattern LIST_PATTERN = Pattern.compile("^/([^/]+)/article/list(?:/\\d+)?$");
+    /**
+     * 博主主页：/{用户名}
+     **/
+    private static final Pattern HOME_PATTERN = Pattern.compile("^/([^/.]+)$");
+    /**
+     * 没有 Retry-After 时的首次重试等待，之后每次翻倍；Retry-After 超过上限时按上限等待
+     **/
+    private static final long RETRY_BASE_MS = 1000;
+    private static final long RETRY_MAX_MS = 30_000;
+
+    private final String userAgent;
+    private final int timeout;
+    /**
+     * 每轮并发抓取的列表页数量
+     **/
+    private final int concurrency;
+    /**
+     * 单个入口最多翻页数，防止异常页面导致无限翻页
+     **/
+    private final int maxPages;
+    /**
+     * 列表页遇到临时错误时的最大重试次数
+     **/
+    private final int retries;
+    private final ExecutorService executor;
+    /**
+     * 替换 CSDN 链接协议与主机的地址（如本地测试服务），为空时不替换
+     **/
+    private volatile String baseUrl;
+
+    public ArticleDiscoverer(String userAgent, int timeout, int concurrency, int maxPages, int retries) {
+        this.userAgent = userAgent;
+        this.timeout = timeout;
+        this.concurrency = Math.max(1, concurrency);
+        this.maxPages = Math.max(1, maxPages);
+        this.retries = Math.max(0, retries);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "csdn-discover-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public ArticleDiscoverer(CSDNDownloader downloader) {
+        this(downloader.getUserAgent(), downloader.getTimeout(), 4, 200, downloader.getRetryCount());
+        this.baseUrl = downloader.getBaseUrl();
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * 是否为可发现文章的 CSDN 入口页面（主页、专栏或列表页），其他站点的链接一律不是
+     **/
+    public static boolean isListingUrl(String url) {
+        return isListingUrl(url, null);
+    }
+
+    /**
+     * 是否为可发现文章的入口页面，指向替换地址（如本地测试服务）的链接也接受
+     *
+     * @param baseUrl 配置的 csdn.base.url，可为空
+     */
+    public static boolean isListingUrl(String url, String baseUrl) {
+        return UrlUtils.isCsdnUrl(url, baseUrl) && pager(url) != null;
+    }
+
+    /**
+     * 在后台开始发现文章，发现的链接（已规范化、去重）通过 sink 逐条推送
+     *
+     * @param url  入口页面
+     * @param sink 文章链接接收者，会在发现线程中被调用，需自行保证线程安全
+     * @return 发现结束时完成，结果为发现的文章数
+     */
+    public CompletableFuture<Integer> discover(String url, Consumer<String> sink) {
+        if (!isListingUrl(url, baseUrl)) {
+            CompletableFuture<Integer> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalArgumentException("不支持的入口页面: " + url));
+            return failed;
+        }
+        // 入口替换到测试服务后，翻页地址与列表中的文章链接也都指向测试服务
+        String entryUrl = UrlUtils.rebase(url, baseUrl);
+        IntFunction<String> pager = pager(entryUrl);
+        String author = author(entryUrl);
+        return CompletableFuture.supplyAsync(() -> crawl(entryUrl, pager, author, sink), executor);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按轮次并发抓取列表页，某一页没有带来新文章即视为到达末页
+     **/
+    private int crawl(String entryUrl, IntFunction<String> pager, String author, Consumer<String> sink) {
+        Set<String> seen = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        int page = 1;
+        boolean reachedEnd = false;
+        while (!reachedEnd && page <= maxPages && !Thread.currentThread().isInterrupted()) {
+            List<Future<List<String>>> wave = new ArrayList<>();
+            for (int i = 0; i < concurrency && page <= maxPages; i++, page++) {
+                String pageUrl = pager.apply(page);
+                wave.add(executor.submit(() -> fetchArticleLinks(pageUrl, author)));
+            }
+            // 按页码顺序推送，保证文章顺序与列表一致
+            for (Future<List<String>> future : wave) {
+                if (reachedEnd) {
+                    future.cancel(true);
+                    continue;
+                }
+                List<String> links;
+                try {
+                    links = future.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (ExecutionException e) {
+                    log.warn("列表页抓取失败，停止翻页: {}", e.getCause().getMessage());
+                    links = Collections.emptyList();
+                }
+                int fresh = 0;
+                for (String link : links) {
+                    if (seen.add(link)) {
+                        fresh++;
+                        sink.accept(link);
+                    }
+                }
+                if (fresh == 0) {
+                    reachedEnd = true;
+                }
+            }
+        }
+        log.info("文章发现完成: {}，共 {} 篇", entryUrl, seen.size());
+        return seen.size();
+    }
+
+    private List<String> fetchArticleLinks(String pageUrl, String author) throws Exception {
+        Document doc = fetchPage(pageUrl);
+        Set<String> links = new LinkedHashSet<>();
+        String authorPrefix = "/" + author + "/article/details/";
+        for (Element a : doc.select("a[href*=/article/details/]")) {
+            String href = UrlUtils.canonicalize(a.absUrl("href"));
+            // 只收录该博主自己的文章，忽略侧边栏推荐等其他作者的链接
+            if (UrlUtils.isArticleUrl(href) && URI.create(href).getPath().startsWith(authorPrefix)) {
+                links.add(href);
+            }
+        }
+        return new ArrayList<>(links);
+    }
+
+    /**
+     * 抓取列表页，429、5xx 与超时视为临时错误，等待后重试，超过重试次数或遇到其他错误时抛出异常
+     **/
+    private Document fetchPage(String pageUrl) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            RateLimiter.global().acquire();
+            long waitMs = RETRY_BASE_MS << Math.min(attempt, 5);
+            Exception failure;
+            try {
+                Connection.Response response = Jsoup.connect(pageUrl).userAgent(userAgent).timeout(timeout)
+                        .referrer("https://blog.csdn.net/").ignoreHttpErrors(true).execute();
+                int status = response.statusCode();
+                if (status < 400) {
+                    return response.parse();
+                }
+                failure = new HttpStatusException("HTTP error fetching URL", status, pageUrl);
+                if (!isTransient(status)) {
+                    throw failure;
+                }
+                Long retryAfter = retryAfterMs(response.header("Retry-After"));
+                if (retryAfter != null) {
+                    waitMs = retryAfter;
+                }
+            } catch (SocketTimeoutException e) {
+                failure = e;
+            }
+            if (attempt >= retries) {
+                throw failure;
+            }
+            waitMs = Math.min(waitMs, RETRY_MAX_MS);
+            log.info("列表页暂时不可用，{} ms 后第 {} 次重试: {} ({})", waitMs, attempt + 1, pageUrl, failure.getMessage());
+            Thread.sleep(waitMs);
+        }
+    }
+
+    private static boolean isTransient(int status) {
+        return status == 429 || status >= 500;
+    }
+
+    /**
+     * 解析 Retry-After 中的秒数，缺失或为日期格式时返回 null
+     **/
+    private static Long retryAfterMs(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Math.max(0, Long.parseLong(value.trim())) * 1000;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 根据入口页面生成翻页地址函数，不支持的页面返回 null
+     **/
+    private static IntFunction<String> pager(String url) {
+        String canonical = UrlUtils.canonicalize(url);
+        if (canonical == null || UrlUtils.isArticleUrl(canonical)) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = URI.create(canonical);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (uri.getScheme() == null || uri.getRawPath() == null) {
+            return null;
+        }
+        String origin = canonical.substring(0, canonical.length() - uri.getRawPath().length());
+        Matcher column = COLUMN_PATTERN.matcher(uri.getRawPath());
+        if (column.matches()) {
+            String prefix = origin + "/" + column.group(1) + "/category_" + column.group(2);
+            return page -> page == 1 ? prefix + ".html" : prefix + "_" + page + ".html";
+        }
+        Matcher list = LIST_PATTERN.matcher(uri.getRawPath());
+        Matcher home = HOME_PATTERN.matcher(uri.getRawPath());
+        String author = list.matches() ? list.group(1) : home.matches() ? home.group(1) : null;
+        if (author == null) {
+            return null;
+        }
+        return page -> origin + "/" + author + "/article/list/" + page;
+    }
+
+    private static String author(String url) {
+        String path = URI.create(UrlUtils.canonicalize(url)).getRawPath();
+        return path.substring(1).split("/")[0];
+    }
+}
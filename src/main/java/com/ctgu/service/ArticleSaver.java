@@ -0,0 +1,261 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.entity.JournalRecord;
+import com.ctgu.entity.SaveStatus;
+import com.ctgu.util.PdfGenerator;
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 文章保存阶段：套用模板、写出 HTML 并按需生成 Markdown 与 PDF。
+ * 结合下载日志中记录的正文摘要实现增量更新，内容未变化的文章跳过模板、HTML 与 PDF 生成
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class ArticleSaver implements Closeable {
+    /**
+     * 内置默认 HTML 模板
+     * 当外部模板文件读取失败时使用
+     **/
+    private static final String DEFAULT_TEMPLATE = "<!DOCTYPE html>" + "<html lang='zh-CN'>" + "<head><meta charset='UTF-8'><title>{{title}}</title>" + "<style>" + "  body { font-family: 'PingFang SC', 'Microsoft YaHei', SimHei, sans-serif; line-height: 1.6; padding: 20px; background-color: #f6f8fa; }" + "  .paper { max-width: 900px; margin: 0 auto; background: #fff; padding: 40px; box-shadow: 0 2px 12px 0 rgba(0,0,0,0.1); }" + "  h1 { font-size: 24px; color: #2c3e50; border-bottom: 1px solid #eaecef; padding-bottom: 10px; }" + "  a { color: #0366d6; text-decoration: none; }" + "  blockquote { border-left: 4px solid #dfe2e5; color: #6a737d; padding-left: 10px; margin: 10px 0; }" + "  code { font-family: Consolas, Monaco, monospace; background: rgba(27,31,35,0.05); padding: 0.2em 0.4em; border-radius: 3px; }" + "  pre { background: #282c34; color: #abb2bf; padding: 15px; border-radius: 5px; overflow-x: auto; }" + "  * { font-family: 'MyChineseFont', sans-serif !important; }" + "</style>" + "</head>" + "<body>" + "  <div class='paper'>" + "    <h1>{{title}}</h1>" + "    <div style='color: #888; font-size: 12px; margin-bottom: 20px;'>原文链接: <a href='{{url}}'>{{url}}</a></div>" + "    <div id='content'>{{content}}</div>" + "  </div>" + "</body></html>";
+
+    private final File baseDir;
+    private final OutputLayout layout;
+    private final DownloadJournal journal;
+    private final SearchIndex searchIndex;
+    private final String template;
+    private volatile boolean pdfEnabled = true;
+    private final AtomicInteger newCount = new AtomicInteger(0);
+    private final AtomicInteger updatedCount = new AtomicInteger(0);
+    private final AtomicInteger unchangedCount = new AtomicInteger(0);
+
+    /**
+     * @param savePath 输出目录，不存在时自动创建
+     */
+    public ArticleSaver(String savePath) throws IOException {
+        this(savePath, OutputLayout.flat());
+    }
+
+    /**
+     * @param savePath 输出目录，不存在时自动创建
+     * @param layout   新文章的目录布局与文件名规则
+     */
+    public ArticleSaver(String savePath, OutputLayout layout) throws IOException {
+        this.baseDir = new File(savePath);
+        this.layout = layout;
+        layout.ensureDir(baseDir);
+        this.journal = DownloadJournal.open(baseDir);
+        this.searchIndex = SearchIndex.forDirectory(baseDir);
+        this.template = loadTemplate();
+    }
+
+    /**
+     * 保存下载成功的文章
+     *
+     * @param result 下载结果（保存后回填 html、saveStatus 与 savedPath）
+     * @param index  批次内序号，平铺布局用于生成新文章的文件名
+     * @return 保存结果
+     */
+    public SaveStatus save(DownloadResult result, int index) throws IOException {
+        JournalRecord previous = journal.lastSaved(DownloadJournal.keyOf(result.getUrl(), result.getArticleId()));
+        String basePath;
+        SaveStatus status;
+        if (previous != null) {
+            // 已下载过的文章沿用原文件名，更新时直接覆盖
+            basePath = previous.getSavedPath();
+            boolean sameContent = previous.getContentHash().equals(result.getContentHash());
+            status = sameContent && outputsExist(basePath, result) ? SaveStatus.UNCHANGED : SaveStatus.UPDATED;
+        } else {
+            basePath = layout.resolve(baseDir, result, index);
+            status = SaveStatus.NEW;
+        }
+        if (status != SaveStatus.UNCHANGED) {
+            writeOutputs(result, basePath);
+        } else {
+            log.debug("文章内容未变化，跳过生成: {}", result.getTitle());
+        }
+        result.setSaveStatus(status);
+        result.setSavedPath(basePath);
+        journal.append(toRecord(result, status.name()));
+        // 交给后台线程建立索引，内容未变化的文章会被索引自动跳过
+        searchIndex.add(toIndexDocument(result));
+        counterOf(status).incrementAndGet();
+        return status;
+    }
+
+    /**
+     * 记录下载失败的文章
+     **/
+    public void recordFailure(DownloadResult result) {
+        try {
+            journal.append(toRecord(result, "FAILED"));
+        } catch (IOException e) {
+            log.error("写入下载日志失败", e);
+        }
+    }
+
+    /**
+     * 文章是否已成功保存过（下载日志中有成功保存的记录，且 HTML 文件仍在）
+     **/
+    public boolean isSaved(String url) {
+        JournalRecord previous = journal.lastSaved(DownloadJournal.keyOf(url, UrlUtils.extractArticleId(url)));
+        return previous != null && previous.getSavedPath() != null && new File(previous.getSavedPath() + ".html").exists();
+    }
+
+    public void setPdfEnabled(boolean pdfEnabled) {
+        this.pdfEnabled = pdfEnabled;
+    }
+
+    public int getNewCount() {
+        return newCount.get();
+    }
+
+    public int getUpdatedCount() {
+        return updatedCount.get();
+    }
+
+    public int getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    public File getBaseDir() {
+        return baseDir;
+    }
+
+    public SearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    @Override
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private void writeOutputs(DownloadResult result, String basePath) throws IOException {
+        String html = renderTemplate(result);
+        // 低内存模式下 PDF 直接从写出的 HTML 文件渲染，页面 HTML 不在结果中保留
+        boolean boundedMemory = pdfEnabled && PdfRenderService.getInstance().isBoundedMemory();
+        if (!boundedMemory) {
+            result.setHtml(html);
+        }
+        // 1. 保存 HTML
+        File htmlFile = new File(basePath + ".html");
+        FileUtils.writeStringToFile(htmlFile, html, StandardCharsets.UTF_8);
+        // 2. 启用 Markdown 导出时，下载阶段已生成正文 Markdown
+        if (result.getContentMarkdown() != null) {
+            File mdFile = new File(basePath + ".md");
+            FileUtils.writeStringToFile(mdFile, renderMarkdown(result), StandardCharsets.UTF_8);
+        }
+        // 3. 如果勾选了“同时生成PDF”
+        if (pdfEnabled) {
+            File pdfFile = new File(basePath + ".pdf");
+            try {
+                if (boundedMemory) {
+                    html = null;
+                    PdfGenerator.generate(htmlFile, result.getUrl(), pdfFile.getAbsolutePath());
+                } else {
+                    PdfGenerator.generate(html, pdfFile.getAbsolutePath());
+                }
+            } catch (Exception ex) {
+                log.error("PDF生成失败: " + result.getTitle(), ex);
+            }
+        }
+    }
+
+    /**
+     * 上次生成的输出文件仍然存在时才允许跳过
+     **/
+    private boolean outputsExist(String basePath, DownloadResult result) {
+        return new File(basePath + ".html").exists()
+                && (!pdfEnabled || new File(basePath + ".pdf").exists())
+                && (result.getContentMarkdown() == null || new File(basePath + ".md").exists());
+    }
+
+    private String renderTemplate(DownloadResult result) {
+        // 统一替换占位符
+        return template.replace("{{title}}", result.getTitle()).replace("{{url}}", result.getUrl()).replace("{{content}}", result.getContentHtml());
+    }
+
+    private static String renderMarkdown(DownloadResult result) {
+        StringBuilder md = new StringBuilder();
+        md.append("# ").append(result.getTitle()).append("\n\n");
+        md.append("> 原文链接: <").append(result.getUrl()).append(">");
+        if (result.getAuthor() != null) {
+            md.append("  \n> 作者: ").append(result.getAuthor());
+        }
+        if (result.getPublishDate() != null) {
+            md.append("  \n> 发布日期: ").append(result.getPublishDate());
+        }
+        return md.append("\n\n").append(result.getContentMarkdown()).toString();
+    }
+
+    /**
+     * 加载 HTML 模板：运行目录下存在 template.html 时使用外部模板，否则使用内置默认样式
+     **/
+    private static String loadTemplate() {
+        String templatePath = "template.html";
+        File templateFile = new File(templatePath);
+        if (templateFile.exists()) {
+            try {
+                String template = FileUtils.readFileToString(templateFile, StandardCharsets.UTF_8);
+                log.info("成功加载外部模板文件: {}", templatePath);
+                return template;
+            } catch (IOException e) {
+                log.error("读取外部模板失败，回退到内置模板", e);
+            }
+        } else {
+            log.info("未找到外部模板，使用内置默认样式执行导出");
+        }
+        return DEFAULT_TEMPLATE;
+    }
+
+    private static JournalRecord toRecord(DownloadResult result, String status) {
+        return JournalRecord.builder()
+                .time(System.currentTimeMillis())
+                .articleId(result.getArticleId())
+                .url(result.getUrl())
+                .title(result.getTitle())
+                .status(status)
+                .httpStatus(result.getHttpStatus())
+                .downloadTime(result.getDownloadTime())
+                .contentLength(result.getContentLength())
+                .contentHash(result.getContentHash())
+                .savedPath(result.getSavedPath())
+                .error(result.getError())
+                .build();
+    }
+
+    private static SearchIndex.Document toIndexDocument(DownloadResult result) {
+        return SearchIndex.Document.builder()
+                .key(DownloadJournal.keyOf(result.getUrl(), result.getArticleId()))
+                .contentHash(result.getContentHash())
+                .title(result.getTitle())
+                .author(result.getAuthor())
+                .publishDate(result.getPublishDate())
+                .url(result.getUrl())
+                .savedPath(result.getSavedPath())
+                .bodyHtml(result.getContentHtml())
+                .build();
+    }
+
+    private AtomicInteger counterOf(SaveStatus status) {
+        switch (status) {
+            case NEW:
+                return newCount;
+            case UPDATED:
+                return updatedCount;
+            default:
+                return unchangedCount;
+        }
+    }
+}
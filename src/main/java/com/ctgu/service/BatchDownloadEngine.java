@@ -0,0 +1,270 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.util.JsonUtils;
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 批量下载引擎，负责把文章下载任务交给调度器执行，并通过监听器回报各阶段进度。
+ * 引擎与界面无关，批量任务运行期间可随时追加任务。下载器开启异步模式（download.async）时，
+ * 请求通过非阻塞客户端发出，同时在途的文章数受 download.async.max.inflight 限制
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class BatchDownloadEngine {
+    /**
+     * 每篇文章一行的结构化汇总日志，字段以 key=value 输出
+     **/
+    private static final Logger SUMMARY = LoggerFactory.getLogger("csdn.article");
+
+    /**
+     * 下载进度监听器，回调均在下载线程中执行（异步模式下 onSave 与 onComplete 在保存线程中执行）
+     **/
+    public interface Listener {
+        /**
+         * 开始下载某篇文章
+         **/
+        default void onStart(int index, String url) {
+        }
+
+        /**
+         * 文章下载成功，即将进入保存阶段（模板、HTML 与 PDF 生成）
+         **/
+        default void onSave(int index, DownloadResult result) {
+        }
+
+        /**
+         * 文章处理结束（成功或失败）
+         **/
+        default void onComplete(int index, DownloadResult result) {
+        }
+    }
+
+    private final CSDNDownloader downloader;
+    private final ArticleSaver saver;
+    private final DownloadScheduler scheduler;
+    private final Listener listener;
+    private final long delayBetweenDownloads;
+    private final AtomicInteger submittedCount = new AtomicInteger(0);
+    private final AtomicInteger completedCount = new AtomicInteger(0);
+    private volatile boolean running = true;
+    /**
+     * 异步模式下的在途名额，同步模式为 null
+     **/
+    private final Semaphore inFlight;
+    /**
+     * 异步模式下执行保存阶段的线程池，空闲后线程自动退出，无需关闭
+     **/
+    private final ThreadPoolExecutor savePool;
+
+    /**
+     * @param downloader            文章下载器
+     * @param saver                 保存阶段（增量更新判断、HTML 与 PDF 生成）
+     * @param scheduler             任务调度器（可在多个批次间复用）
+     * @param delayBetweenDownloads 每个下载线程完成一篇后的等待时间（毫秒），防止封 IP
+     * @param listener              进度监听器
+     */
+    public BatchDownloadEngine(CSDNDownloader downloader, ArticleSaver saver, DownloadScheduler scheduler, long delayBetweenDownloads, Listener listener) {
+        this.downloader = downloader;
+        this.saver = saver;
+        this.scheduler = scheduler;
+        this.delayBetweenDownloads = delayBetweenDownloads;
+        this.listener = listener;
+        if (downloader.isAsyncMode()) {
+            this.inFlight = new Semaphore(downloader.getAsyncMaxInFlight());
+            int saveThreads = Math.max(1, scheduler.getWorkerCount());
+            AtomicInteger seq = new AtomicInteger();
+            this.savePool = new ThreadPoolExecutor(saveThreads, saveThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "csdn-save-" + seq.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+            this.savePool.allowCoreThreadTimeOut(true);
+        } else {
+            this.inFlight = null;
+            this.savePool = null;
+        }
+    }
+
+    /**
+     * 提交一篇文章
+     *
+     * @param index    调用方使用的序号（如表格行号），回调时原样返回
+     * @param url      文章链接
+     * @param priority 优先级
+     */
+    public void submit(int index, String url, DownloadScheduler.Priority priority) {
+        submittedCount.incrementAndGet();
+        if (savePool != null) {
+            scheduler.submit(url, priority, () -> processAsync(index, url));
+        } else {
+            scheduler.submit(url, priority, () -> process(index, url));
+        }
+    }
+
+    /**
+     * 停止引擎：尚未开始的任务出队后直接跳过，已开始的文章会处理完当前阶段。
+     * 不清空调度器队列，调度器可被多个批次共享
+     **/
+    public void stop() {
+        running = false;
+        log.info("批量任务已停止，已完成 {} / {}", completedCount.get(), submittedCount.get());
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public int getCompletedCount() {
+        return completedCount.get();
+    }
+
+    public CSDNDownloader getDownloader() {
+        return downloader;
+    }
+
+    public ArticleSaver getSaver() {
+        return saver;
+    }
+
+    /**
+     * 同步模式：在调度器线程中依次下载、保存。无论成功、失败、抛出运行时异常还是引擎已停止，
+     * 都会计入完成数并回调 onComplete，调用方据此判断批次结束、释放在途名额
+     **/
+    private void process(int index, String url) {
+        DownloadResult result = null;
+        try {
+            if (!running) {
+                // 响应停止按钮
+                result = stoppedResult(url);
+                return;
+            }
+            listener.onStart(index, url);
+            // 执行下载 (耗时 IO)
+            result = saveStage(index, downloader.downloadArticle(url));
+            // 延时 (遵守 config.properties 的 delay.ms，防止封 IP)
+            // 注意：并发环境下，这个延时是针对每个线程的，不是全局串行
+            try {
+                Thread.sleep(delayBetweenDownloads);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        } catch (RuntimeException e) {
+            result = failure(url, e);
+        } finally {
+            finish(index, result);
+        }
+    }
+
+    /**
+     * 异步模式：调度器线程取得在途名额后发出非阻塞请求即返回，下载完成后由保存线程池执行保存与回调。
+     * 在途名额已满时调度器线程在此等待，优先级与提交顺序保持不变
+     **/
+    private void processAsync(int index, String url) {
+        if (!running) {
+            finish(index, stoppedResult(url));
+            return;
+        }
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finish(index, stoppedResult(url));
+            return;
+        }
+        CompletableFuture<DownloadResult> future;
+        try {
+            listener.onStart(index, url);
+            future = downloader.downloadArticleAsync(url);
+        } catch (RuntimeException e) {
+            inFlight.release();
+            finish(index, failure(url, e));
+            return;
+        }
+        future.whenCompleteAsync((downloaded, error) -> {
+            DownloadResult result = null;
+            try {
+                result = error != null ? failure(url, error) : saveStage(index, downloaded);
+            } catch (RuntimeException e) {
+                result = failure(url, e);
+            } finally {
+                inFlight.release();
+                finish(index, result);
+            }
+        }, savePool);
+    }
+
+    /**
+     * 保存阶段：成功的结果生成 HTML 与 PDF（内容未变化时跳过），失败的结果写入下载日志
+     **/
+    private DownloadResult saveStage(int index, DownloadResult result) {
+        long saveStart = System.currentTimeMillis();
+        try {
+            if (result.isSuccess()) {
+                listener.onSave(index, result);
+                // 保存文件 (包含PDF 生成)，内容未变化时跳过
+                saver.save(result, index + 1);
+            } else {
+                saver.recordFailure(result);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 文件写不进去（磁盘满、无权限、路径被占用）或模板、PDF 生成中的意外异常，记为失败，
+            // 否则文章会被当作已保存，工作节点模式下还会从队列中移除而永久丢失
+            return failure(result.getUrl(), e);
+        }
+        logSummary(result, System.currentTimeMillis() - saveStart);
+        return result;
+    }
+
+    private void finish(int index, DownloadResult result) {
+        completedCount.incrementAndGet();
+        listener.onComplete(index, result);
+    }
+
+    private static DownloadResult stoppedResult(String url) {
+        return DownloadResult.createErrorResult(url, "任务已停止", 0);
+    }
+
+    /**
+     * 意外异常与保存失败记为失败结果并写入下载日志
+     **/
+    private DownloadResult failure(String url, Throwable e) {
+        log.error("处理文章时发生异常: {}", url, e);
+        DownloadResult result = DownloadResult.createErrorResult(url, "处理异常: " + e, 0);
+        try {
+            saver.recordFailure(result);
+        } catch (RuntimeException ex) {
+            log.warn("记录失败结果时出错: {}", url, ex);
+        }
+        logSummary(result, 0);
+        return result;
+    }
+
+    private static void logSummary(DownloadResult result, long saveMs) {
+        if (!SUMMARY.isInfoEnabled()) {
+            return;
+        }
+        String status = result.isSuccess() ? result.getSaveStatus().name() : "FAILED";
+        SUMMARY.info("id={} status={} http={} bytes={} download_ms={} save_ms={} url={} {}={}",
+                result.getArticleId() != null ? result.getArticleId() : UrlUtils.extractArticleId(result.getUrl()), status, result.getHttpStatus(), result.getContentLength(), result.getDownloadTime(), saveMs,
+                result.getUrl(), result.isSuccess() ? "title" : "error",
+                JsonUtils.quote(result.isSuccess() ? result.getTitle() : result.getError()));
+    }
+}
@@ -1,20 +1,49 @@
 package com.ctgu.service;
 
 import com.ctgu.entity.DownloadResult;
+import com.ctgu.util.HashUtils;
+import com.ctgu.util.MarkdownConverter;
+import com.ctgu.util.RestrictedContentDetector;
+import com.ctgu.util.UrlUtils;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.client.methods.AsyncByteConsumer;
+import org.apache.http.nio.client.methods.HttpAsyncMethods;
+import org.apache.http.protocol.HttpContext;
 import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
 
 /**
@@ -26,10 +55,23 @@ import java.util.concurrent.Executors;
 @Data
 @Slf4j
 public class CSDNDownloader {
-    private Map<String, String> cookies = new HashMap<>();
-    // 使用静态变量缓存Cookie，避免频繁IO
-    private static final Map<String, String> cachedCookies = new HashMap<>();
-    private static boolean cookiesLoaded = false;
+    /**
+     * Cookie 会话（多账号轮询、文件修改后自动重新加载）
+     **/
+    private CookieSessionManager cookieSessions = CookieSessionManager.getDefault();
+    /**
+     * 异步模式共享的非阻塞 HTTP 客户端（少量 IO 线程即可承载大量在途请求）
+     **/
+    private static volatile CloseableHttpAsyncClient asyncClient;
+    /**
+     * 异步模式下 HTML 解析与清洗使用的 CPU 线程池，避免占用 IO 线程
+     **/
+    private static volatile ExecutorService parsePool;
+    /**
+     * 异步模式下超出全局速率的请求在此延后发出，不占用调用线程
+     **/
+    private static volatile ScheduledExecutorService rateDelayer;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
     //加载配置
     private String configFileName = "config.properties";
     private int timeout;
@@ -37,17 +79,50 @@ public class CSDNDownloader {
     private String userAgent;
     private String uaBot;
     /**
-     * 内置默认 HTML 模板
-     * 当外部模板文件读取失败时使用
+     * 替换 CSDN 链接协议与主机的地址（如本地测试服务），为空时直接访问原链接
      **/
-    private static final String DEFAULT_TEMPLATE = "<!DOCTYPE html>" + "<html lang='zh-CN'>" + "<head><meta charset='UTF-8'><title>{{title}}</title>" + "<style>" + "  body { font-family: 'PingFang SC', 'Microsoft YaHei', SimHei, sans-serif; line-height: 1.6; padding: 20px; background-color: #f6f8fa; }" + "  .paper { max-width: 900px; margin: 0 auto; background: #fff; padding: 40px; box-shadow: 0 2px 12px 0 rgba(0,0,0,0.1); }" + "  h1 { font-size: 24px; color: #2c3e50; border-bottom: 1px solid #eaecef; padding-bottom: 10px; }" + "  a { color: #0366d6; text-decoration: none; }" + "  blockquote { border-left: 4px solid #dfe2e5; color: #6a737d; padding-left: 10px; margin: 10px 0; }" + "  code { font-family: Consolas, Monaco, monospace; background: rgba(27,31,35,0.05); padding: 0.2em 0.4em; border-radius: 3px; }" + "  pre { background: #282c34; color: #abb2bf; padding: 15px; border-radius: 5px; overflow-x: auto; }" + "  * { font-family: 'MyChineseFont', sans-serif !important; }" + "</style>" + "</head>" + "<body>" + "  <div class='paper'>" + "    <h1>{{title}}</h1>" + "    <div style='color: #888; font-size: 12px; margin-bottom: 20px;'>原文链接: <a href='{{url}}'>{{url}}</a></div>" + "    <div id='content'>{{content}}</div>" + "  </div>" + "</body></html>";
-
+    private String baseUrl;
+    /**
+     * 流式提取模式：正文所在区域解析完毕后立即停止读取并断开连接，跳过侧边栏、推荐与脚本等后续内容
+     **/
+    private boolean streamingExtract = false;
+    /**
+     * 正文提取配置（选择器预编译）
+     **/
+    private ExtractionProfile extractionProfile = ExtractionProfile.defaults();
+    /**
+     * 输出目录布局（output.layout）
+     **/
+    private OutputLayout outputLayout = OutputLayout.flat();
+    /**
+     * 是否同时生成 Markdown 正文
+     **/
+    private volatile boolean markdownEnabled = false;
+    /**
+     * 异步下载模式（download.async）：批量下载通过非阻塞客户端发出请求，少量线程即可维持大量在途请求
+     **/
+    private boolean asyncMode = false;
+    /**
+     * 异步模式下同时在途的最大文章数（download.async.max.inflight）
+     **/
+    private int asyncMaxInFlight = 32;
+    /**
+     * 列表页等请求遇到 429/503 等临时错误时的最大重试次数（retry.count）
+     **/
+    private int retryCount = 3;
     public CSDNDownloader() {
-        // 构造时仅在未加载过Cookie时读取
-        ensureCookiesLoaded();
         loadConfig();
     }
 
+    /**
+     * 使用调用方已加载的配置创建，省去再次读取配置文件
+     *
+     * @param props 配置
+     */
+    public CSDNDownloader(Properties props) {
+        applyConfig(props);
+    }
+
     /**
      * 加载配置信息
      * 具体逻辑：
@@ -72,57 +147,75 @@ public class CSDNDownloader {
                     log.info("检测到外部配置文件，已覆盖默认设置");
                 }
             }
-            // 步骤 3：解析并赋值（增加 trim() 防止配置文件中多余的空格导致报错）
-            // 解析输出目录
-            String dir = props.getProperty("output.dir");
-            if (dir != null && !dir.trim().isEmpty()) {
-                this.savePath = dir.trim();
-            }
-            // 解析超时时间
-            String timeoutSeconds = props.getProperty("timeout.seconds");
-            if (timeoutSeconds != null) {
-                try {
-                    this.timeout = Integer.parseInt(timeoutSeconds.trim()) * 1000; // 转换为毫秒
-                } catch (NumberFormatException e) {
-                    log.warn("timeout.seconds 格式错误，使用默认值");
-                }
-            }
-            // 解析 User-Agent
-            this.userAgent = props.getProperty("user.agent",
-                    "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
-            // 解析 Bot User-Agent
-            this.uaBot = props.getProperty("ua.bot",
-                    "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)");
-            log.info("配置加载完成：savePath={}, timeout={}", savePath, timeout);
         } catch (IOException e) {
             log.error("加载配置文件过程中发生异常", e);
         }
+        applyConfig(props);
     }
 
-    private synchronized void ensureCookiesLoaded() {
-        if (cookiesLoaded) {
-            return;
+    /**
+     * 解析配置并赋值
+     **/
+    private void applyConfig(Properties props) {
+        // 步骤 3：解析并赋值（增加 trim() 防止配置文件中多余的空格导致报错）
+        // 解析输出目录
+        String dir = props.getProperty("output.dir");
+        if (dir != null && !dir.trim().isEmpty()) {
+            this.savePath = dir.trim();
         }
-        File cookieFile = new File("cookie.txt");
-        if (cookieFile.exists()) {
+        // 解析超时时间
+        String timeoutSeconds = props.getProperty("timeout.seconds");
+        if (timeoutSeconds != null) {
             try {
-                String rawCookie = FileUtils.readFileToString(cookieFile, StandardCharsets.UTF_8);
-                // 简单的解析逻辑，兼容直接复制的Header字符串
-                if (rawCookie.contains("=")) {
-                    String[] parts = rawCookie.split(";");
-                    for (String part : parts) {
-                        String[] kv = part.split("=", 2);
-                        if (kv.length == 2) {
-                            cachedCookies.put(kv[0].trim(), kv[1].trim());
-                        }
-                    }
-                }
-                log.info("Cookie加载成功，共 {} 条", cachedCookies.size());
-            } catch (IOException e) {
-                log.error("读取Cookie文件失败:{}", e.getLocalizedMessage());
+                this.timeout = Integer.parseInt(timeoutSeconds.trim()) * 1000; // 转换为毫秒
+            } catch (NumberFormatException e) {
+                log.warn("timeout.seconds 格式错误，使用默认值");
             }
         }
-        cookiesLoaded = true;
+        // 解析提取模式
+        this.streamingExtract = Boolean.parseBoolean(props.getProperty("extract.streaming", "false").trim());
+        this.markdownEnabled = Boolean.parseBoolean(props.getProperty("export.markdown", "false").trim());
+        // 解析内容提取选择器
+        this.extractionProfile = ExtractionProfile.fromProperties(props);
+        // 解析输出目录布局
+        this.outputLayout = OutputLayout.fromProperties(props);
+        // 解析 User-Agent
+        this.userAgent = props.getProperty("user.agent",
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36");
+        // 解析替换地址（指向本地测试服务时使用）
+        this.baseUrl = props.getProperty("csdn.base.url", "").trim();
+        // 解析 Bot User-Agent
+        this.uaBot = props.getProperty("ua.bot",
+                "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)");
+        // 解析异步下载模式
+        this.asyncMode = Boolean.parseBoolean(props.getProperty("download.async", "false").trim());
+        String maxInFlight = props.getProperty("download.async.max.inflight");
+        if (maxInFlight != null) {
+            try {
+                this.asyncMaxInFlight = Math.max(1, Integer.parseInt(maxInFlight.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("download.async.max.inflight 格式错误，使用默认值 {}", asyncMaxInFlight);
+            }
+        }
+        // 解析临时错误重试次数
+        String retries = props.getProperty("retry.count");
+        if (retries != null) {
+            try {
+                this.retryCount = Math.max(0, Integer.parseInt(retries.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("retry.count 格式错误，使用默认值 {}", retryCount);
+            }
+        }
+        // 解析全局请求速率限制（每秒请求数，0 表示不限制）
+        String rateLimit = props.getProperty("request.rate.limit");
+        if (rateLimit != null) {
+            try {
+                RateLimiter.global().setRate(Double.parseDouble(rateLimit.trim()));
+            } catch (NumberFormatException e) {
+                log.warn("request.rate.limit 格式错误，使用默认值");
+            }
+        }
+        log.info("配置加载完成：savePath={}, timeout={}, streamingExtract={}, asyncMode={}", savePath, timeout, streamingExtract, asyncMode);
     }
 
     /**
@@ -130,23 +223,51 @@ public class CSDNDownloader {
      *
      */
     public DownloadResult downloadArticle(String url) {
+        long start = System.currentTimeMillis();
+        String fetchUrl = UrlUtils.rebase(url, baseUrl);
         try {
-            // 1. 尝试正常访问
-            Connection conn = Jsoup.connect(url).userAgent(userAgent).timeout(timeout).referrer("https://blog.csdn.net/");
-            if (!cachedCookies.isEmpty()) {
-                conn.cookies(cachedCookies);
+            // 1. 尝试正常访问（受全局请求速率限制）
+            RateLimiter.global().acquire();
+            Connection conn = Jsoup.connect(fetchUrl).userAgent(userAgent).timeout(timeout).referrer("https://blog.csdn.net/");
+            CookieSessionManager.Session session = cookieSessions.next();
+            if (session != null) {
+                conn.cookies(session.getCookies());
+            }
+            // 边读边扫描受限标记，命中后立即停止读取剩余内容
+            Connection.Response response = conn.execute();
+            if (session != null) {
+                session.applySetCookies(response.headers("Set-Cookie"));
             }
-            Document doc = conn.get();
-            String title = doc.title().replace("-CSDN博客", "").trim();
+            Document doc;
+            boolean markerSeen;
+            try (RestrictedContentDetector.ScanningInputStream body = RestrictedContentDetector.scanning(response.bodyStream())) {
+                doc = streamingExtract ? parseStreaming(body, response.charset(), fetchUrl) : Jsoup.parse(body, response.charset(), fetchUrl);
+                markerSeen = body.isRestrictedDetected();
+            }
+            String title = extractTitle(doc);
             // 2. 检测是否被折叠或需要关注 (反爬策略)，比如某些防火墙拦截页
-            boolean isRestricted = doc.select("#content_views").isEmpty() || doc.html().contains("hide-article-box") || title.contains("Custom-Access-Control");
-            if (isRestricted) {
+            if (markerSeen || RestrictedContentDetector.isRestricted(doc, extractionProfile.selectContent(doc), title)) {
+                cookieSessions.reportRestricted(session);
                 log.info("检测到内容受限，尝试切换为爬虫模式: {}", url);
-                doc = Jsoup.connect(url).userAgent(uaBot).timeout(timeout).get();
+                RateLimiter.global().acquire();
+                Connection botConn = Jsoup.connect(fetchUrl).userAgent(uaBot).timeout(timeout);
+                if (streamingExtract) {
+                    Connection.Response botResponse = botConn.execute();
+                    try (InputStream body = botResponse.bodyStream()) {
+                        doc = parseStreaming(body, botResponse.charset(), fetchUrl);
+                    }
+                } else {
+                    doc = botConn.get();
+                }
+            } else {
+                cookieSessions.reportSuccess(session);
             }
             // 3. 统一清洗 HTML
-            String cleanHtml = processHtml(doc, url);
-            return DownloadResult.builder().success(true).url(url).title(title).html(cleanHtml).contentLength(cleanHtml.length()).build();
+            return buildSuccessResult(url, title, doc, start);
+        } catch (HttpStatusException e) {
+            // 保留状态码：404 表示文章不存在，429/503 可稍后重试
+            log.warn("下载失败: {}，HTTP 状态码 {}", url, e.getStatusCode());
+            return DownloadResult.createErrorResult(url, e.getMessage(), e.getStatusCode());
         } catch (Exception e) {
             log.error("下载失败: {}", url, e);
             return DownloadResult.createErrorResult(url, e.getMessage(), 500);
@@ -154,61 +275,362 @@ public class CSDNDownloader {
     }
 
     /**
-     * 统一的 HTML 处理逻辑: HTML 标签过滤与样式注入
+     * 异步下载文章：请求由非阻塞客户端发出，受限检测与爬虫 UA 回退通过 CompletableFuture 串联，
+     * HTML 解析与清洗交给 CPU 线程池，整个过程不阻塞调用线程
      *
-     * @param doc
-     * @param url
-     * @return
+     * @param url 文章地址
+     * @return 下载结果的 Future，失败时以错误结果完成而不是异常完成
      */
-    private String processHtml(Document doc, String url) {
-        Element content = doc.selectFirst("#content_views");
-        if (content == null) {
-            content = doc.selectFirst("article");
+    public CompletableFuture<DownloadResult> downloadArticleAsync(String url) {
+        long start = System.currentTimeMillis();
+        ExecutorService pool = getParsePool();
+        String fetchUrl = UrlUtils.rebase(url, baseUrl);
+        CookieSessionManager.Session session = cookieSessions.next();
+        return fetchAsync(fetchUrl, userAgent, session, true)
+                .thenComposeAsync(page -> {
+                    Document doc = page.parse(fetchUrl);
+                    // 标题沿用首次访问的结果，与同步模式保持一致
+                    String title = extractTitle(doc);
+                    CompletableFuture<Document> contentDoc;
+                    if (page.restricted || RestrictedContentDetector.isRestricted(doc, extractionProfile.selectContent(doc), title)) {
+                        cookieSessions.reportRestricted(session);
+                        log.info("检测到内容受限，尝试切换为爬虫模式: {}", url);
+                        contentDoc = fetchAsync(fetchUrl, uaBot, null, false).thenApplyAsync(botPage -> botPage.parse(fetchUrl), pool);
+                    } else {
+                        cookieSessions.reportSuccess(session);
+                        contentDoc = CompletableFuture.completedFuture(doc);
+                    }
+                    return contentDoc.thenApplyAsync(d -> buildSuccessResult(url, title, d, start), pool);
+                }, pool)
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof HttpStatusFailure) {
+                        int status = ((HttpStatusFailure) cause).status;
+                        log.warn("下载失败: {}，HTTP 状态码 {}", url, status);
+                        return DownloadResult.createErrorResult(url, cause.getMessage(), status);
+                    }
+                    log.error("下载失败: {}", url, cause);
+                    return DownloadResult.createErrorResult(url, cause.getMessage(), 500);
+                });
+    }
+
+    /**
+     * 关闭异步模式使用的共享客户端、解析线程池与限速延时线程
+     **/
+    public static synchronized void shutdownAsync() {
+        if (asyncClient != null) {
+            try {
+                asyncClient.close();
+            } catch (IOException e) {
+                log.warn("关闭异步 HTTP 客户端失败: {}", e.getMessage());
+            }
+            asyncClient = null;
+        }
+        if (parsePool != null) {
+            parsePool.shutdown();
+            parsePool = null;
+        }
+        if (rateDelayer != null) {
+            rateDelayer.shutdownNow();
+            rateDelayer = null;
         }
+    }
+
+    /**
+     * 发起一次非阻塞 GET 请求，响应体在 IO 线程中边接收边扫描受限标记，
+     * 命中后立即中止接收，以已收到的部分内容完成
+     *
+     * @param url         请求地址
+     * @param ua          使用的 User-Agent
+     * @param session     携带的 Cookie 会话，为 null 时不携带；响应中的 Set-Cookie 会更新该会话
+     * @param withSession 是否携带 Referer 与会话（爬虫模式下不携带，与同步模式一致），同时决定是否扫描受限标记
+     */
+    private CompletableFuture<FetchedPage> fetchAsync(String url, String ua, CookieSessionManager.Session session, boolean withSession) {
+        CompletableFuture<FetchedPage> future = new CompletableFuture<>();
+        // 与同步模式共用全局速率限制：只预约许可，超出速率时由定时线程延后发出请求，调用线程不等待
+        long waitNanos = RateLimiter.global().reserve();
+        if (waitNanos <= 0) {
+            execute(url, ua, session, withSession, future);
+        } else {
+            getRateDelayer().schedule(() -> execute(url, ua, session, withSession, future), waitNanos, TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    /**
+     * 把请求交给异步客户端，结果写入 future；提交本身失败（如客户端已关闭）时 future 以异常完成
+     **/
+    private void execute(String url, String ua, CookieSessionManager.Session session, boolean withSession, CompletableFuture<FetchedPage> future) {
+        try {
+            submitRequest(url, ua, session, withSession, future);
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void submitRequest(String url, String ua, CookieSessionManager.Session session, boolean withSession, CompletableFuture<FetchedPage> future) {
+        HttpGet get = new HttpGet(url);
+        get.setHeader(HttpHeaders.USER_AGENT, ua);
+        get.setConfig(RequestConfig.custom().setConnectTimeout(timeout).setSocketTimeout(timeout).setConnectionRequestTimeout(timeout).build());
+        if (withSession) {
+            get.setHeader(HttpHeaders.REFERER, "https://blog.csdn.net/");
+            String cookieHeader = session != null ? session.toCookieHeader() : "";
+            if (!cookieHeader.isEmpty()) {
+                get.setHeader("Cookie", cookieHeader);
+            }
+        }
+        PageConsumer consumer = new PageConsumer(withSession, withSession ? session : null);
+        getAsyncClient().execute(HttpAsyncMethods.create(get), consumer, new FutureCallback<FetchedPage>() {
+            @Override
+            public void completed(FetchedPage page) {
+                if (page.status >= 400) {
+                    future.completeExceptionally(new HttpStatusFailure(page.status, url));
+                } else {
+                    future.complete(page);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                // 命中受限标记时由消费者主动中止连接，此时以已接收的内容正常完成
+                if (consumer.isRestrictedDetected()) {
+                    future.complete(consumer.partialPage());
+                } else {
+                    future.completeExceptionally(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        });
+    }
+
+    private static CloseableHttpAsyncClient getAsyncClient() {
+        CloseableHttpAsyncClient client = asyncClient;
+        if (client == null) {
+            synchronized (CSDNDownloader.class) {
+                client = asyncClient;
+                if (client == null) {
+                    client = HttpAsyncClients.custom()
+                            .setMaxConnTotal(200)
+                            .setMaxConnPerRoute(50)
+                            .build();
+                    client.start();
+                    asyncClient = client;
+                    log.info("异步 HTTP 客户端已启动");
+                }
+            }
+        }
+        return client;
+    }
+
+    private static ExecutorService getParsePool() {
+        ExecutorService pool = parsePool;
+        if (pool == null) {
+            synchronized (CSDNDownloader.class) {
+                pool = parsePool;
+                if (pool == null) {
+                    AtomicInteger seq = new AtomicInteger();
+                    pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> {
+                        Thread t = new Thread(r, "csdn-parse-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    parsePool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    private static ScheduledExecutorService getRateDelayer() {
+        ScheduledExecutorService delayer = rateDelayer;
+        if (delayer == null) {
+            synchronized (CSDNDownloader.class) {
+                delayer = rateDelayer;
+                if (delayer == null) {
+                    delayer = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "csdn-rate-delay");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                    rateDelayer = delayer;
+                }
+            }
+        }
+        return delayer;
+    }
+
+    /**
+     * 流式解析响应体：只构建到正文所在的 article 区域结束为止（包含紧随正文之后的折叠提示框），
+     * 随后停止解析，由调用方关闭输入流断开连接，后续的侧边栏、推荐和脚本内容不再下载
+     *
+     * @param body        响应体输入流
+     * @param charsetName 响应头声明的字符集，缺省按 UTF-8 处理
+     * @param url         文章地址
+     * @return 只包含标题与正文区域的部分文档
+     */
+    private Document parseStreaming(InputStream body, String charsetName, String url) throws IOException {
+        Charset charset = charsetName != null ? Charset.forName(charsetName) : StandardCharsets.UTF_8;
+        try (StreamParser parser = new StreamParser(Parser.htmlParser()).parse(new InputStreamReader(body, charset), url)) {
+            Element content = parser.selectFirst(extractionProfile.getAnyContentEvaluator());
+            if (content != null) {
+                // 元素在闭合时才会被发出，等到外层 article 闭合即可覆盖正文及折叠提示
+                Element boundary = content.closest("article");
+                if (boundary != null && boundary != content) {
+                    Iterator<Element> it = parser.iterator();
+                    while (it.hasNext() && it.next() != boundary) {
+                        // 继续解析直到 article 闭合
+                    }
+                }
+                parser.stop();
+            }
+            return parser.document();
+        }
+    }
+
+    private String extractTitle(Document doc) {
+        return extractionProfile.extractTitle(doc);
+    }
+
+    private DownloadResult buildSuccessResult(String url, String title, Document doc, long start) {
+        Element content = extractionProfile.selectContent(doc);
+        String contentHtml = processHtml(content);
+        // Markdown 直接由清洗后的同一个正文元素生成，无需再次解析 HTML
+        String markdown = markdownEnabled && content != null ? MarkdownConverter.convert(content) : null;
+        return DownloadResult.builder().success(true).url(url).title(title).articleId(UrlUtils.extractArticleId(url))
+                .author(extractionProfile.extractAuthor(doc, url)).publishDate(extractionProfile.extractPublishDate(doc))
+                .contentHtml(contentHtml).contentMarkdown(markdown).contentHash(hashContent(contentHtml)).contentLength(contentHtml.length())
+                .downloadTime(System.currentTimeMillis() - start).build();
+    }
+
+    /**
+     * 计算正文摘要：空白字符统一折叠后再取 SHA-256，忽略排版空白的差异
+     **/
+    private static String hashContent(String contentHtml) {
+        return HashUtils.sha256Hex(WHITESPACE.matcher(contentHtml).replaceAll(" ").trim());
+    }
+
+    /**
+     * 统一的 HTML 处理逻辑: HTML 标签过滤与样式注入（模板在保存阶段套用）
+     *
+     * @param content 正文元素（原地清洗），未找到正文时为 null
+     * @return 清洗后的正文 HTML 片段
+     */
+    private String processHtml(Element content) {
         if (content == null) {
             return "<div style='color:red'>无法解析正文内容，可能是付费文章或需要VIP。</div>";
         }
-        // 移除干扰元素
-        content.select("script, iframe, style, .hide-article-box, .btn-readmore, .recommend-box, .opt-box, .template-box").remove();
-        // 修复图片显示 (懒加载 -> 真实链接)
-        for (Element img : content.select("img")) {
-            String src = img.attr("src");
-            String dataSrc = img.attr("data-src");
-            if (!dataSrc.isEmpty()) {
-                src = dataSrc;
-            }
-            if (src.startsWith("//")) {
-                src = "https:" + src;
-            }
-            img.attr("src", src);
-            // 移除可能导致 PDF 生成异常的属性
-            img.removeAttr("data-src");
-            img.removeAttr("onerror");
-            // 强制样式，防止图片溢出 PDF 页面
-            img.attr("style", "max-width: 95%; height: auto; display: block; margin: 15px auto; border-radius: 4px;");
-        }
-        // 处理代码块，确保 PDF 中换行正常
-        for (Element pre : content.select("pre")) {
-            pre.attr("style", "white-space: pre-wrap; word-break: break-all; background: #282c34; color: #abb2bf; padding: 10px; border-radius: 5px;");
-        }
-        String title = doc.title().replace("-CSDN博客", "").trim();
-        Element contentElement = doc.selectFirst("#content_views");
-        String contentHtml = (contentElement != null) ? contentElement.html() : "内容为空";
-        // 从配置中加载模板路径，若无配置则默认为 "template.html"
-        String templatePath = "template.html";
-        File templateFile = new File(templatePath);
-        String finalTemplate = DEFAULT_TEMPLATE; // 默认使用内置的之前样式
-        if (templateFile.exists()) {
+        // 移除干扰元素、修复图片与代码块，一次遍历完成
+        extractionProfile.clean(content);
+        return content.html();
+    }
+
+    /**
+     * 异步请求得到的原始响应体，解析推迟到 CPU 线程池中进行
+     **/
+    private static class FetchedPage {
+        private final int status;
+        private final byte[] body;
+        private final Charset charset;
+        /**
+         * 接收过程中是否命中受限标记（此时 body 只包含标记之前的部分）
+         */
+        private final boolean restricted;
+
+        FetchedPage(int status, byte[] body, Charset charset, boolean restricted) {
+            this.status = status;
+            this.body = body;
+            this.charset = charset;
+            this.restricted = restricted;
+        }
+
+        Document parse(String baseUri) {
             try {
-                finalTemplate = FileUtils.readFileToString(templateFile, StandardCharsets.UTF_8);
-                log.info("成功加载外部模板文件: {}", templatePath);
+                // charset 为空时由 jsoup 根据 BOM / meta 自动识别
+                return Jsoup.parse(new ByteArrayInputStream(body), charset != null ? charset.name() : null, baseUri);
             } catch (IOException e) {
-                log.error("读取外部模板失败，回退到内置模板", e);
+                throw new UncheckedIOException(e);
             }
-        } else {
-            log.info("未找到外部模板，使用内置默认样式执行导出");
         }
-        // 统一替换占位符
-        return finalTemplate.replace("{{title}}", title).replace("{{url}}", url).replace("{{content}}", contentHtml);
     }
-}
\ No newline at end of file
+
+    /**
+     * 异步响应消费者：在 IO 线程中缓冲响应体，并同步扫描受限标记，命中后抛出异常中止连接，
+     * 省去受限页面剩余内容的下载
+     **/
+    private static class PageConsumer extends AsyncByteConsumer<FetchedPage> {
+        private final RestrictedContentDetector.Scanner scanner;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 * 1024);
+        private volatile int status;
+        private volatile Charset charset;
+        private final CookieSessionManager.Session session;
+
+        PageConsumer(boolean scan, CookieSessionManager.Session session) {
+            this.scanner = scan ? RestrictedContentDetector.newScanner() : null;
+            this.session = session;
+        }
+
+        @Override
+        protected void onResponseReceived(HttpResponse response) {
+            status = response.getStatusLine().getStatusCode();
+            if (session != null) {
+                List<String> setCookies = new ArrayList<>();
+                for (Header header : response.getHeaders("Set-Cookie")) {
+                    setCookies.add(header.getValue());
+                }
+                session.applySetCookies(setCookies);
+            }
+            if (response.getEntity() != null) {
+                ContentType contentType = ContentType.get(response.getEntity());
+                charset = contentType != null ? contentType.getCharset() : null;
+            }
+        }
+
+        @Override
+        protected void onByteReceived(ByteBuffer buf, IOControl ioctrl) throws IOException {
+            if (status >= 400) {
+                // 错误页内容无需保留
+                return;
+            }
+            boolean detected = scanner != null && scanner.feed(buf);
+            if (buf.hasArray()) {
+                buffer.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            } else {
+                byte[] chunk = new byte[buf.remaining()];
+                buf.duplicate().get(chunk);
+                buffer.write(chunk);
+            }
+            if (detected) {
+                throw new IOException("检测到受限内容标记，中止接收");
+            }
+        }
+
+        @Override
+        protected FetchedPage buildResult(HttpContext context) {
+            return new FetchedPage(status, buffer.toByteArray(), charset, false);
+        }
+
+        boolean isRestrictedDetected() {
+            return scanner != null && scanner.isDetected();
+        }
+
+        FetchedPage partialPage() {
+            return new FetchedPage(status, buffer.toByteArray(), charset, true);
+        }
+    }
+
+    /**
+     * 异步请求返回错误状态码时的失败原因，保留状态码以区分 404 与其他错误
+     **/
+    private static class HttpStatusFailure extends IOException {
+        private final int status;
+
+        HttpStatusFailure(int status, String url) {
+            super("HTTP error fetching URL. Status=" + status + ", URL=" + url);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.ctgu.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: Cookie 会话管理（线程安全）。cookie.txt 中每行一个账号的 Cookie 字符串，请求按轮询分配到各账号；
+ * 文件修改后自动重新加载，响应中的 Set-Cookie 会更新对应会话，连续遇到受限页面的会话标记为失效并暂停使用
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class CookieSessionManager {
+    public static final String DEFAULT_FILE = "cookie.txt";
+    /**
+     * 连续多少次请求得到受限页面后认为会话已失效
+     **/
+    private static final int EXPIRE_THRESHOLD = 3;
+    /**
+     * 检查文件是否变化的最小间隔
+     **/
+    private static final long RELOAD_CHECK_INTERVAL_MS = 1000;
+    private static final Map<String, CookieSessionManager> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * 单个账号的会话
+     **/
+    public static class Session {
+        private final String name;
+        /**
+         * 文件中的原始行，用于判断重新加载时该账号是否被修改
+         **/
+        private final String source;
+        private final Map<String, String> cookies = new ConcurrentHashMap<>();
+        private final AtomicInteger restrictedStrikes = new AtomicInteger();
+        private volatile boolean expired = false;
+
+        Session(String name, String source) {
+            this.name = name;
+            this.source = source;
+            cookies.putAll(parseCookieHeader(source));
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isExpired() {
+            return expired;
+        }
+
+        /**
+         * 当前 Cookie 的快照，可直接交给 jsoup
+         **/
+        public Map<String, String> getCookies() {
+            return new LinkedHashMap<>(cookies);
+        }
+
+        /**
+         * 拼接为 Cookie 请求头
+         **/
+        public String toCookieHeader() {
+            StringBuilder sb = new StringBuilder();
+            for (Map.Entry<String, String> entry : cookies.entrySet()) {
+                if (sb.length() > 0) {
+                    sb.append("; ");
+                }
+                sb.append(entry.getKey()).append('=').append(entry.getValue());
+            }
+            return sb.toString();
+        }
+
+        /**
+         * 应用响应中的 Set-Cookie：更新或新增 Cookie，值为空或已过期时删除
+         *
+         * @param setCookieHeaders 所有 Set-Cookie 响应头的值
+         */
+        public void applySetCookies(List<String> setCookieHeaders) {
+            for (String header : setCookieHeaders) {
+                String[] parts = header.split(";");
+                String[] kv = parts[0].split("=", 2);
+                if (kv.length != 2 || kv[0].trim().isEmpty()) {
+                    continue;
+                }
+                String name = kv[0].trim();
+                String value = kv[1].trim();
+                boolean removed = value.isEmpty() || "deleted".equals(value);
+                for (int i = 1; i < parts.length && !removed; i++) {
+                    String attr = parts[i].trim().toLowerCase();
+                    removed = attr.startsWith("max-age=") && attr.substring(8).trim().startsWith("-")
+                            || "max-age=0".equals(attr);
+                }
+                if (removed) {
+                    cookies.remove(name);
+                } else {
+                    cookies.put(name, value);
+                }
+            }
+        }
+    }
+
+    private final File file;
+    private volatile List<Session> sessions = Collections.emptyList();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private volatile long lastCheck = 0;
+    private long loadedModified = -1;
+    private long loadedLength = -1;
+
+    private CookieSessionManager(File file) {
+        // 首次取会话时才读取文件，创建下载器不产生文件 IO
+        this.file = file;
+    }
+
+    /**
+     * 获取指定 Cookie 文件对应的管理器，同一文件共享一个实例
+     **/
+    public static CookieSessionManager forFile(File file) {
+        return INSTANCES.computeIfAbsent(file.getAbsolutePath(), path -> new CookieSessionManager(new File(path)));
+    }
+
+    /**
+     * 运行目录下 cookie.txt 对应的管理器
+     **/
+    public static CookieSessionManager getDefault() {
+        return forFile(new File(DEFAULT_FILE));
+    }
+
+    /**
+     * 按轮询取出下一个可用会话，文件有变化时先重新加载
+     *
+     * @return 可用会话，没有配置或全部失效时返回 null（以未登录状态访问）
+     */
+    public Session next() {
+        reloadIfChanged(false);
+        List<Session> current = sessions;
+        int size = current.size();
+        for (int i = 0; i < size; i++) {
+            Session session = current.get(Math.floorMod(cursor.getAndIncrement(), size));
+            if (!session.expired) {
+                return session;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 记录使用该会话得到了正常页面
+     **/
+    public void reportSuccess(Session session) {
+        if (session != null) {
+            session.restrictedStrikes.set(0);
+        }
+    }
+
+    /**
+     * 记录使用该会话得到了受限页面，连续达到阈值后标记为失效
+     **/
+    public void reportRestricted(Session session) {
+        if (session == null || session.expired) {
+            return;
+        }
+        if (session.restrictedStrikes.incrementAndGet() >= EXPIRE_THRESHOLD) {
+            session.expired = true;
+            log.warn("Cookie 会话 [{}] 连续 {} 次遇到受限页面，已标记为失效，请更新 {}", session.name, EXPIRE_THRESHOLD, file.getName());
+        }
+    }
+
+    /**
+     * 立即重新读取文件（如在设置界面保存后调用）
+     **/
+    public void reload() {
+        reloadIfChanged(true);
+    }
+
+    public int getSessionCount() {
+        reloadIfChanged(false);
+        return sessions.size();
+    }
+
+    public int getActiveCount() {
+        reloadIfChanged(false);
+        int count = 0;
+        for (Session session : sessions) {
+            if (!session.expired) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void reloadIfChanged(boolean force) {
+        long now = System.currentTimeMillis();
+        if (!force && now - lastCheck < RELOAD_CHECK_INTERVAL_MS) {
+            return;
+        }
+        synchronized (this) {
+            lastCheck = now;
+            long modified = file.exists() ? file.lastModified() : 0;
+            long length = file.exists() ? file.length() : 0;
+            if (!force && modified == loadedModified && length == loadedLength) {
+                return;
+            }
+            loadedModified = modified;
+            loadedLength = length;
+            sessions = load();
+        }
+    }
+
+    /**
+     * 读取文件：内容未变化的账号沿用原会话（保留已更新的 Cookie 与失效状态），修改过的账号重新开始
+     **/
+    private List<Session> load() {
+        if (!file.exists()) {
+            return Collections.emptyList();
+        }
+        List<String> lines;
+        try {
+            lines = FileUtils.readLines(file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("读取Cookie文件失败:{}", e.getLocalizedMessage());
+            return sessions;
+        }
+        Map<String, Session> previous = new LinkedHashMap<>();
+        for (Session session : sessions) {
+            previous.put(session.source, session);
+        }
+        List<Session> loaded = new ArrayList<>();
+        for (String line : lines) {
+            String source = line.trim();
+            if (source.isEmpty() || source.startsWith("#") || !source.contains("=")) {
+                continue;
+            }
+            Session session = previous.get(source);
+            loaded.add(session != null ? session : new Session("账号" + (loaded.size() + 1), source));
+        }
+        log.info("Cookie加载成功，共 {} 个账号", loaded.size());
+        return Collections.unmodifiableList(loaded);
+    }
+
+    /**
+     * 解析浏览器中复制的 Cookie 请求头字符串
+     **/
+    static Map<String, String> parseCookieHeader(String raw) {
+        Map<String, String> cookies = new LinkedHashMap<>();
+        for (String part : raw.split(";")) {
+            String[] kv = part.split("=", 2);
+            if (kv.length == 2 && !kv[0].trim().isEmpty()) {
+                cookies.put(kv[0].trim(), kv[1].trim());
+            }
+        }
+        return cookies;
+    }
+}
@@ -0,0 +1,284 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.util.JsonUtils;
+import com.ctgu.util.UrlUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 守护进程中的一个下载任务。每个任务有自己的下载引擎，下载器、调度器、保存阶段与 PDF 渲染器在所有任务间共享；
+ * 记录每篇文章的进度，并把进度事件推送给订阅者（SSE）
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class DownloadJob {
+    public enum State {
+        RUNNING, FINISHED, CANCELLED
+    }
+
+    /**
+     * 单篇文章的进度
+     **/
+    @Data
+    public static class Article {
+        private final int index;
+        private final String url;
+        private volatile String stage = "WAITING";
+        private volatile String title;
+        private volatile String savedPath;
+        private volatile String saveStatus;
+        private volatile String error;
+
+        String toJson() {
+            return "{\"index\":" + index + ",\"url\":" + JsonUtils.quote(url) + ",\"stage\":" + JsonUtils.quote(stage)
+                    + ",\"title\":" + JsonUtils.quote(title) + ",\"saveStatus\":" + JsonUtils.quote(saveStatus)
+                    + ",\"savedPath\":" + JsonUtils.quote(savedPath) + ",\"error\":" + JsonUtils.quote(error) + "}";
+        }
+    }
+
+    private final String id;
+    private final long createdAt = System.currentTimeMillis();
+    private final BatchDownloadEngine engine;
+    private final DownloadScheduler.Priority priority;
+    /**
+     * 序号 -> 文章进度，加入文章不复制整个列表；限制保留数量时最早结束的文章会被移除
+     **/
+    private final ConcurrentNavigableMap<Integer, Article> articles = new ConcurrentSkipListMap<>();
+    private final AtomicInteger nextIndex = new AtomicInteger();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    /**
+     * 已结束文章的序号，按结束顺序排列，仅在限制保留数量时使用
+     **/
+    private final Deque<Integer> finishedOrder = new ArrayDeque<>();
+    /**
+     * 最多保留的已结束文章数，0 表示全部保留
+     **/
+    private volatile int finishedLimit = 0;
+    private final List<BlockingQueue<String>> subscribers = new CopyOnWriteArrayList<>();
+    /**
+     * 未完成的工作数：每篇文章、每个发现任务各占一个，提交阶段本身占一个
+     **/
+    private final AtomicInteger outstanding = new AtomicInteger(1);
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile State state = State.RUNNING;
+    private volatile long finishedAt;
+
+    /**
+     * @param id         任务 ID
+     * @param downloader 共享下载器
+     * @param saver      共享保存阶段
+     * @param scheduler  共享调度器（多个任务按主机公平调度）
+     * @param delay      每篇文章之间的等待时间（毫秒）
+     * @param priority   本任务文章的优先级
+     */
+    public DownloadJob(String id, CSDNDownloader downloader, ArticleSaver saver, DownloadScheduler scheduler, long delay,
+                       DownloadScheduler.Priority priority) {
+        this.id = id;
+        this.priority = priority;
+        this.engine = new BatchDownloadEngine(downloader, saver, scheduler, delay, new BatchDownloadEngine.Listener() {
+            @Override
+            public void onStart(int index, String url) {
+                update(index, "DOWNLOADING", null);
+            }
+
+            @Override
+            public void onSave(int index, DownloadResult result) {
+                update(index, "SAVING", result);
+            }
+
+            @Override
+            public void onComplete(int index, DownloadResult result) {
+                if (result.isSuccess()) {
+                    succeeded.incrementAndGet();
+                    update(index, "DONE", result);
+                } else if (state == State.CANCELLED) {
+                    // 取消后出队的文章没有下载，不计入失败
+                    update(index, "CANCELLED", result);
+                } else {
+                    failed.incrementAndGet();
+                    update(index, "FAILED", result);
+                }
+                retire(index);
+                release();
+            }
+        });
+    }
+
+    /**
+     * 加入一篇文章（按规范化后的链接去重），可在发现线程中调用
+     *
+     * @return 是否为新文章
+     */
+    public boolean addArticle(String url) {
+        String canonical = UrlUtils.canonicalize(url);
+        if (state != State.RUNNING || !queued.add(canonical)) {
+            return false;
+        }
+        int index = nextIndex.getAndIncrement();
+        articles.put(index, new Article(index, canonical));
+        outstanding.incrementAndGet();
+        engine.submit(index, canonical, priority);
+        return true;
+    }
+
+    /**
+     * 登记一个文章发现任务，结束时需调用 release()
+     **/
+    public void retain() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * 一项工作结束（文章完成、发现结束或提交阶段结束），全部结束时任务完成
+     **/
+    public void release() {
+        if (outstanding.decrementAndGet() == 0 && state == State.RUNNING) {
+            state = State.FINISHED;
+            finishedAt = System.currentTimeMillis();
+            log.info("任务 {} 完成: 成功 {}，失败 {}", id, succeeded.get(), failed.get());
+            publish("done", summaryJson());
+        }
+    }
+
+    /**
+     * 取消任务：未开始的文章直接跳过，已开始的文章处理完当前阶段
+     **/
+    public void cancel() {
+        if (state == State.RUNNING) {
+            engine.stop();
+            state = State.CANCELLED;
+            finishedAt = System.currentTimeMillis();
+            publish("done", summaryJson());
+        }
+    }
+
+    /**
+     * 订阅进度事件，返回的队列中每个元素是一条完整的 SSE 消息；任务结束后会收到 done 事件
+     **/
+    public BlockingQueue<String> subscribe() {
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        subscribers.add(queue);
+        queue.offer(event("snapshot", toJson(true)));
+        if (state != State.RUNNING) {
+            queue.offer(event("done", summaryJson()));
+        }
+        return queue;
+    }
+
+    public void unsubscribe(BlockingQueue<String> queue) {
+        subscribers.remove(queue);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * @return 指定序号的文章，不存在时返回 null
+     */
+    public Article getArticle(int index) {
+        return articles.get(index);
+    }
+
+    /**
+     * 限制保留的已结束文章数，超出时移除最早结束的文章（进度与文件下载接口均不再可见），
+     * 用于持续运行、文章数不断增长的常驻任务
+     *
+     * @param finishedLimit 最多保留的已结束文章数，0 表示全部保留
+     */
+    public void setFinishedLimit(int finishedLimit) {
+        this.finishedLimit = Math.max(0, finishedLimit);
+    }
+
+    public String summaryJson() {
+        // total 为加入过的文章数，retained 为仍保留进度的文章数（限制保留数量时可能小于 total）
+        return "{\"id\":" + JsonUtils.quote(id) + ",\"state\":" + JsonUtils.quote(state.name()) + ",\"createdAt\":" + createdAt
+                + ",\"finishedAt\":" + finishedAt + ",\"total\":" + nextIndex.get() + ",\"retained\":" + articles.size()
+                + ",\"succeeded\":" + succeeded.get() + ",\"failed\":" + failed.get() + "}";
+    }
+
+    /**
+     * @param withArticles 是否包含每篇文章的进度
+     */
+    public String toJson(boolean withArticles) {
+        if (!withArticles) {
+            return summaryJson();
+        }
+        List<String> items = new ArrayList<>(articles.size());
+        for (Article article : articles.values()) {
+            items.add(article.toJson());
+        }
+        String summary = summaryJson();
+        return summary.substring(0, summary.length() - 1) + ",\"articles\":[" + String.join(",", items) + "]}";
+    }
+
+    private void update(int index, String stage, DownloadResult result) {
+        Article article = getArticle(index);
+        if (article == null) {
+            return;
+        }
+        article.setStage(stage);
+        if (result != null) {
+            article.setTitle(result.getTitle());
+            article.setError(result.getError());
+            article.setSavedPath(result.getSavedPath());
+            article.setSaveStatus(result.getSaveStatus() != null ? result.getSaveStatus().name() : null);
+        }
+        publish("article", article.toJson());
+    }
+
+    /**
+     * 文章结束后按保留上限移除最早结束的文章，移除的链接不再参与本任务的去重
+     **/
+    private void retire(int index) {
+        int limit = finishedLimit;
+        if (limit <= 0) {
+            return;
+        }
+        synchronized (finishedOrder) {
+            finishedOrder.addLast(index);
+            while (finishedOrder.size() > limit) {
+                Article evicted = articles.remove(finishedOrder.pollFirst());
+                if (evicted != null) {
+                    queued.remove(evicted.getUrl());
+                }
+            }
+        }
+    }
+
+    private void publish(String name, String data) {
+        String message = event(name, data);
+        for (BlockingQueue<String> subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    private static String event(String name, String data) {
+        return "event: " + name + "\ndata: " + data + "\n\n";
+    }
+}
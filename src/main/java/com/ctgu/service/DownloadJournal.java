@@ -0,0 +1,220 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.JournalRecord;
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载日志，以追加写入的 TSV 文件保存在输出目录中，记录每篇文章的处理结果与正文摘要。
+ * 打开时加载每篇文章最近一次成功保存的记录，供增量更新判断内容是否变化；失败记录只写入文件，
+ * 不会覆盖之前成功保存的路径与摘要，下载失败后再次成功时仍沿用原文件。
+ * 每次追加都持有文件锁，多个进程（worker 模式）共享同一输出目录时记录不会交错
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class DownloadJournal implements Closeable {
+    public static final String FILE_NAME = "download-journal.tsv";
+    private static final String HEADER = "time\tarticleId\turl\ttitle\tstatus\thttpStatus\tdownloadTime\tcontentLength\tcontentHash\tsavedPath\terror";
+
+    private final File file;
+    /**
+     * 每篇文章最近一次成功保存的记录，键为文章 ID（无 ID 时为规范化链接）
+     **/
+    private final Map<String, JournalRecord> lastSaved = new ConcurrentHashMap<>();
+    /**
+     * 同一 JVM 内对同一文件加锁会抛出 OverlappingFileLockException，因此按文件路径在进程内先行互斥
+     **/
+    private static final Map<String, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+    private final Object monitor;
+    private FileOutputStream out;
+    private Writer writer;
+
+    private DownloadJournal(File file) {
+        this.file = file;
+        this.monitor = FILE_MONITORS.computeIfAbsent(file.getAbsolutePath(), k -> new Object());
+    }
+
+    /**
+     * 打开输出目录下的下载日志，不存在时自动创建
+     *
+     * @param dir 输出目录
+     * @return 下载日志
+     */
+    public static DownloadJournal open(File dir) throws IOException {
+        DownloadJournal journal = new DownloadJournal(new File(dir, FILE_NAME));
+        journal.load();
+        return journal;
+    }
+
+    /**
+     * 生成记录的键：优先使用文章 ID，没有时使用规范化链接
+     **/
+    public static String keyOf(String url, String articleId) {
+        if (articleId != null && !articleId.isEmpty()) {
+            return articleId;
+        }
+        String id = UrlUtils.extractArticleId(url);
+        return id != null ? id : UrlUtils.canonicalize(url);
+    }
+
+    /**
+     * 查询文章最近一次成功保存的记录（有保存路径与正文摘要），从未保存成功时返回 null
+     **/
+    public JournalRecord lastSaved(String key) {
+        return lastSaved.get(key);
+    }
+
+    /**
+     * 追加一条记录并立即刷新到磁盘
+     **/
+    public synchronized void append(JournalRecord record) throws IOException {
+        if (writer == null) {
+            out = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+        synchronized (monitor) {
+            try (FileLock ignored = out.getChannel().lock()) {
+                if (out.getChannel().size() == 0) {
+                    writer.write(HEADER);
+                    writer.write('\n');
+                }
+                writer.write(format(record));
+                writer.write('\n');
+                writer.flush();
+            }
+        }
+        remember(record);
+    }
+
+    /**
+     * 记录有保存路径与正文摘要时才作为该文章的比较基准，失败记录不覆盖
+     **/
+    private void remember(JournalRecord record) {
+        if (record.getSavedPath() != null && record.getContentHash() != null) {
+            lastSaved.put(keyOf(record.getUrl(), record.getArticleId()), record);
+        }
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+            out = null;
+        }
+    }
+
+    private void load() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                JournalRecord record = parse(line);
+                if (record != null) {
+                    remember(record);
+                    count++;
+                }
+            }
+        }
+        log.info("下载日志加载完成: {}，共 {} 条记录，已保存 {} 篇文章", file, count, lastSaved.size());
+    }
+
+    /**
+     * 解析一行记录，表头或格式错误的行返回 null
+     **/
+    static JournalRecord parse(String line) {
+        if (line.isEmpty() || line.startsWith("time\t")) {
+            return null;
+        }
+        String[] f = line.split("\t", -1);
+        if (f.length < 11) {
+            return null;
+        }
+        try {
+            return JournalRecord.builder()
+                    .time(Long.parseLong(f[0]))
+                    .articleId(unescape(f[1]))
+                    .url(unescape(f[2]))
+                    .title(unescape(f[3]))
+                    .status(f[4])
+                    .httpStatus(Integer.parseInt(f[5]))
+                    .downloadTime(Long.parseLong(f[6]))
+                    .contentLength(Integer.parseInt(f[7]))
+                    .contentHash(unescape(f[8]))
+                    .savedPath(unescape(f[9]))
+                    .error(unescape(f[10]))
+                    .build();
+        } catch (NumberFormatException e) {
+            log.warn("忽略格式错误的下载日志记录: {}", line);
+            return null;
+        }
+    }
+
+    private static String format(JournalRecord r) {
+        return r.getTime() + "\t" + escape(r.getArticleId()) + "\t" + escape(r.getUrl()) + "\t" + escape(r.getTitle()) + "\t"
+                + r.getStatus() + "\t" + r.getHttpStatus() + "\t" + r.getDownloadTime() + "\t" + r.getContentLength() + "\t"
+                + escape(r.getContentHash()) + "\t" + escape(r.getSavedPath()) + "\t" + escape(r.getError());
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        if (value.isEmpty()) {
+            return null;
+        }
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char n = value.charAt(++i);
+                sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,227 @@
+package com.ctgu.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载任务调度器。任务按优先级分级，每个优先级内再按主机划分子队列并轮询取任务，
+ * 同时限制单个主机的并发数；调度器常驻运行，批量任务执行期间可随时追加新任务
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class DownloadScheduler {
+    /**
+     * 任务优先级，数值越小越先执行
+     **/
+    public enum Priority {
+        HIGH("高"), NORMAL("普通"), LOW("低");
+
+        private final String label;
+
+        Priority(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    /**
+     * 每个优先级下按主机划分的子队列，LinkedHashMap 的顺序即轮询顺序
+     **/
+    private final Map<Priority, LinkedHashMap<String, ArrayDeque<Runnable>>> queues = new EnumMap<>(Priority.class);
+    /**
+     * 各主机正在执行的任务数
+     **/
+    private final Map<String, Integer> running = new HashMap<>();
+    private final int maxPerHost;
+    private final List<Thread> workers = new ArrayList<>();
+    private int pending = 0;
+    private volatile boolean shutdown = false;
+
+    /**
+     * @param workerCount 工作线程数（全局并发数）
+     * @param maxPerHost  单个主机允许的最大并发数，小于等于 0 时与工作线程数相同（不额外限制）
+     */
+    public DownloadScheduler(int workerCount, int maxPerHost) {
+        this.maxPerHost = maxPerHost > 0 ? maxPerHost : Math.max(1, workerCount);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new LinkedHashMap<>());
+        }
+        for (int i = 0; i < Math.max(1, workerCount); i++) {
+            Thread worker = new Thread(this::workLoop, "csdn-download-" + (i + 1));
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * 提交任务，可在任意时刻调用
+     *
+     * @param url      任务对应的链接，用于确定所属主机
+     * @param priority 优先级
+     * @param task     任务内容
+     */
+    public void submit(String url, Priority priority, Runnable task) {
+        String host = hostOf(url);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("调度器已关闭");
+            }
+            queues.get(priority).computeIfAbsent(host, h -> new ArrayDeque<>()).addLast(task);
+            pending++;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 清空所有尚未开始的任务，正在执行的任务不受影响
+     *
+     * @return 被取消的任务数
+     */
+    public int cancelPending() {
+        lock.lock();
+        try {
+            int cancelled = pending;
+            for (LinkedHashMap<String, ArrayDeque<Runnable>> hostQueues : queues.values()) {
+                hostQueues.clear();
+            }
+            pending = 0;
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 关闭调度器：丢弃排队任务并中断工作线程
+     **/
+    public void shutdownNow() {
+        lock.lock();
+        try {
+            shutdown = true;
+            cancelPending();
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    /**
+     * 工作线程数
+     **/
+    public int getWorkerCount() {
+        return workers.size();
+    }
+
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    private void workLoop() {
+        while (!shutdown) {
+            String host;
+            Runnable task;
+            lock.lock();
+            try {
+                Map.Entry<String, Runnable> next;
+                while ((next = pollNext()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    changed.await();
+                }
+                host = next.getKey();
+                task = next.getValue();
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("下载任务执行异常", t);
+            } finally {
+                lock.lock();
+                try {
+                    running.merge(host, -1, Integer::sum);
+                    changed.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * 取出下一个可执行任务：优先级从高到低，同一优先级内按主机轮询，跳过已达并发上限的主机。
+     * 调用方需持有锁
+     **/
+    private Map.Entry<String, Runnable> pollNext() {
+        for (LinkedHashMap<String, ArrayDeque<Runnable>> hostQueues : queues.values()) {
+            Iterator<Map.Entry<String, ArrayDeque<Runnable>>> it = hostQueues.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, ArrayDeque<Runnable>> entry = it.next();
+                String host = entry.getKey();
+                if (running.getOrDefault(host, 0) >= maxPerHost) {
+                    continue;
+                }
+                ArrayDeque<Runnable> hostQueue = entry.getValue();
+                Runnable task = hostQueue.pollFirst();
+                // 移除后如仍有任务则重新放到队尾，实现轮询
+                it.remove();
+                if (!hostQueue.isEmpty()) {
+                    hostQueues.put(host, hostQueue);
+                }
+                pending--;
+                running.merge(host, 1, Integer::sum);
+                return new AbstractMap.SimpleImmutableEntry<>(host, task);
+            }
+        }
+        return null;
+    }
+
+    private static String hostOf(String url) {
+        try {
+            String host = URI.create(url.trim()).getHost();
+            return host != null ? host.toLowerCase() : "";
+        } catch (IllegalArgumentException e) {
+            return "";
+        }
+    }
+}
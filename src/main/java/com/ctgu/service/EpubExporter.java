@@ -0,0 +1,93 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.util.EpubWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 将一批已下载的文章（如整个专栏）按顺序合并为一本 EPUB，逐篇写入，不在内存中累积正文
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class EpubExporter {
+    private final EpubWriter.ResourceLoader loader;
+
+    public EpubExporter(EpubWriter.ResourceLoader loader) {
+        this.loader = loader;
+    }
+
+    public EpubExporter(CSDNDownloader downloader) {
+        this(sharedLoader(downloader));
+    }
+
+    /**
+     * 使用与 PDF 渲染共享的资源缓存，生成过 PDF 的图片无需再次下载；不经过 PdfRenderService，未开启 PDF 时不加载 PDF 相关类
+     **/
+    private static EpubWriter.ResourceLoader sharedLoader(CSDNDownloader downloader) {
+        ResourceCache cache = ResourceCache.getShared();
+        cache.configure(downloader.getUserAgent(), downloader.getTimeout());
+        return cache::open;
+    }
+
+    /**
+     * 导出 EPUB
+     *
+     * @param results   按章节顺序排列的下载结果，失败的结果会被忽略
+     * @param file      输出文件
+     * @param bookTitle 书名
+     * @return 写入的章节数
+     */
+    public int export(List<DownloadResult> results, File file, String bookTitle) throws IOException {
+        String author = null;
+        for (DownloadResult result : results) {
+            if (result.isSuccess() && result.getAuthor() != null) {
+                author = result.getAuthor();
+                break;
+            }
+        }
+        try (EpubWriter writer = new EpubWriter(file, bookTitle, author, loader)) {
+            for (DownloadResult result : results) {
+                if (!result.isSuccess()) {
+                    continue;
+                }
+                String content = contentOf(result);
+                if (content == null) {
+                    log.warn("找不到文章正文，已跳过: {}", result.getUrl());
+                    continue;
+                }
+                writer.addChapter(result.getTitle(), result.getUrl(), content);
+            }
+            log.info("EPUB 导出完成: {}，共 {} 章", file.getAbsolutePath(), writer.getChapterCount());
+            return writer.getChapterCount();
+        }
+    }
+
+    /**
+     * 优先使用下载时得到的正文，否则从已保存的 HTML 中取出正文部分
+     **/
+    private static String contentOf(DownloadResult result) throws IOException {
+        if (result.getContentHtml() != null) {
+            return result.getContentHtml();
+        }
+        if (result.getSavedPath() == null) {
+            return null;
+        }
+        File htmlFile = new File(result.getSavedPath() + ".html");
+        if (!htmlFile.exists()) {
+            return null;
+        }
+        Document doc = Jsoup.parse(htmlFile, StandardCharsets.UTF_8.name(), result.getUrl());
+        Element content = doc.getElementById("content");
+        return content != null ? content.html() : doc.body().html();
+    }
+}
@@ -0,0 +1,258 @@
+package com.ctgu.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.NodeFilter;
+import org.jsoup.select.QueryParser;
+import org.jsoup.select.Selector;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 正文提取配置，从 config.properties 读取标题、正文及需要移除的元素选择器，
+ * 选择器只编译一次并缓存为 Evaluator，清洗规则在一次 DOM 遍历中全部完成
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class ExtractionProfile {
+    public static final String DEFAULT_TITLE_SELECTOR = "h1.title-article,div.article-title h1";
+    public static final String DEFAULT_CONTENT_SELECTOR = "div#content_views,article";
+    public static final String DEFAULT_REMOVE_SELECTOR = "script, iframe, style, .hide-article-box, .btn-readmore, .recommend-box, .opt-box, .template-box";
+    public static final String DEFAULT_AUTHOR_SELECTOR = "a.follow-nickName,#uid .name,.profile-intro-name-boxTop a";
+    public static final String DEFAULT_DATE_SELECTOR = "span.time,.up-time";
+    /**
+     * 日期文本中的 yyyy-MM-dd 部分
+     **/
+    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d{4})[-/.年](\\d{1,2})[-/.月](\\d{1,2})");
+    private static final String IMG_STYLE = "max-width: 95%; height: auto; display: block; margin: 15px auto; border-radius: 4px;";
+    private static final String PRE_STYLE = "white-space: pre-wrap; word-break: break-all; background: #282c34; color: #abb2bf; padding: 10px; border-radius: 5px;";
+    /**
+     * 已编译选择器缓存，多个下载器实例共享，避免重复解析
+     **/
+    private static final Map<String, Evaluator> COMPILED = new ConcurrentHashMap<>();
+
+    /**
+     * 标题选择器，按配置顺序依次尝试
+     **/
+    private final List<Evaluator> titleEvaluators;
+    /**
+     * 正文选择器，按配置顺序依次尝试
+     **/
+    private final List<Evaluator> contentEvaluators;
+    /**
+     * 所有正文选择器的并集，用于流式解析时匹配最先闭合的正文元素
+     **/
+    private final Evaluator anyContentEvaluator;
+    /**
+     * 需要从正文中移除的干扰元素（合并为单个 Evaluator）
+     **/
+    private final Evaluator removeEvaluator;
+    /**
+     * 作者与发布日期选择器（用于归档检索）
+     **/
+    private final List<Evaluator> authorEvaluators;
+    private final List<Evaluator> dateEvaluators;
+
+    public ExtractionProfile(String titleSelector, String contentSelector, String removeSelector) {
+        this(titleSelector, contentSelector, removeSelector, DEFAULT_AUTHOR_SELECTOR, DEFAULT_DATE_SELECTOR);
+    }
+
+    public ExtractionProfile(String titleSelector, String contentSelector, String removeSelector, String authorSelector, String dateSelector) {
+        this.titleEvaluators = compileAlternatives(titleSelector);
+        this.contentEvaluators = compileAlternatives(contentSelector);
+        this.anyContentEvaluator = compile(contentSelector);
+        this.removeEvaluator = compile(removeSelector);
+        this.authorEvaluators = compileAlternatives(authorSelector);
+        this.dateEvaluators = compileAlternatives(dateSelector);
+    }
+
+    /**
+     * 根据配置创建提取配置，缺失或非法的选择器回退为内置默认值
+     *
+     * @param props 已加载的配置
+     * @return 提取配置
+     */
+    public static ExtractionProfile fromProperties(Properties props) {
+        String title = props.getProperty("title.selector", DEFAULT_TITLE_SELECTOR).trim();
+        String content = props.getProperty("content.selector", DEFAULT_CONTENT_SELECTOR).trim();
+        String remove = props.getProperty("remove.selector", DEFAULT_REMOVE_SELECTOR).trim();
+        String author = props.getProperty("author.selector", DEFAULT_AUTHOR_SELECTOR).trim();
+        String date = props.getProperty("date.selector", DEFAULT_DATE_SELECTOR).trim();
+        try {
+            return new ExtractionProfile(title, content, remove, author, date);
+        } catch (Selector.SelectorParseException e) {
+            log.warn("选择器配置格式错误，使用默认值: {}", e.getMessage());
+            return defaults();
+        }
+    }
+
+    public static ExtractionProfile defaults() {
+        return new ExtractionProfile(DEFAULT_TITLE_SELECTOR, DEFAULT_CONTENT_SELECTOR, DEFAULT_REMOVE_SELECTOR);
+    }
+
+    /**
+     * 提取文章标题：优先使用标题选择器，未命中时回退为页面 title 去掉站点后缀
+     **/
+    public String extractTitle(Document doc) {
+        Element titleElement = selectFirst(doc, titleEvaluators);
+        if (titleElement != null && !titleElement.text().trim().isEmpty()) {
+            return titleElement.text().trim();
+        }
+        return doc.title().replace("-CSDN博客", "").trim();
+    }
+
+    /**
+     * 提取作者：优先使用作者选择器，未命中时取链接中的用户名
+     **/
+    public String extractAuthor(Document doc, String url) {
+        Element authorElement = selectFirst(doc, authorEvaluators);
+        if (authorElement != null && !authorElement.text().trim().isEmpty()) {
+            return authorElement.text().trim();
+        }
+        try {
+            String path = URI.create(url.trim()).getPath();
+            if (path != null && path.length() > 1) {
+                return path.substring(1).split("/")[0];
+            }
+        } catch (IllegalArgumentException ignored) {
+            // 链接无法解析时不填作者
+        }
+        return null;
+    }
+
+    /**
+     * 提取发布日期，统一为 yyyy-MM-dd，未找到时返回 null
+     **/
+    public String extractPublishDate(Document doc) {
+        for (Evaluator evaluator : dateEvaluators) {
+            for (Element el : doc.select(evaluator)) {
+                Matcher m = DATE_PATTERN.matcher(el.text());
+                if (m.find()) {
+                    return String.format("%s-%02d-%02d", m.group(1), Integer.parseInt(m.group(2)), Integer.parseInt(m.group(3)));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查找正文元素，按配置顺序返回第一个命中的选择器结果
+     **/
+    public Element selectContent(Document doc) {
+        return selectFirst(doc, contentEvaluators);
+    }
+
+    public Evaluator getAnyContentEvaluator() {
+        return anyContentEvaluator;
+    }
+
+    /**
+     * 一次遍历完成正文清洗：移除干扰元素、修复懒加载图片、规范代码块样式
+     *
+     * @param content 正文元素（原地修改）
+     */
+    public void clean(Element content) {
+        content.filter(new NodeFilter() {
+            @Override
+            public FilterResult head(Node node, int depth) {
+                if (!(node instanceof Element)) {
+                    return FilterResult.CONTINUE;
+                }
+                Element el = (Element) node;
+                if (el != content && removeEvaluator.matches(content, el)) {
+                    return FilterResult.REMOVE;
+                }
+                if ("img".equals(el.normalName())) {
+                    fixImage(el);
+                } else if ("pre".equals(el.normalName())) {
+                    // 处理代码块，确保 PDF 中换行正常
+                    el.attr("style", PRE_STYLE);
+                }
+                return FilterResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 修复图片显示 (懒加载 -> 真实链接)
+     **/
+    private void fixImage(Element img) {
+        String src = img.attr("src");
+        String dataSrc = img.attr("data-src");
+        if (!dataSrc.isEmpty()) {
+            src = dataSrc;
+        }
+        if (src.startsWith("//")) {
+            src = "https:" + src;
+        }
+        img.attr("src", src);
+        // 移除可能导致 PDF 生成异常的属性
+        img.removeAttr("data-src");
+        img.removeAttr("onerror");
+        // 强制样式，防止图片溢出 PDF 页面
+        img.attr("style", IMG_STYLE);
+    }
+
+    private static Element selectFirst(Document doc, List<Evaluator> evaluators) {
+        for (Evaluator evaluator : evaluators) {
+            Element found = doc.selectFirst(evaluator);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    private static Evaluator compile(String query) {
+        return COMPILED.computeIfAbsent(query, QueryParser::parse);
+    }
+
+    /**
+     * 将逗号分隔的选择器组拆分为按优先级排列的多个 Evaluator（忽略括号、方括号与引号内的逗号）
+     **/
+    private static List<Evaluator> compileAlternatives(String query) {
+        List<Evaluator> result = new ArrayList<>();
+        int depth = 0;
+        char quote = 0;
+        int begin = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '(' || c == '[') {
+                depth++;
+            } else if (c == ')' || c == ']') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                addAlternative(result, query.substring(begin, i));
+                begin = i + 1;
+            }
+        }
+        addAlternative(result, query.substring(begin));
+        return Collections.unmodifiableList(result);
+    }
+
+    private static void addAlternative(List<Evaluator> result, String part) {
+        String trimmed = part.trim();
+        if (!trimmed.isEmpty()) {
+            result.add(compile(trimmed));
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ctgu.service;
+
+import com.ctgu.util.UrlUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 链接预检：正式下载前并发发送 HEAD 请求（服务器不支持 HEAD 时改为只读取开头 16KB 的 GET），
+ * 在全局速率限制下快速找出 404 / 已删除的文章，只把可访问的链接交给下载流程，避免为失效链接下载整页并占用下载线程
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class LinkPreflight {
+    /**
+     * 不支持 HEAD 时读取的最大字节数
+     **/
+    private static final int RANGE_BYTES = 16 * 1024;
+
+    /**
+     * 预检结论
+     **/
+    public enum Status {
+        LIVE("可访问"), NOT_FOUND("不存在或已删除"), UNKNOWN("无法确认");
+
+        private final String label;
+
+        Status(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 单个链接的预检结果
+     **/
+    @Data
+    public static class Result {
+        private final String url;
+        private final Status status;
+        private final int httpStatus;
+        private final String detail;
+    }
+
+    private final String userAgent;
+    private final int timeout;
+    private final String baseUrl;
+    private final int concurrency;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param downloader  提供 User-Agent、超时与替换地址
+     * @param concurrency 同时进行的请求数
+     */
+    public LinkPreflight(CSDNDownloader downloader, int concurrency) {
+        this.userAgent = downloader.getUserAgent();
+        this.timeout = downloader.getTimeout();
+        this.baseUrl = downloader.getBaseUrl();
+        this.concurrency = Math.max(1, concurrency);
+        this.rateLimiter = RateLimiter.global();
+    }
+
+    /**
+     * 并发检查所有链接，阻塞到全部完成
+     *
+     * @param urls     待检查的链接
+     * @param progress 每完成一个链接回调一次（在预检线程中调用），可为 null
+     * @return 与输入顺序一致的结果
+     */
+    public List<Result> check(List<String> urls, Consumer<Result> progress) {
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, urls.size())), r -> {
+            Thread t = new Thread(r, "csdn-preflight-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<Result>> futures = new ArrayList<>(urls.size());
+            for (String url : urls) {
+                futures.add(executor.submit(() -> {
+                    Result result = checkOne(url);
+                    if (progress != null) {
+                        progress.accept(result);
+                    }
+                    return result;
+                }));
+            }
+            List<Result> results = new ArrayList<>(urls.size());
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    results.add(new Result(urls.get(i), Status.UNKNOWN, 0, "已取消"));
+                } catch (ExecutionException e) {
+                    results.add(new Result(urls.get(i), Status.UNKNOWN, 0, String.valueOf(e.getCause().getMessage())));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 检查单个链接：404 / 410 判定为不存在，2xx / 3xx 判定为可访问，限流、服务器错误与网络异常无法确认（保留给正式下载处理）
+     **/
+    public Result checkOne(String url) {
+        String fetchUrl = UrlUtils.rebase(url, baseUrl);
+        try {
+            rateLimiter.acquire();
+            Connection.Response response = request(fetchUrl, Connection.Method.HEAD);
+            int status = response.statusCode();
+            if (status == 405 || status == 501 || status == 403) {
+                // 不支持 HEAD 的服务器改用只读开头部分的 GET
+                rateLimiter.acquire();
+                response = request(fetchUrl, Connection.Method.GET);
+                status = response.statusCode();
+            }
+            return new Result(url, classify(status), status, response.statusMessage());
+        } catch (IOException e) {
+            return new Result(url, Status.UNKNOWN, 0, e.getMessage());
+        }
+    }
+
+    private Connection.Response request(String url, Connection.Method method) throws IOException {
+        Connection conn = Jsoup.connect(url).method(method).userAgent(userAgent).timeout(timeout)
+                .referrer("https://blog.csdn.net/").ignoreHttpErrors(true).ignoreContentType(true);
+        if (method == Connection.Method.GET) {
+            conn.header("Range", "bytes=0-" + (RANGE_BYTES - 1)).maxBodySize(RANGE_BYTES);
+        }
+        Connection.Response response = conn.execute();
+        if (method == Connection.Method.GET) {
+            // 只需要状态码，不读取正文直接关闭连接
+            response.bodyStream().close();
+        }
+        return response;
+    }
+
+    private static Status classify(int status) {
+        if (status == 404 || status == 410) {
+            return Status.NOT_FOUND;
+        }
+        if (status >= 200 && status < 400) {
+            return Status.LIVE;
+        }
+        return Status.UNKNOWN;
+    }
+}
@@ -0,0 +1,197 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.util.HashUtils;
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 输出目录布局：决定新文章写在输出目录下的哪个子目录、使用什么文件名（不含扩展名）。
+ * 配置项 output.layout 可选：
+ * <pre>
+ * flat         输出目录/序号_标题            （默认，与旧版本一致）
+ * author-date  输出目录/作者/年份/文章ID
+ * hash         输出目录/ab/cd/文章ID         （ab、cd 取自文章 ID 的 SHA-256 前四位，每层最多 256 个子目录）
+ * </pre>
+ * 分目录布局使用文章 ID 作为文件名，多次批量下载之间不会冲突，单个目录的文件数也不会无限增长；
+ * 已下载过的文章始终沿用下载日志中记录的原路径，切换布局不会移动旧文件。
+ * 已创建的目录缓存在内存中，同一目录只调用一次 mkdirs
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class OutputLayout {
+    /**
+     * 文件名（不含扩展名）的最大 UTF-8 字节数，多数文件系统限制为 255 字节，需给扩展名与冲突后缀留出余量
+     **/
+    private static final int DEFAULT_MAX_NAME_BYTES = 150;
+    private static final String UNKNOWN_AUTHOR = "unknown";
+
+    public enum Scheme {
+        FLAT("flat"), AUTHOR_DATE("author-date"), HASH("hash");
+
+        private final String name;
+
+        Scheme(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        static Scheme of(String value) {
+            for (Scheme scheme : values()) {
+                if (scheme.name.equalsIgnoreCase(value) || scheme.name().equalsIgnoreCase(value)) {
+                    return scheme;
+                }
+            }
+            return null;
+        }
+    }
+
+    private final Scheme scheme;
+    private final int maxNameBytes;
+    /**
+     * 已确认存在的目录
+     **/
+    private final Set<String> createdDirs = ConcurrentHashMap.newKeySet();
+
+    public OutputLayout(Scheme scheme, int maxNameBytes) {
+        this.scheme = scheme;
+        this.maxNameBytes = Math.max(32, maxNameBytes);
+    }
+
+    /**
+     * 默认布局（平铺，序号_标题）
+     **/
+    public static OutputLayout flat() {
+        return new OutputLayout(Scheme.FLAT, DEFAULT_MAX_NAME_BYTES);
+    }
+
+    /**
+     * 从配置读取 output.layout 与 output.filename.max.bytes，格式错误时使用默认值
+     **/
+    public static OutputLayout fromProperties(Properties props) {
+        String value = props.getProperty("output.layout", Scheme.FLAT.getName()).trim();
+        Scheme scheme = Scheme.of(value);
+        if (scheme == null) {
+            log.warn("output.layout 取值 {} 无效，使用 flat 布局", value);
+            scheme = Scheme.FLAT;
+        }
+        int maxBytes = DEFAULT_MAX_NAME_BYTES;
+        String maxValue = props.getProperty("output.filename.max.bytes");
+        if (maxValue != null) {
+            try {
+                maxBytes = Integer.parseInt(maxValue.trim());
+            } catch (NumberFormatException e) {
+                log.warn("output.filename.max.bytes 格式错误，使用默认值 {}", DEFAULT_MAX_NAME_BYTES);
+            }
+        }
+        return new OutputLayout(scheme, maxBytes);
+    }
+
+    public Scheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * 为新文章分配输出路径并确保所在目录存在
+     *
+     * @param baseDir 输出目录
+     * @param result  下载结果
+     * @param index   批次内序号（仅平铺布局使用）
+     * @return 不含扩展名的文件路径
+     */
+    public String resolve(File baseDir, DownloadResult result, int index) throws IOException {
+        String id = articleKey(result);
+        File file;
+        switch (scheme) {
+            case AUTHOR_DATE:
+                File authorDir = new File(baseDir, sanitize(result.getAuthor() == null ? UNKNOWN_AUTHOR : result.getAuthor(), 64));
+                file = new File(new File(authorDir, yearOf(result)), id);
+                break;
+            case HASH:
+                String hash = HashUtils.sha256Hex(id);
+                file = new File(new File(new File(baseDir, hash.substring(0, 2)), hash.substring(2, 4)), id);
+                break;
+            default:
+                file = new File(baseDir, sanitize(String.format("%03d_%s", index, result.getTitle()), maxNameBytes));
+                // 平铺布局的序号每批从 1 开始，与其他批次的同名文件冲突时追加文章 ID
+                if (new File(file.getPath() + ".html").exists()) {
+                    file = new File(baseDir, sanitize(file.getName(), maxNameBytes - id.length() - 1) + "_" + id);
+                }
+                break;
+        }
+        ensureDir(file.getParentFile());
+        return file.getPath();
+    }
+
+    /**
+     * 创建目录，已创建过的目录直接返回
+     **/
+    void ensureDir(File dir) throws IOException {
+        String key = dir.getPath();
+        if (createdDirs.contains(key)) {
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("无法创建输出目录: " + dir);
+        }
+        createdDirs.add(key);
+    }
+
+    /**
+     * 文章 ID 作为稳定文件名，无法解析 ID 的链接使用链接摘要
+     **/
+    private static String articleKey(DownloadResult result) {
+        String id = result.getArticleId();
+        if (id == null || id.isEmpty()) {
+            id = UrlUtils.extractArticleId(result.getUrl());
+        }
+        return id != null ? id : "u" + HashUtils.sha256Hex(UrlUtils.canonicalize(result.getUrl())).substring(0, 24);
+    }
+
+    /**
+     * 发布年份，页面中没有发布日期时使用下载日期
+     **/
+    private static String yearOf(DownloadResult result) {
+        String date = result.getPublishDate();
+        if (date != null && date.length() >= 4 && date.substring(0, 4).chars().allMatch(Character::isDigit)) {
+            return date.substring(0, 4);
+        }
+        Date downloadDate = result.getDownloadDate() != null ? result.getDownloadDate() : new Date();
+        return new SimpleDateFormat("yyyy").format(downloadDate);
+    }
+
+    /**
+     * 替换文件名中的非法字符，并按 UTF-8 字节数截断（不截断在字符中间）
+     **/
+    static String sanitize(String name, int maxBytes) {
+        String safe = name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").trim();
+        int bytes = 0;
+        int end = 0;
+        while (end < safe.length()) {
+            int cp = safe.codePointAt(end);
+            int size = new String(Character.toChars(cp)).getBytes(StandardCharsets.UTF_8).length;
+            if (bytes + size > maxBytes) {
+                break;
+            }
+            bytes += size;
+            end += Character.charCount(cp);
+        }
+        // Windows 不允许文件名以点或空格结尾
+        String truncated = safe.substring(0, end).replaceAll("[. ]+$", "");
+        return truncated.isEmpty() ? "_" : truncated;
+    }
+}
@@ -0,0 +1,387 @@
+package com.ctgu.service;
+
+import com.openhtmltopdf.extend.FSCacheEx;
+import com.openhtmltopdf.extend.FSCacheValue;
+import com.openhtmltopdf.extend.FSStream;
+import com.openhtmltopdf.extend.FSStreamFactory;
+import com.openhtmltopdf.extend.impl.FSDefaultCacheStore;
+import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
+import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.jsoup.Jsoup;
+import org.jsoup.helper.W3CDom;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 常驻的 PDF 渲染服务。字体文件只读取一次，字体度量缓存在所有文档间共享，
+ * jsoup 文档直接转换为 W3C DOM 交给渲染器（省去 XHTML 序列化与 XML 重新解析），
+ * 首次需要时才加载字体，可在后台预热，并提供面向吞吐量的批量渲染接口。
+ * 低内存模式下 PDF 对象写入临时文件，并按估算的文档大小限制同时进行的渲染
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class PdfRenderService {
+    public static final String FONT_FAMILY = "MyChineseFont";
+    /**
+     * 按顺序查找的中文字体，Regular 缺失时使用 Heavy
+     **/
+    private static final String[] FONT_RESOURCES = {"/fonts/Alibaba-PuHuiTi-Regular.ttf", "/fonts/Alibaba-PuHuiTi-Heavy.ttf"};
+    private static final String WARMUP_HTML = "<html><head><style>body{font-family:'" + FONT_FAMILY + "',sans-serif}</style></head>"
+            + "<body><h1>预热 Warmup</h1><p>中文字体度量预热 0123456789</p><pre>code</pre></body></html>";
+    /**
+     * 估算内存占用：每个 HTML 字符在 jsoup DOM、W3C DOM 与盒模型中合计约占用的字节数
+     **/
+    private static final long BYTES_PER_HTML_CHAR = 16;
+    /**
+     * 估算内存占用：每张图片按 2MB 计算
+     **/
+    private static final long BYTES_PER_IMAGE = 2L * 1024 * 1024;
+    private static final long MB = 1024 * 1024;
+    private static volatile PdfRenderService instance;
+
+    /**
+     * 批量渲染任务
+     **/
+    @Data
+    public static class RenderJob {
+        private final String html;
+        private final File output;
+    }
+
+    /**
+     * 批量渲染结果，error 为 null 表示成功；渲染线程因 Error（如栈溢出）终止时同样记录在 error 中
+     **/
+    @Data
+    public static class RenderResult {
+        private final File output;
+        private final long elapsedMs;
+        private final Throwable error;
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+
+    /**
+     * 中文字体内容，首次渲染时读取一次，未找到时为空数组
+     **/
+    private volatile byte[] fontBytes;
+    /**
+     * 字体度量缓存，线程安全，跨文档共享
+     **/
+    private final FSCacheEx<String, FSCacheValue> fontMetricsCache = new FSDefaultCacheStore();
+    private final ExecutorService renderPool;
+    /**
+     * 外部资源（图片、样式表）的读取方式，为 null 时使用渲染器默认的 HTTP 实现
+     **/
+    private volatile FSStreamFactory streamFactory;
+    /**
+     * 共享资源缓存，渲染前预取文档引用的资源
+     **/
+    private volatile ResourceCache resourceCache;
+    private volatile CompletableFuture<Void> warmup;
+    /**
+     * 低内存模式：PDF 对象使用临时文件暂存，渲染按估算内存申请许可
+     **/
+    private volatile boolean boundedMemory;
+    /**
+     * 低内存模式下所有渲染共享的内存预算（MB），为最大堆的一半
+     **/
+    private final int memoryBudgetMb;
+    private final Semaphore memoryBudget;
+
+    private PdfRenderService() {
+        setResourceCache(ResourceCache.getShared());
+        this.memoryBudgetMb = (int) Math.max(64, Runtime.getRuntime().maxMemory() / 2 / MB);
+        this.memoryBudget = new Semaphore(memoryBudgetMb, true);
+        AtomicInteger seq = new AtomicInteger();
+        this.renderPool = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "csdn-pdf-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public static PdfRenderService getInstance() {
+        if (instance == null) {
+            synchronized (PdfRenderService.class) {
+                if (instance == null) {
+                    instance = new PdfRenderService();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 在后台渲染一篇小文档，提前完成类加载、默认样式表解析与字体度量计算。可重复调用，只执行一次
+     **/
+    public synchronized CompletableFuture<Void> prewarmAsync() {
+        if (warmup == null) {
+            warmup = CompletableFuture.runAsync(() -> {
+                long start = System.currentTimeMillis();
+                try {
+                    render(WARMUP_HTML, NullOutputStream.INSTANCE);
+                    log.info("PDF 渲染器预热完成，耗时 {}ms", System.currentTimeMillis() - start);
+                } catch (Exception e) {
+                    log.warn("PDF 渲染器预热失败: {}", e.getMessage());
+                }
+            }, renderPool);
+        }
+        return warmup;
+    }
+
+    /**
+     * 设置外部资源读取方式，对之后开始的渲染生效
+     **/
+    public void setStreamFactory(FSStreamFactory streamFactory) {
+        this.streamFactory = streamFactory;
+    }
+
+    /**
+     * 设置共享资源缓存：渲染前并行预取资源，排版时从缓存读取；为 null 时不预取
+     **/
+    public void setResourceCache(ResourceCache resourceCache) {
+        this.resourceCache = resourceCache;
+        this.streamFactory = resourceCache == null ? null : streamFactoryOf(resourceCache);
+    }
+
+    /**
+     * 排版时从资源缓存读取图片与样式表
+     **/
+    private static FSStreamFactory streamFactoryOf(ResourceCache cache) {
+        return url -> new FSStream() {
+            @Override
+            public InputStream getStream() {
+                byte[] data = cache.get(url);
+                return data == null ? null : new ByteArrayInputStream(data);
+            }
+
+            @Override
+            public Reader getReader() {
+                byte[] data = cache.get(url);
+                return data == null ? null : new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    public ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * 资源缓存使用与文章下载相同的 User-Agent 与超时
+     **/
+    public void configureResources(CSDNDownloader downloader) {
+        ResourceCache cache = resourceCache;
+        if (cache != null) {
+            cache.configure(downloader.getUserAgent(), downloader.getTimeout());
+        }
+    }
+
+    /**
+     * 开启或关闭低内存模式，对之后开始的渲染生效
+     **/
+    public void setBoundedMemory(boolean boundedMemory) {
+        this.boundedMemory = boundedMemory;
+        if (boundedMemory) {
+            log.info("PDF 低内存模式已开启，渲染内存预算 {}MB", memoryBudgetMb);
+        }
+    }
+
+    public boolean isBoundedMemory() {
+        return boundedMemory;
+    }
+
+    /**
+     * 渲染单个文档，在调用线程中执行
+     *
+     * @param html   HTML 字符串
+     * @param output PDF 输出文件
+     */
+    public void render(String html, File output) throws IOException {
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(output))) {
+            render(html, os);
+        }
+    }
+
+    /**
+     * 直接从已保存的 HTML 文件渲染，调用方无需在内存中保留 HTML 字符串（低内存模式下使用）
+     *
+     * @param htmlFile UTF-8 编码的 HTML 文件
+     * @param baseUri  解析相对链接使用的地址，可为 null
+     * @param output   PDF 输出文件
+     */
+    public void render(File htmlFile, String baseUri, File output) throws IOException {
+        long htmlChars = htmlFile.length();
+        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(output))) {
+            renderDocument(Jsoup.parse(htmlFile, StandardCharsets.UTF_8.name(), baseUri == null ? "" : baseUri), htmlChars, os);
+        }
+    }
+
+    /**
+     * 批量渲染：所有文档并行提交到渲染线程池，全部完成后按提交顺序返回结果，单个失败不影响其他文档
+     *
+     * @param batch 渲染任务
+     * @return 与任务顺序一致的结果
+     */
+    public List<RenderResult> render(List<RenderJob> batch) {
+        List<Future<RenderResult>> futures = new ArrayList<>(batch.size());
+        for (RenderJob job : batch) {
+            futures.add(renderPool.submit(() -> {
+                long start = System.currentTimeMillis();
+                try {
+                    render(job.getHtml(), job.getOutput());
+                    return new RenderResult(job.getOutput(), System.currentTimeMillis() - start, null);
+                } catch (Exception e) {
+                    log.error("PDF生成失败: {}", job.getOutput(), e);
+                    return new RenderResult(job.getOutput(), System.currentTimeMillis() - start, e);
+                }
+            }));
+        }
+        List<RenderResult> results = new ArrayList<>(batch.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(new RenderResult(batch.get(i).getOutput(), 0, e));
+            } catch (ExecutionException e) {
+                results.add(new RenderResult(batch.get(i).getOutput(), 0, e.getCause()));
+            }
+        }
+        return results;
+    }
+
+    public boolean isFontAvailable() {
+        return fontBytes().length > 0;
+    }
+
+    private void render(String html, OutputStream os) throws IOException {
+        renderDocument(Jsoup.parse(html), html.length(), os);
+    }
+
+    /**
+     * @param doc       jsoup 文档，转换为 W3C DOM 后即不再引用
+     * @param htmlChars HTML 长度，用于估算内存占用
+     */
+    private void renderDocument(org.jsoup.nodes.Document doc, long htmlChars, OutputStream os) throws IOException {
+        ResourceCache cache = resourceCache;
+        if (cache != null) {
+            cache.prefetch(doc);
+        }
+        boolean bounded = boundedMemory;
+        int permits = bounded ? estimateCostMb(htmlChars, doc.select("img").size()) : 0;
+        if (permits > 0) {
+            try {
+                memoryBudget.acquire(permits);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待渲染许可时被中断", e);
+            }
+        }
+        PDDocument pdDocument = null;
+        try {
+            PdfRendererBuilder builder = newBuilder();
+            String location = doc.location().isEmpty() ? null : doc.location();
+            // 直接由 jsoup 文档构建 W3C DOM，无需序列化为 XHTML 再解析；转换后 jsoup 文档即可回收
+            org.w3c.dom.Document w3cDoc = W3CDom.convert(doc);
+            doc = null;
+            builder.withW3cDocument(w3cDoc, location);
+            if (bounded) {
+                // PDF 对象（含图片流）写入临时文件而非堆内存，渲染器结束时关闭文档并删除临时文件
+                pdDocument = new PDDocument(MemoryUsageSetting.setupTempFileOnly());
+                builder.usePDDocument(pdDocument);
+            }
+            builder.toStream(os);
+            builder.run();
+        } finally {
+            if (pdDocument != null) {
+                pdDocument.close();
+            }
+            if (permits > 0) {
+                memoryBudget.release(permits);
+            }
+        }
+    }
+
+    /**
+     * 估算渲染所需内存（MB），不超过总预算，保证超大文档也能单独渲染
+     **/
+    private int estimateCostMb(long htmlChars, int imageCount) {
+        long bytes = htmlChars * BYTES_PER_HTML_CHAR + imageCount * BYTES_PER_IMAGE;
+        return (int) Math.min(memoryBudgetMb, Math.max(1, bytes / MB));
+    }
+
+    private PdfRendererBuilder newBuilder() {
+        PdfRendererBuilder builder = new PdfRendererBuilder();
+        builder.useCacheStore(PdfRendererBuilder.CacheStore.PDF_FONT_METRICS, fontMetricsCache);
+        byte[] font = fontBytes();
+        if (font.length > 0) {
+            builder.useFont(() -> new ByteArrayInputStream(font), FONT_FAMILY, 400, BaseRendererBuilder.FontStyle.NORMAL, true);
+        }
+        FSStreamFactory factory = streamFactory;
+        if (factory != null) {
+            builder.useHttpStreamImplementation(factory);
+        }
+        return builder;
+    }
+
+    /**
+     * 字体文件约 2MB，推迟到第一次渲染（通常是后台预热）时读取，不生成 PDF 的运行不会加载
+     **/
+    private byte[] fontBytes() {
+        byte[] bytes = fontBytes;
+        if (bytes == null) {
+            synchronized (this) {
+                bytes = fontBytes;
+                if (bytes == null) {
+                    bytes = loadFont();
+                    fontBytes = bytes;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] loadFont() {
+        for (String resource : FONT_RESOURCES) {
+            try (InputStream is = PdfRenderService.class.getResourceAsStream(resource)) {
+                if (is != null) {
+                    log.info("PDF 中文字体已加载: {}", resource);
+                    return IOUtils.toByteArray(is);
+                }
+            } catch (IOException e) {
+                log.warn("字体读取失败: {}，{}", resource, e.getMessage());
+            }
+        }
+        log.warn("未加载中文字体，PDF中文可能显示乱码。请确保 resources/fonts 目录下存在字体文件。");
+        return new byte[0];
+    }
+}
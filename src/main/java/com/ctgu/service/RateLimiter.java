@@ -0,0 +1,83 @@
+package com.ctgu.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 请求速率限制器，按固定间隔发放许可（每秒 N 个），速率为 0 时不限制。
+ * 全局实例由文章下载、列表发现与链接预检共享，无论同时有多少线程，对目标站点的总请求速率都不超过 request.rate.limit
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class RateLimiter {
+    private static final RateLimiter GLOBAL = new RateLimiter(0);
+
+    private double permitsPerSecond;
+    private long intervalNanos;
+    /**
+     * 下一个许可可以发放的时间
+     **/
+    private long nextFreeNanos = System.nanoTime();
+
+    /**
+     * @param permitsPerSecond 每秒许可数，小于等于 0 表示不限制
+     */
+    public RateLimiter(double permitsPerSecond) {
+        setRate(permitsPerSecond);
+    }
+
+    /**
+     * 所有下载请求共享的限制器，速率由配置 request.rate.limit 设置
+     **/
+    public static RateLimiter global() {
+        return GLOBAL;
+    }
+
+    /**
+     * 修改速率，对之后申请的许可生效
+     *
+     * @param permitsPerSecond 每秒许可数，小于等于 0 表示不限制
+     */
+    public synchronized void setRate(double permitsPerSecond) {
+        this.permitsPerSecond = Math.max(0, permitsPerSecond);
+        this.intervalNanos = this.permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / this.permitsPerSecond) : 0;
+        this.nextFreeNanos = Math.min(nextFreeNanos, System.nanoTime() + intervalNanos);
+    }
+
+    public synchronized double getRate() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * 申请一个许可，必要时阻塞等待。等待中被中断时保留中断标记并立即返回
+     **/
+    public void acquire() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 预约下一个许可但不等待，供非阻塞调用方按返回的时长延后发出请求
+     *
+     * @return 需要等待的纳秒数，0 表示可以立即发出
+     */
+    public synchronized long reserve() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        long grant = Math.max(nextFreeNanos, now);
+        nextFreeNanos = grant + intervalNanos;
+        return grant - now;
+    }
+}
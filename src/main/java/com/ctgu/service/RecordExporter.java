@@ -0,0 +1,211 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.JournalRecord;
+import com.ctgu.util.JsonUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载记录导出：从输出目录的下载日志逐行读取全部历史记录，导出为 CSV 或 JSONL。
+ * 读取线程按批切分，多个线程并行解析与格式化，写出线程按原顺序落盘；在途批次数有上限，
+ * 内存占用与记录总数无关，上百万条记录也可导出。先写临时文件，完成后再替换目标文件
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class RecordExporter {
+    private static final int BATCH_LINES = 2000;
+    private static final String[] COLUMNS = {"time", "articleId", "url", "title", "status", "httpStatus",
+            "downloadTimeMs", "contentLength", "contentHash", "savedPath", "error"};
+
+    public enum Format {
+        CSV, JSONL;
+
+        /**
+         * 按文件扩展名选择格式，.jsonl / .json 为 JSONL，其余为 CSV
+         **/
+        public static Format ofFile(File file) {
+            String name = file.getName().toLowerCase();
+            return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * @param threads 并行格式化的线程数
+     */
+    public RecordExporter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * 导出下载日志
+     *
+     * @param journalFile 下载日志文件
+     * @param target      导出文件
+     * @param format      导出格式
+     * @param progress    每写出一批回调一次已导出的记录数（在调用线程中），可为 null
+     * @return 导出的记录数
+     */
+    public long export(File journalFile, File target, Format format, LongConsumer progress) throws IOException {
+        File parent = target.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(".export-", ".tmp", parent);
+        AtomicInteger seq = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "record-export-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long written = 0;
+        boolean completed = false;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(journalFile), StandardCharsets.UTF_8));
+             Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), StandardCharsets.UTF_8), 64 * 1024)) {
+            if (format == Format.CSV) {
+                // BOM 让 Excel 按 UTF-8 打开
+                writer.write('\ufeff');
+                writer.write(String.join(",", COLUMNS));
+                writer.write("\r\n");
+            }
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+            List<String> batch = new ArrayList<>(BATCH_LINES);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                batch.add(line);
+                if (batch.size() == BATCH_LINES) {
+                    List<String> lines = batch;
+                    inFlight.add(pool.submit(() -> formatBatch(lines, format)));
+                    batch = new ArrayList<>(BATCH_LINES);
+                    // 在途批次达到上限时先按顺序写出最早的一批
+                    if (inFlight.size() >= threads * 2) {
+                        written += writeChunk(writer, inFlight.poll(), progress, written);
+                    }
+                }
+            }
+            if (!batch.isEmpty()) {
+                List<String> lines = batch;
+                inFlight.add(pool.submit(() -> formatBatch(lines, format)));
+            }
+            while (!inFlight.isEmpty()) {
+                written += writeChunk(writer, inFlight.poll(), progress, written);
+            }
+            completed = true;
+        } finally {
+            pool.shutdownNow();
+            if (!completed) {
+                Files.deleteIfExists(tmp.toPath());
+            }
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        log.info("下载记录已导出: {}，共 {} 条", target.getAbsolutePath(), written);
+        return written;
+    }
+
+    /**
+     * 一批格式化后的输出
+     **/
+    private static class Chunk {
+        private final String text;
+        private final int count;
+
+        Chunk(String text, int count) {
+            this.text = text;
+            this.count = count;
+        }
+    }
+
+    private static int writeChunk(Writer writer, Future<Chunk> future, LongConsumer progress, long before) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("导出已取消", e);
+        } catch (ExecutionException e) {
+            throw new IOException("格式化下载记录失败", e.getCause());
+        }
+        writer.write(chunk.text);
+        if (progress != null) {
+            progress.accept(before + chunk.count);
+        }
+        return chunk.count;
+    }
+
+    private static Chunk formatBatch(List<String> lines, Format format) {
+        // SimpleDateFormat 非线程安全，每批单独创建
+        SimpleDateFormat time = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+        StringBuilder sb = new StringBuilder(lines.size() * 256);
+        int count = 0;
+        for (String line : lines) {
+            JournalRecord r = DownloadJournal.parse(line);
+            if (r == null) {
+                continue;
+            }
+            Object[] values = {time.format(new Date(r.getTime())), r.getArticleId(), r.getUrl(), r.getTitle(), r.getStatus(),
+                    r.getHttpStatus(), r.getDownloadTime(), r.getContentLength(), r.getContentHash(), r.getSavedPath(), r.getError()};
+            if (format == Format.CSV) {
+                appendCsv(sb, values);
+            } else {
+                appendJson(sb, values);
+            }
+            count++;
+        }
+        return new Chunk(sb.toString(), count);
+    }
+
+    /**
+     * 按 RFC 4180 转义：包含逗号、双引号或换行的字段用双引号包围，字段内双引号写两次
+     **/
+    private static void appendCsv(StringBuilder sb, Object[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = values[i] == null ? "" : values[i].toString();
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+                sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append("\r\n");
+    }
+
+    private static void appendJson(StringBuilder sb, Object[] values) {
+        sb.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(COLUMNS[i]).append("\":");
+            Object value = values[i];
+            sb.append(value instanceof Number ? value.toString() : JsonUtils.quote((String) value));
+        }
+        sb.append("}\n");
+    }
+}
@@ -0,0 +1,389 @@
+package com.ctgu.service;
+
+import com.ctgu.util.HashUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: PDF 渲染器与 EPUB 导出共享的外部资源缓存（图片、样式表）。内存与磁盘两级 LRU，均按字节数上限淘汰；
+ * 同一资源并发请求只下载一次，渲染前可并行预取文档引用的全部资源，排版过程不再等待网络。
+ * 不依赖 PDF 渲染器，未开启 PDF 时导出 EPUB 也不会加载 openhtmltopdf 与 PDFBox
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class ResourceCache {
+    public static final long DEFAULT_MEMORY_BYTES = 32L * 1024 * 1024;
+    public static final long DEFAULT_DISK_BYTES = 512L * 1024 * 1024;
+    /**
+     * 单个资源的大小上限，超过时放弃下载且不缓存（不会缓存截断后的内容）
+     **/
+    private static final int MAX_RESOURCE_BYTES = 20 * 1024 * 1024;
+    /**
+     * 下载失败的资源在此时间内不再重试
+     **/
+    private static final long FAILURE_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+    private static final int PREFETCH_THREADS = 8;
+    private static volatile ResourceCache shared;
+
+    private final File diskDir;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private volatile String userAgent;
+    private volatile int timeout;
+    /**
+     * 内存缓存，访问顺序即 LRU 顺序
+     **/
+    private final LinkedHashMap<String, byte[]> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryBytes = 0;
+    /**
+     * 磁盘缓存索引：文件名 -> 大小，访问顺序即 LRU 顺序
+     **/
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(256, 0.75f, true);
+    private long diskBytes = 0;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Long> failedUntil = new ConcurrentHashMap<>();
+    private final ExecutorService fetchPool;
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * @param diskDir        磁盘缓存目录
+     * @param maxMemoryBytes 内存缓存上限（字节）
+     * @param maxDiskBytes   磁盘缓存上限（字节）
+     * @param userAgent      下载资源使用的 User-Agent
+     * @param timeout        下载超时（毫秒）
+     */
+    public ResourceCache(File diskDir, long maxMemoryBytes, long maxDiskBytes, String userAgent, int timeout) {
+        this.diskDir = diskDir;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.userAgent = userAgent;
+        this.timeout = timeout;
+        if (!diskDir.exists()) {
+            diskDir.mkdirs();
+        }
+        loadDiskIndex();
+        AtomicInteger seq = new AtomicInteger();
+        this.fetchPool = Executors.newFixedThreadPool(PREFETCH_THREADS, r -> {
+            Thread t = new Thread(r, "csdn-resource-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 使用系统临时目录与默认容量创建缓存，User-Agent 与超时在读取下载器配置后由 {@link #configure} 设置
+     **/
+    public static ResourceCache createDefault() {
+        File dir = new File(System.getProperty("java.io.tmpdir"), "csdn-downloader/resource-cache");
+        return new ResourceCache(dir, DEFAULT_MEMORY_BYTES, DEFAULT_DISK_BYTES,
+                "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36", 20000);
+    }
+
+    /**
+     * PDF 渲染与 EPUB 导出共享的默认缓存，首次调用时创建
+     **/
+    public static ResourceCache getShared() {
+        if (shared == null) {
+            synchronized (ResourceCache.class) {
+                if (shared == null) {
+                    shared = createDefault();
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * 使用与文章下载相同的 User-Agent 与超时下载资源，对之后的下载生效
+     *
+     * @param userAgent User-Agent，为空时不修改
+     * @param timeout   超时（毫秒），小于等于 0 时不修改
+     */
+    public void configure(String userAgent, int timeout) {
+        if (userAgent != null && !userAgent.trim().isEmpty()) {
+            this.userAgent = userAgent.trim();
+        }
+        if (timeout > 0) {
+            this.timeout = timeout;
+        }
+    }
+
+    /**
+     * 并行预取文档引用的全部外部图片与样式表，最多等待 timeout 毫秒，超时未完成的资源在排版时再按需读取
+     *
+     * @param doc jsoup 文档
+     */
+    public void prefetch(Document doc) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (Element img : doc.select("img[src]")) {
+            addRemote(urls, img.absUrl("src").isEmpty() ? img.attr("src") : img.absUrl("src"));
+        }
+        for (Element link : doc.select("link[rel=stylesheet][href]")) {
+            addRemote(urls, link.absUrl("href").isEmpty() ? link.attr("href") : link.absUrl("href"));
+        }
+        if (urls.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<byte[]>> futures = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            futures.add(fetchAsync(url));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            log.warn("资源预取超时，剩余资源将在排版时读取");
+        } catch (Exception e) {
+            // 单个资源失败已在 fetchAsync 中处理
+        }
+    }
+
+    /**
+     * 读取资源（优先缓存），与预取一样最多等待 timeout 毫秒，下载卡住时不会阻塞排版线程
+     *
+     * @return 资源内容，下载失败或超时时返回 null
+     */
+    public byte[] get(String url) {
+        try {
+            return fetchAsync(url).get(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (TimeoutException e) {
+            log.warn("资源读取超时，已跳过: {}", url);
+            return null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 以输入流形式读取资源，供 EPUB 导出等场景使用
+     **/
+    public InputStream open(String url) throws IOException {
+        byte[] data = get(url);
+        if (data == null) {
+            throw new IOException("资源下载失败: " + url);
+        }
+        return new ByteArrayInputStream(data);
+    }
+
+    public int getHitCount() {
+        return hits.get();
+    }
+
+    public int getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * 处于失败冷却期内的资源数
+     **/
+    public int getFailedCount() {
+        long now = System.currentTimeMillis();
+        return (int) failedUntil.values().stream().filter(t -> t > now).count();
+    }
+
+    private CompletableFuture<byte[]> fetchAsync(String url) {
+        byte[] cached = fromMemory(url);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        Long until = failedUntil.get(url);
+        if (until != null) {
+            if (until > System.currentTimeMillis()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            failedUntil.remove(url, until);
+        }
+        // 同一资源同时只有一个下载任务
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(url, created);
+        if (existing != null) {
+            return existing;
+        }
+        fetchPool.execute(() -> {
+            try {
+                created.complete(load(url));
+            } catch (Throwable e) {
+                log.warn("资源读取异常: {}", url, e);
+                created.complete(null);
+            } finally {
+                inFlight.remove(url, created);
+            }
+        });
+        return created;
+    }
+
+    private byte[] load(String url) {
+        String key = HashUtils.sha256Hex(url);
+        byte[] data = fromDisk(key);
+        if (data != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            try {
+                data = download(url);
+            } catch (IOException e) {
+                log.warn("资源下载失败: {} ({})", url, e.getMessage());
+                long now = System.currentTimeMillis();
+                // 失败较少，记录新失败时顺带清理已过期的记录，避免长期运行时无限增长
+                failedUntil.values().removeIf(t -> t <= now);
+                failedUntil.put(url, now + FAILURE_TTL_MS);
+                return null;
+            }
+            toDisk(key, data);
+        }
+        toMemory(url, data);
+        return data;
+    }
+
+    /**
+     * 下载资源。不使用 jsoup 的 maxBodySize（超出时静默截断），声明长度或实际读取超过上限时抛出异常
+     **/
+    private byte[] download(String url) throws IOException {
+        Connection.Response response = Jsoup.connect(url).userAgent(userAgent).timeout(timeout).ignoreContentType(true)
+                .maxBodySize(0).referrer("https://blog.csdn.net/").execute();
+        try (InputStream in = response.bodyStream()) {
+            String length = response.header("Content-Length");
+            if (length != null && length.trim().matches("\\d+") && Long.parseLong(length.trim()) > MAX_RESOURCE_BYTES) {
+                throw new IOException("资源大小 " + length.trim() + " 字节超过上限");
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                if (out.size() + n > MAX_RESOURCE_BYTES) {
+                    throw new IOException("资源超过大小上限 " + MAX_RESOURCE_BYTES + " 字节");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private synchronized byte[] fromMemory(String url) {
+        return memory.get(url);
+    }
+
+    private synchronized void toMemory(String url, byte[] data) {
+        if (data.length > maxMemoryBytes / 4) {
+            return;
+        }
+        byte[] old = memory.put(url, data);
+        memoryBytes += data.length - (old == null ? 0 : old.length);
+        Iterator<Map.Entry<String, byte[]>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().length;
+            it.remove();
+        }
+    }
+
+    private byte[] fromDisk(String key) {
+        synchronized (this) {
+            if (disk.get(key) == null) {
+                return null;
+            }
+        }
+        File file = new File(diskDir, key);
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            // 修改时间用于重启后恢复 LRU 顺序
+            file.setLastModified(System.currentTimeMillis());
+            return data;
+        } catch (IOException e) {
+            synchronized (this) {
+                Long size = disk.remove(key);
+                diskBytes -= size == null ? 0 : size;
+            }
+            return null;
+        }
+    }
+
+    private void toDisk(String key, byte[] data) {
+        File file = new File(diskDir, key);
+        try {
+            // 先写临时文件再改名，避免并发读取到写了一半的文件
+            File temp = new File(diskDir, key + ".tmp");
+            Files.write(temp.toPath(), data);
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("写入资源缓存失败: {}", e.getMessage());
+            return;
+        }
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long old = disk.put(key, (long) data.length);
+            diskBytes += data.length - (old == null ? 0 : old);
+            Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator();
+            while (diskBytes > maxDiskBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                diskBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String name : evicted) {
+            new File(diskDir, name).delete();
+        }
+    }
+
+    /**
+     * 启动时按修改时间恢复磁盘缓存的 LRU 顺序
+     **/
+    private void loadDiskIndex() {
+        File[] files = diskDir.listFiles(f -> f.isFile() && !f.getName().endsWith(".tmp"));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        synchronized (this) {
+            for (File file : files) {
+                disk.put(file.getName(), file.length());
+                diskBytes += file.length();
+            }
+        }
+        log.info("资源缓存目录: {}，已有 {} 个文件，共 {} KB", diskDir.getAbsolutePath(), files.length, diskBytes / 1024);
+    }
+
+    private static void addRemote(Set<String> urls, String url) {
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            urls.add(url);
+        }
+    }
+}
@@ -0,0 +1,441 @@
+package com.ctgu.service;
+
+import com.ctgu.util.CjkTokenizer;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+
+import java.io.*;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载归档的全文检索索引。内存中维护倒排表（CJK 一元组与二元组分词），文档追加写入输出目录下的索引文件；
+ * 新文档先进入队列，由后台线程批量写盘并更新倒排表，不会拖慢下载线程
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class SearchIndex implements Closeable {
+    public static final String INDEX_DIR = ".search-index";
+    private static final String DOCS_FILE = "docs.dat";
+    /**
+     * 每批最多处理的文档数
+     **/
+    private static final int BATCH_SIZE = 200;
+    /**
+     * 标题命中的额外权重
+     **/
+    private static final int TITLE_BOOST = 10;
+    /**
+     * 每个输出目录共享一个索引实例
+     **/
+    private static final Map<String, SearchIndex> INSTANCES = new ConcurrentHashMap<>();
+
+    /**
+     * 待索引的文章
+     **/
+    @Data
+    @Builder
+    public static class Document {
+        private String key;
+        private String contentHash;
+        private String title;
+        private String author;
+        private String publishDate;
+        private String url;
+        private String savedPath;
+        private String bodyText;
+        /**
+         * 正文 HTML，仅在提交时使用，由后台线程转换为 bodyText 后丢弃
+         */
+        private String bodyHtml;
+    }
+
+    /**
+     * 检索结果
+     **/
+    @Data
+    @Builder
+    public static class Hit {
+        private String title;
+        private String author;
+        private String publishDate;
+        private String url;
+        private String savedPath;
+        private int score;
+    }
+
+    /**
+     * 文档元数据（正文只用于建立倒排表，不常驻内存）
+     **/
+    private static class DocMeta {
+        final String key;
+        final String contentHash;
+        final String title;
+        final String author;
+        final String publishDate;
+        final String url;
+        final String savedPath;
+
+        DocMeta(Document doc) {
+            this.key = doc.getKey();
+            this.contentHash = doc.getContentHash();
+            this.title = doc.getTitle();
+            this.author = doc.getAuthor();
+            this.publishDate = doc.getPublishDate();
+            this.url = doc.getUrl();
+            this.savedPath = doc.getSavedPath();
+        }
+    }
+
+    /**
+     * 递增的文档 ID 列表，文档按 ID 顺序加入，因此天然有序
+     **/
+    private static class Postings {
+        int[] ids = new int[4];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    private final File docsFile;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final List<DocMeta> docs = new ArrayList<>();
+    private final Map<String, Integer> keyToDoc = new HashMap<>();
+    /**
+     * 被新版本替换的旧文档
+     **/
+    private final BitSet deleted = new BitSet();
+    private final BlockingQueue<Document> queue = new LinkedBlockingQueue<>();
+    private final Thread indexer;
+    private volatile boolean closed = false;
+    private volatile boolean loaded = false;
+
+    private SearchIndex(File outputDir) {
+        File dir = new File(outputDir, INDEX_DIR);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        this.docsFile = new File(dir, DOCS_FILE);
+        this.indexer = new Thread(this::indexLoop, "csdn-search-indexer");
+        this.indexer.setDaemon(true);
+        this.indexer.start();
+    }
+
+    /**
+     * 获取输出目录对应的索引（首次调用时在后台加载已有索引）
+     **/
+    public static SearchIndex forDirectory(File outputDir) {
+        return INSTANCES.computeIfAbsent(outputDir.getAbsolutePath(), path -> new SearchIndex(new File(path)));
+    }
+
+    /**
+     * 提交文章到索引队列，立即返回
+     **/
+    public void add(Document doc) {
+        if (!closed) {
+            queue.offer(doc);
+        }
+    }
+
+    /**
+     * 全文检索：所有查询词都需命中（AND），标题命中的文章排在前面，其次按收录时间倒序
+     *
+     * @param query 查询语句
+     * @param limit 最多返回条数
+     * @return 检索结果
+     */
+    public List<Hit> search(String query, int limit) {
+        Set<String> terms = CjkTokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>();
+            for (String term : terms) {
+                Postings p = postings.get(term);
+                if (p == null) {
+                    return Collections.emptyList();
+                }
+                lists.add(p);
+            }
+            // 从最短的倒排表开始求交集
+            lists.sort(Comparator.comparingInt(p -> p.size));
+            // 排序键：高 32 位为得分，低 32 位为文档 ID（越新越大），保留得分最高的 limit 篇
+            PriorityQueue<Long> top = new PriorityQueue<>();
+            Postings shortest = lists.get(0);
+            for (int i = 0; i < shortest.size; i++) {
+                int id = shortest.ids[i];
+                if (deleted.get(id) || !containsAll(lists, id)) {
+                    continue;
+                }
+                long rank = ((long) (1 + titleScore(docs.get(id).title, terms)) << 32) | id;
+                top.add(rank);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            List<Hit> result = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                long rank = top.poll();
+                result.add(toHit(docs.get((int) rank), (int) (rank >>> 32)));
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 当前有效文档数
+     **/
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return keyToDoc.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * 关闭索引：处理完队列中剩余的文档后停止后台线程
+     **/
+    @Override
+    public void close() {
+        closed = true;
+        indexer.interrupt();
+        try {
+            indexer.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        INSTANCES.values().remove(this);
+    }
+
+    private void indexLoop() {
+        load();
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                Document first = closed ? queue.poll() : queue.take();
+                if (first == null) {
+                    return;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+            try {
+                applyBatch(batch);
+            } catch (IOException e) {
+                log.error("写入检索索引失败", e);
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * 批量写盘后一次性更新倒排表，跳过内容未变化的文档
+     **/
+    private void applyBatch(List<Document> batch) throws IOException {
+        List<Document> changed = new ArrayList<>(batch.size());
+        lock.readLock().lock();
+        try {
+            for (Document doc : batch) {
+                Integer existing = keyToDoc.get(doc.getKey());
+                if (existing == null || !Objects.equals(docs.get(existing).contentHash, doc.getContentHash())
+                        || !Objects.equals(docs.get(existing).savedPath, doc.getSavedPath())) {
+                    changed.add(doc);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (Document doc : changed) {
+            if (doc.getBodyText() == null && doc.getBodyHtml() != null) {
+                doc.setBodyText(Jsoup.parse(doc.getBodyHtml()).text());
+                doc.setBodyHtml(null);
+            }
+        }
+        // 多个进程共享输出目录时持有文件锁，整批文档连续写入
+        try (FileOutputStream fos = new FileOutputStream(docsFile, true);
+             FileLock ignored = fos.getChannel().lock()) {
+            // 输出流不随 try 关闭：关闭会连带关闭通道，之后再释放文件锁会抛出 ClosedChannelException
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos));
+            for (Document doc : changed) {
+                writeDoc(out, doc);
+            }
+            out.flush();
+        }
+        // 分词在加锁前完成，写锁只覆盖倒排表更新
+        List<Set<String>> tokens = new ArrayList<>(changed.size());
+        for (Document doc : changed) {
+            tokens.add(tokenize(doc));
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < changed.size(); i++) {
+                addToMemory(changed.get(i), tokens.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("检索索引已更新 {} 篇", changed.size());
+    }
+
+    private void load() {
+        if (docsFile.exists()) {
+            long start = System.currentTimeMillis();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(docsFile)))) {
+                while (true) {
+                    Document doc;
+                    try {
+                        doc = readDoc(in);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    Set<String> tokens = tokenize(doc);
+                    lock.writeLock().lock();
+                    try {
+                        addToMemory(doc, tokens);
+                    } finally {
+                        lock.writeLock().unlock();
+                    }
+                }
+            } catch (IOException e) {
+                log.error("加载检索索引失败: {}", docsFile, e);
+            }
+            log.info("检索索引加载完成: {} 篇，耗时 {}ms", size(), System.currentTimeMillis() - start);
+        }
+        loaded = true;
+    }
+
+    /**
+     * 调用方需持有写锁
+     **/
+    private void addToMemory(Document doc, Set<String> tokens) {
+        int id = docs.size();
+        docs.add(new DocMeta(doc));
+        Integer old = keyToDoc.put(doc.getKey(), id);
+        if (old != null) {
+            deleted.set(old);
+        }
+        for (String token : tokens) {
+            postings.computeIfAbsent(token, t -> new Postings()).add(id);
+        }
+    }
+
+    private static Set<String> tokenize(Document doc) {
+        Set<String> tokens = CjkTokenizer.tokenize(doc.getTitle());
+        tokens.addAll(CjkTokenizer.tokenize(doc.getAuthor()));
+        tokens.addAll(CjkTokenizer.tokenize(doc.getPublishDate()));
+        tokens.addAll(CjkTokenizer.tokenize(doc.getUrl()));
+        tokens.addAll(CjkTokenizer.tokenize(doc.getBodyText()));
+        return tokens;
+    }
+
+    /**
+     * 判断文档是否出现在其余所有倒排表中（倒排表有序，二分查找）
+     **/
+    private static boolean containsAll(List<Postings> lists, int id) {
+        for (int i = 1; i < lists.size(); i++) {
+            Postings p = lists.get(i);
+            if (Arrays.binarySearch(p.ids, 0, p.size, id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int titleScore(String title, Set<String> terms) {
+        Set<String> titleTokens = CjkTokenizer.tokenize(title);
+        int score = 0;
+        for (String term : terms) {
+            if (titleTokens.contains(term)) {
+                score += TITLE_BOOST;
+            }
+        }
+        return score;
+    }
+
+    private static Hit toHit(DocMeta meta, int score) {
+        return Hit.builder().title(meta.title).author(meta.author).publishDate(meta.publishDate)
+                .url(meta.url).savedPath(meta.savedPath).score(score).build();
+    }
+
+    private static void writeDoc(DataOutputStream out, Document doc) throws IOException {
+        writeString(out, doc.getKey());
+        writeString(out, doc.getContentHash());
+        writeString(out, doc.getTitle());
+        writeString(out, doc.getAuthor());
+        writeString(out, doc.getPublishDate());
+        writeString(out, doc.getUrl());
+        writeString(out, doc.getSavedPath());
+        writeString(out, doc.getBodyText());
+    }
+
+    private static Document readDoc(DataInputStream in) throws IOException {
+        return Document.builder()
+                .key(readString(in))
+                .contentHash(readString(in))
+                .title(readString(in))
+                .author(readString(in))
+                .publishDate(readString(in))
+                .url(readString(in))
+                .savedPath(readString(in))
+                .bodyText(readString(in))
+                .build();
+    }
+
+    /**
+     * 长度前缀 + UTF-8 字节（writeUTF 有 64KB 限制，正文可能超出）
+     **/
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,350 @@
+package com.ctgu.service;
+
+import com.ctgu.util.HashUtils;
+import com.ctgu.util.UrlUtils;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 基于共享目录的分布式工作队列，供多台机器（或同一台机器上的多个进程）分摊下载任务。
+ * 每个链接是一个小文件，按状态存放在 pending / leased / done / failed 子目录中，状态转换全部依赖同一文件系统内的
+ * 原子重命名，同一条目只会被一个 worker 领取成功：
+ * <pre>
+ * pending/{key}            等待领取，内容为 链接 与 已尝试次数
+ * leased/{key}@{workerId}  已被领取，文件修改时间即最近一次心跳
+ * done/{key}               已完成
+ * failed/{key}             超过最大尝试次数或文章不存在
+ * </pre>
+ * 持有租约的 worker 定期刷新修改时间；超过租约时长未刷新的条目视为 worker 已退出，由任意 worker 放回 pending。
+ * 各节点的时钟需大致同步（误差远小于租约时长）
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class SharedWorkQueue {
+    private static final String PENDING = "pending";
+    private static final String LEASED = "leased";
+    private static final String DONE = "done";
+    private static final String FAILED = "failed";
+    private static final char OWNER_SEPARATOR = '@';
+
+    /**
+     * 一次领取到的工作
+     **/
+    @Data
+    public static class Lease {
+        private final String key;
+        private final String url;
+        private final int attempts;
+        private final File file;
+        private volatile boolean lost;
+    }
+
+    /**
+     * 队列各状态的条目数
+     **/
+    @Data
+    public static class Stats {
+        private final int pending;
+        private final int leased;
+        private final int done;
+        private final int failed;
+    }
+
+    private final File pendingDir;
+    private final File leasedDir;
+    private final File doneDir;
+    private final File failedDir;
+    private final String workerId;
+    private final long leaseTimeoutMs;
+    private final int maxAttempts;
+    /**
+     * 本 worker 持有的租约
+     **/
+    private final Map<String, Lease> held = new ConcurrentHashMap<>();
+    /**
+     * 上次列目录得到的待领取条目，领完再重新列目录，避免每次领取都扫描整个目录
+     **/
+    private final Deque<String> candidates = new ArrayDeque<>();
+
+    /**
+     * @param dir            共享队列目录，不存在时自动创建
+     * @param workerId       worker 标识，为空时使用 主机名-进程号
+     * @param leaseTimeoutMs 租约时长（毫秒），超过该时间没有心跳的条目会被重新放回队列
+     * @param maxAttempts    每个链接最多尝试次数
+     */
+    public SharedWorkQueue(File dir, String workerId, long leaseTimeoutMs, int maxAttempts) throws IOException {
+        this.pendingDir = ensureDir(new File(dir, PENDING));
+        this.leasedDir = ensureDir(new File(dir, LEASED));
+        this.doneDir = ensureDir(new File(dir, DONE));
+        this.failedDir = ensureDir(new File(dir, FAILED));
+        String id = workerId == null || workerId.trim().isEmpty() ? defaultWorkerId() : workerId.trim();
+        this.workerId = id.replaceAll("[^\\w.-]", "_");
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 按规范化链接加入队列，已在队列中（含已完成、已失败）的链接跳过，可在多个 worker 中重复调用
+     *
+     * @return 新加入的条目数
+     */
+    public int enqueue(Collection<String> urls) throws IOException {
+        Set<String> known = new HashSet<>();
+        for (File dir : Arrays.asList(pendingDir, doneDir, failedDir, leasedDir)) {
+            for (String name : list(dir)) {
+                int at = name.indexOf(OWNER_SEPARATOR);
+                known.add(at > 0 ? name.substring(0, at) : name);
+            }
+        }
+        int added = 0;
+        for (String url : urls) {
+            String canonical = UrlUtils.canonicalize(url.trim());
+            String key = keyOf(canonical);
+            if (!known.add(key)) {
+                continue;
+            }
+            if (writeEntry(new File(pendingDir, key), canonical, 0)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * 领取一个条目
+     *
+     * @return 租约，队列中没有可领取的条目时返回 null
+     */
+    public synchronized Lease claim() throws IOException {
+        for (int round = 0; round < 2; round++) {
+            if (candidates.isEmpty()) {
+                List<String> names = new ArrayList<>(Arrays.asList(list(pendingDir)));
+                // 打乱顺序，减少多个 worker 同时争抢同一条目
+                Collections.shuffle(names);
+                candidates.addAll(names);
+            }
+            String key;
+            while ((key = candidates.poll()) != null) {
+                File pendingFile = new File(pendingDir, key);
+                File leaseFile = new File(leasedDir, key + OWNER_SEPARATOR + workerId);
+                // 重命名保留原修改时间，先刷新待领取文件的修改时间，避免其他 worker 的 requeueExpired 把刚领取的租约当作超时收回
+                if (!pendingFile.setLastModified(System.currentTimeMillis()) || !move(pendingFile, leaseFile)) {
+                    // 已被其他 worker 领取
+                    continue;
+                }
+                List<String> lines;
+                int attempts;
+                try {
+                    lines = Files.readAllLines(leaseFile.toPath(), StandardCharsets.UTF_8);
+                    if (lines.isEmpty()) {
+                        log.warn("队列条目内容为空，已丢弃: {}", key);
+                        Files.deleteIfExists(leaseFile.toPath());
+                        continue;
+                    }
+                    attempts = lines.size() > 1 ? parseAttempts(lines.get(1)) + 1 : 1;
+                    // 回写尝试次数，同时刷新修改时间作为首次心跳；不使用 CREATE，文件已被移走时不会重新生成
+                    Files.write(leaseFile.toPath(), (lines.get(0) + "\n" + attempts + "\n").getBytes(StandardCharsets.UTF_8),
+                            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                } catch (NoSuchFileException e) {
+                    // 移动后立即被其他 worker 收回，视为未领取到
+                    log.debug("租约领取后即被收回: {}", key);
+                    continue;
+                }
+                Lease lease = new Lease(key, lines.get(0), attempts, leaseFile);
+                held.put(key, lease);
+                return lease;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 刷新本 worker 持有的所有租约，返回已丢失（被其他 worker 回收）的租约数
+     **/
+    public int heartbeat() {
+        long now = System.currentTimeMillis();
+        int lostCount = 0;
+        for (Lease lease : held.values()) {
+            if (!lease.getFile().setLastModified(now)) {
+                lease.setLost(true);
+                held.remove(lease.getKey());
+                lostCount++;
+                log.warn("租约已丢失（心跳超时被回收）: {}", lease.getUrl());
+            }
+        }
+        return lostCount;
+    }
+
+    /**
+     * 把超过租约时长没有心跳的条目放回待领取队列
+     *
+     * @return 回收的条目数
+     */
+    public int requeueExpired() {
+        long deadline = System.currentTimeMillis() - leaseTimeoutMs;
+        int requeued = 0;
+        for (String name : list(leasedDir)) {
+            File file = new File(leasedDir, name);
+            long modified = file.lastModified();
+            int at = name.indexOf(OWNER_SEPARATOR);
+            if (modified == 0 || modified >= deadline || at <= 0) {
+                continue;
+            }
+            try {
+                if (move(file, new File(pendingDir, name.substring(0, at)))) {
+                    requeued++;
+                    log.info("回收超时租约: {}（worker {}）", name.substring(0, at), name.substring(at + 1));
+                }
+            } catch (IOException e) {
+                log.warn("回收超时租约失败: {}", name, e);
+            }
+        }
+        return requeued;
+    }
+
+    /**
+     * 标记完成
+     *
+     * @return 租约仍有效时返回 true；租约已被回收时返回 false（该条目会被其他 worker 重新处理）
+     */
+    public boolean complete(Lease lease) throws IOException {
+        held.remove(lease.getKey());
+        return finish(lease, new File(doneDir, lease.getKey()));
+    }
+
+    /**
+     * 标记失败：可重试且未超过最大尝试次数时放回队列，否则移入 failed
+     *
+     * @param retryable 是否值得重试（如网络错误、限流；文章不存在时不重试）
+     */
+    public boolean fail(Lease lease, String error, boolean retryable) throws IOException {
+        held.remove(lease.getKey());
+        if (retryable && lease.getAttempts() < maxAttempts) {
+            return finish(lease, new File(pendingDir, lease.getKey()));
+        }
+        File target = new File(failedDir, lease.getKey());
+        if (!finish(lease, target)) {
+            return false;
+        }
+        String content = lease.getUrl() + "\n" + lease.getAttempts() + "\n" + (error == null ? "" : error.replace('\n', ' ')) + "\n";
+        Files.write(target.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(list(pendingDir).length, list(leasedDir).length, list(doneDir).length, list(failedDir).length);
+    }
+
+    public int getHeldCount() {
+        return held.size();
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public long getLeaseTimeoutMs() {
+        return leaseTimeoutMs;
+    }
+
+    private boolean finish(Lease lease, File target) throws IOException {
+        if (lease.isLost() || !move(lease.getFile(), target)) {
+            log.warn("租约已被回收，结果仍已保存，条目将由其他 worker 重新处理: {}", lease.getUrl());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 先写临时文件再原子重命名，其他 worker 不会读到写了一半的条目
+     **/
+    private boolean writeEntry(File target, String url, int attempts) throws IOException {
+        Path tmp = new File(target.getParentFile(), "." + target.getName() + "." + UUID.randomUUID() + ".tmp").toPath();
+        Files.write(tmp, (url + "\n" + attempts + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(tmp, target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            Files.deleteIfExists(tmp);
+            return false;
+        }
+    }
+
+    /**
+     * 原子重命名，源文件已不存在（被其他 worker 抢先处理）时返回 false
+     **/
+    private static boolean move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (AtomicMoveNotSupportedException e) {
+            throw new IOException("共享目录不支持原子重命名: " + from.getParent(), e);
+        }
+    }
+
+    /**
+     * 列出目录中的条目，忽略写入中的临时文件
+     **/
+    private static String[] list(File dir) {
+        String[] names = dir.list((d, name) -> !name.startsWith("."));
+        return names != null ? names : new String[0];
+    }
+
+    /**
+     * 文章使用文章 ID 作为键，其他链接（主页、专栏）使用链接摘要
+     **/
+    static String keyOf(String canonicalUrl) {
+        String id = UrlUtils.extractArticleId(canonicalUrl);
+        return id != null ? id : "u" + HashUtils.sha256Hex(canonicalUrl).substring(0, 24);
+    }
+
+    private static int parseAttempts(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static File ensureDir(File dir) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建队列目录: " + dir);
+        }
+        return dir;
+    }
+
+    private static String defaultWorkerId() {
+        // RuntimeMXBean 名称格式为 进程号@主机名
+        String name = ManagementFactory.getRuntimeMXBean().getName();
+        int at = name.indexOf('@');
+        return at > 0 ? name.substring(at + 1) + "-" + name.substring(0, at) : name;
+    }
+}
@@ -0,0 +1,297 @@
+package com.ctgu.service;
+
+import com.ctgu.util.UrlUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 监听目录持续导入链接：用 WatchService 监听目录中链接文件的新增与追加，只读取上次之后新写入的完整行，
+ * 链接规范化并去重后交给调用方（守护进程中直接加入常驻任务），无需每次重新发起批量下载。
+ * 启动时从头读取目录中已有的文件，已成功下载过的文章由调用方根据下载日志跳过，进程异常退出也不会丢失链接；
+ * 文件被截断或替换时从头读取：替换通过文件标识（inode，无 inode 的系统用创建时间）与文件开头内容识别，
+ * 新文件不短于旧文件时也能发现。部分网络文件系统不产生事件，因此每隔几秒还会检查一次文件
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class WatchFolderIngest implements Runnable {
+    private static final long RESCAN_SECONDS = 5;
+    /**
+     * 默认最多记住的已导入链接数，超出后忘记最早的链接（再次出现时交给调用方，由下载日志判断是否跳过）
+     **/
+    private static final int DEFAULT_MAX_SEEN = 100_000;
+    /**
+     * 记录文件开头的字节数，用于识别内容被整体替换的文件
+     **/
+    private static final int HEAD_BYTES = 256;
+
+    private final File dir;
+    private final Consumer<String> sink;
+    private final WatchService watcher;
+    /**
+     * 文件名 -> 读取进度
+     **/
+    private final Map<String, FileState> files = new ConcurrentHashMap<>();
+    /**
+     * 最近导入的链接（文章 ID 或规范化链接），按导入顺序淘汰，只在持有本对象锁时访问
+     **/
+    private final Set<String> seen;
+    private volatile boolean running = true;
+    private long acceptedCount = 0;
+
+    /**
+     * 单个链接文件的读取进度
+     **/
+    private static final class FileState {
+        /**
+         * 文件标识：inode 等 fileKey，不支持时为创建时间
+         **/
+        private final Object identity;
+        /**
+         * 已读取的字节数（只计完整的行）
+         **/
+        private long offset;
+        /**
+         * 已读取部分开头的最多 HEAD_BYTES 字节
+         **/
+        private byte[] head = new byte[0];
+
+        private FileState(Object identity) {
+            this.identity = identity;
+        }
+    }
+
+    /**
+     * @param dir  监听的目录，不存在时自动创建
+     * @param sink 接收规范化、去重后的链接，在监听线程中调用
+     */
+    public WatchFolderIngest(File dir, Consumer<String> sink) throws IOException {
+        this(dir, sink, DEFAULT_MAX_SEEN);
+    }
+
+    /**
+     * @param maxSeen 最多记住的已导入链接数
+     */
+    WatchFolderIngest(File dir, Consumer<String> sink, int maxSeen) throws IOException {
+        this.seen = Collections.newSetFromMap(new LinkedHashMap<String, Boolean>(256, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxSeen;
+            }
+        });
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("无法创建监听目录: " + dir);
+        }
+        this.dir = dir;
+        this.sink = sink;
+        this.watcher = FileSystems.getDefault().newWatchService();
+        dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    /**
+     * 在新线程中开始监听
+     **/
+    public Thread start() {
+        Thread thread = new Thread(this, "watch-ingest");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            log.debug("关闭目录监听失败", e);
+        }
+    }
+
+    public File getDir() {
+        return dir;
+    }
+
+    public synchronized long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    @Override
+    public void run() {
+        log.info("开始监听链接目录: {}", dir.getAbsolutePath());
+        // 先导入启动前已有的内容
+        scanAll();
+        while (running) {
+            WatchKey key;
+            try {
+                key = watcher.poll(RESCAN_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ClosedWatchServiceException e) {
+                break;
+            }
+            if (key == null) {
+                scanAll();
+                continue;
+            }
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    scanAll();
+                } else {
+                    readNewLines(dir.toPath().resolve((Path) event.context()).toFile());
+                }
+            }
+            if (!key.reset()) {
+                log.error("监听目录已不可用，停止导入: {}", dir.getAbsolutePath());
+                break;
+            }
+        }
+        log.info("已停止监听链接目录: {}，共导入 {} 个链接", dir.getAbsolutePath(), getAcceptedCount());
+    }
+
+    /**
+     * 读取目录中所有链接文件的新内容，并清理已删除文件的读取进度
+     **/
+    synchronized void scanAll() {
+        File[] found = dir.listFiles(WatchFolderIngest::isUrlFile);
+        if (found == null) {
+            return;
+        }
+        Set<String> names = new HashSet<>();
+        for (File file : found) {
+            names.add(file.getName());
+            readNewLines(file);
+        }
+        files.keySet().retainAll(names);
+    }
+
+    /**
+     * 读取文件中上次位置之后的完整行，最后一行没有换行符时视为仍在写入，留到下次读取；
+     * 文件变短、标识变化或开头内容变化时视为新文件，从头读取
+     **/
+    private synchronized void readNewLines(File file) {
+        if (!isUrlFile(file)) {
+            return;
+        }
+        String name = file.getName();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+            Object identity = attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+            long length = raf.length();
+            FileState state = files.get(name);
+            if (state != null && (!Objects.equals(state.identity, identity) || length < state.offset || !sameHead(raf, state.head))) {
+                log.info("链接文件被截断或替换，从头读取: {}", name);
+                state = null;
+            }
+            if (state == null) {
+                state = new FileState(identity);
+                files.put(name, state);
+            }
+            if (length == state.offset) {
+                return;
+            }
+            raf.seek(state.offset);
+            ByteArrayOutputStream line = new ByteArrayOutputStream(256);
+            byte[] buffer = new byte[8192];
+            long position = state.offset;
+            int n;
+            while ((n = raf.read(buffer)) > 0) {
+                for (int i = 0; i < n; i++) {
+                    position++;
+                    if (buffer[i] == '\n') {
+                        accept(new String(line.toByteArray(), StandardCharsets.UTF_8));
+                        line.reset();
+                        state.offset = position;
+                    } else {
+                        line.write(buffer[i]);
+                    }
+                }
+            }
+            if (state.head.length < HEAD_BYTES && state.offset > state.head.length) {
+                state.head = new byte[(int) Math.min(HEAD_BYTES, state.offset)];
+                raf.seek(0);
+                raf.readFully(state.head);
+            }
+        } catch (NoSuchFileException | FileNotFoundException e) {
+            // 读取前文件已被删除或改名
+            files.remove(name);
+        } catch (IOException e) {
+            log.warn("读取链接文件失败: {}", file, e);
+        }
+    }
+
+    /**
+     * 文件开头是否仍是上次读取时的内容
+     **/
+    private static boolean sameHead(RandomAccessFile raf, byte[] head) throws IOException {
+        if (head.length == 0) {
+            return true;
+        }
+        if (raf.length() < head.length) {
+            return false;
+        }
+        byte[] current = new byte[head.length];
+        raf.seek(0);
+        raf.readFully(current);
+        return Arrays.equals(head, current);
+    }
+
+    private void accept(String line) {
+        String url = line.trim();
+        if (url.startsWith("\uFEFF")) {
+            url = url.substring(1).trim();
+        }
+        if (url.isEmpty() || url.startsWith("#")) {
+            return;
+        }
+        if (!UrlUtils.isArticleUrl(url) && !ArticleDiscoverer.isListingUrl(url)) {
+            log.debug("忽略无效链接: {}", url);
+            return;
+        }
+        String canonical = UrlUtils.canonicalize(url);
+        if (!seen.add(DownloadJournal.keyOf(canonical, null))) {
+            return;
+        }
+        acceptedCount++;
+        try {
+            sink.accept(canonical);
+        } catch (RuntimeException e) {
+            log.warn("导入链接失败: {}", canonical, e);
+        }
+    }
+
+    /**
+     * 链接文件：普通文件，忽略隐藏文件与写入中的临时文件
+     **/
+    private static boolean isUrlFile(File file) {
+        String name = file.getName();
+        return !name.startsWith(".") && !name.endsWith(".tmp") && !name.endsWith(".part") && file.isFile();
+    }
+}
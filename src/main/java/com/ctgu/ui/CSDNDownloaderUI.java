@@ -1,22 +1,40 @@
 package com.ctgu.ui;
 
 import com.ctgu.entity.DownloadResult;
+import com.ctgu.service.ArticleDiscoverer;
+import com.ctgu.service.ArticleSaver;
+import com.ctgu.service.BatchDownloadEngine;
 import com.ctgu.service.CSDNDownloader;
+import com.ctgu.service.CookieSessionManager;
+import com.ctgu.service.DownloadJournal;
+import com.ctgu.service.DownloadScheduler;
+import com.ctgu.service.EpubExporter;
+import com.ctgu.service.LinkPreflight;
+import com.ctgu.service.PdfRenderService;
+import com.ctgu.service.RecordExporter;
+import com.ctgu.service.SearchIndex;
+import com.ctgu.util.LogProfile;
+import com.ctgu.util.UrlUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 
 import javax.swing.*;
+import javax.swing.Timer;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -34,6 +52,8 @@ public class CSDNDownloaderUI extends JFrame {
     private JButton clearButton;
     private JButton loadFromFileButton;
     private JButton cookieSettingButton;
+    private JButton appendButton;
+    private JComboBox<DownloadScheduler.Priority> priorityComboBox;
     private JTable pendingTable;
     private JTable completedTable;
     private JProgressBar progressBar;
@@ -42,28 +62,49 @@ public class CSDNDownloaderUI extends JFrame {
     private JLabel pathLabel;
     private JTabbedPane tabbedPane;
     private JCheckBox autoPdfCheckBox;
+    private JCheckBox markdownCheckBox;
     // 数据模型
-    private DefaultTableModel pendingModel;
+    private ProgressTableModel pendingModel;
     private DefaultTableModel completedModel;
+    private DefaultTableModel searchModel;
     // 下载状态
     private List<String> pendingUrls = new ArrayList<>();
+    private Set<String> queuedUrls = new HashSet<>();
     private List<DownloadResult> completedDownloads = Collections.synchronizedList(new ArrayList<>());
     private Map<String, String> downloadStatusMap = Collections.synchronizedMap(new HashMap<>());
+    /**
+     * 下载线程处理完成的文章（行号 -> 结果），由界面刷新定时器批量取出
+     **/
+    private final Queue<Map.Entry<Integer, DownloadResult>> finishedQueue = new ConcurrentLinkedQueue<>();
     // 线程控制
-    private ExecutorService executorService;
-    private List<Future<DownloadResult>> futures = new ArrayList<>();
+    private DownloadScheduler downloadScheduler;
+    private BatchDownloadEngine batchEngine;
+    private ArticleSaver articleSaver;
     private volatile boolean isDownloading = false;
     private AtomicInteger completedCount = new AtomicInteger(0);
     private AtomicInteger successCount = new AtomicInteger(0);
     private AtomicInteger failCount = new AtomicInteger(0);
     private AtomicInteger notFoundCount = new AtomicInteger(0);
+    private AtomicInteger discoveryRunning = new AtomicInteger(0);
+    private ArticleDiscoverer articleDiscoverer;
     private final String softVersion = "0.5";
     // 自定义配置
     private final String configFileName = "config.properties";
     private String savePath;
     private int maxConcurrentDownloads = 6;
+    /**
+     * 单主机并发上限，0 表示与并发下载数相同
+     **/
+    private int maxPerHostDownloads = 0;
     private long delayBetweenDownloads = 1500;
+    private boolean markdownExport = false;
+    private boolean pdfBoundedMemory = false;
     private final int DEFAULT_FONT_SIZE = 16;
+    private static final int SEARCH_LIMIT = 200;
+    /**
+     * 下载进度刷新间隔：下载线程只更新状态，界面按此间隔合并刷新
+     **/
+    private static final int UI_REFRESH_MS = 100;
 
     public CSDNDownloaderUI() {
         loadConfig();
@@ -100,20 +141,32 @@ public class CSDNDownloaderUI extends JFrame {
         downloadButton = createStyledButton("开始下载", new Color(0, 120, 215), Color.WHITE);
         stopButton = createStyledButton("停止下载", new Color(220, 53, 69), Color.WHITE);
         stopButton.setEnabled(false);
+        appendButton = new JButton("追加任务");
+        appendButton.setEnabled(false);
+        appendButton.setToolTipText("下载进行中时，将输入框中的新链接按所选优先级加入当前任务");
+        priorityComboBox = new JComboBox<>(DownloadScheduler.Priority.values());
+        priorityComboBox.setSelectedItem(DownloadScheduler.Priority.NORMAL);
+        priorityComboBox.setToolTipText("任务优先级，高优先级任务优先调度");
         clearButton = new JButton("清空列表");
         loadFromFileButton = new JButton("导入文件");
         autoPdfCheckBox = new JCheckBox("同时生成PDF");
         autoPdfCheckBox.setSelected(true);
+        markdownCheckBox = new JCheckBox("同时生成Markdown");
+        markdownCheckBox.setSelected(markdownExport);
         cookieSettingButton = new JButton("设置Cookie (解决登录限制)");
         cookieSettingButton.setForeground(new Color(0, 100, 0));
         cookieSettingButton.setToolTipText("点击设置浏览器Cookie以下载付费/粉丝可见文章");
         actionPanel.add(downloadButton);
         actionPanel.add(stopButton);
+        actionPanel.add(appendButton);
+        actionPanel.add(new JLabel("优先级:"));
+        actionPanel.add(priorityComboBox);
         actionPanel.add(Box.createHorizontalStrut(20));
         actionPanel.add(clearButton);
         actionPanel.add(loadFromFileButton);
         actionPanel.add(cookieSettingButton);
         actionPanel.add(autoPdfCheckBox);
+        actionPanel.add(markdownCheckBox);
         topPanel.add(scrollPane, BorderLayout.CENTER);
         topPanel.add(actionPanel, BorderLayout.SOUTH);
         // 2. 中间面板 (TabbedPane)
@@ -126,6 +179,8 @@ public class CSDNDownloaderUI extends JFrame {
         // Tab 2: 已完成记录
         JPanel completedPanel = createTablePanel("completed");
         tabbedPane.addTab(" 下载完成历史 ", null, completedPanel, "查看下载成功的历史记录");
+        // Tab 3: 归档全文检索
+        tabbedPane.addTab(" 归档搜索 ", null, createSearchPanel(), "按标题、正文、作者或日期检索已下载的文章");
         // 3. 底部面板 (状态栏)
         JPanel bottomPanel = new JPanel(new BorderLayout(5, 5));
         bottomPanel.setBorder(new EmptyBorder(5, 10, 5, 10));
@@ -151,6 +206,7 @@ public class CSDNDownloaderUI extends JFrame {
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
         add(mainPanel);
         setupEventListeners();
+        new Timer(UI_REFRESH_MS, e -> refreshProgress()).start();
     }
 
     private JButton createStyledButton(String text, Color bg, Color fg) {
@@ -165,16 +221,10 @@ public class CSDNDownloaderUI extends JFrame {
 
     private JPanel createTablePanel(String type) {
         JPanel panel = new JPanel(new BorderLayout());
-        DefaultTableModel model;
+        TableModel model;
         JTable table;
         if ("pending".equals(type)) {
-            String[] cols = {"序号", "文章链接", "当前状态", "进度", "详细信息"};
-            pendingModel = new DefaultTableModel(cols, 0) {
-                @Override
-                public boolean isCellEditable(int row, int col) {
-                    return false;
-                }
-            };
+            pendingModel = new ProgressTableModel();
             model = pendingModel;
             table = new JTable(model);
             table.getColumnModel().getColumn(0).setMaxWidth(60);
@@ -213,17 +263,143 @@ public class CSDNDownloaderUI extends JFrame {
         return panel;
     }
 
+    /**
+     * 归档搜索面板：输入停顿 300ms 或回车后在后台检索，双击结果打开本地 HTML
+     **/
+    private JPanel createSearchPanel() {
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.setBorder(new EmptyBorder(5, 5, 5, 5));
+        JTextField queryField = new JTextField();
+        queryField.setFont(new Font("微软雅黑", Font.PLAIN, DEFAULT_FONT_SIZE));
+        queryField.setToolTipText("输入关键词，多个关键词用空格分隔，需全部命中");
+        JLabel resultLabel = new JLabel(" ");
+        String[] cols = {"文章标题", "作者", "发布日期", "本地路径"};
+        searchModel = new DefaultTableModel(cols, 0) {
+            @Override
+            public boolean isCellEditable(int row, int col) {
+                return false;
+            }
+        };
+        JTable table = new JTable(searchModel);
+        table.setRowHeight(30);
+        table.setFont(new Font("微软雅黑", Font.PLAIN, DEFAULT_FONT_SIZE));
+        table.getTableHeader().setFont(new Font("微软雅黑", Font.BOLD, DEFAULT_FONT_SIZE));
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getColumnModel().getColumn(1).setMaxWidth(200);
+        table.getColumnModel().getColumn(2).setMaxWidth(140);
+        Timer debounce = new Timer(300, e -> runSearch(queryField.getText(), resultLabel));
+        debounce.setRepeats(false);
+        queryField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                debounce.restart();
+            }
+        });
+        queryField.addActionListener(e -> {
+            debounce.stop();
+            runSearch(queryField.getText(), resultLabel);
+        });
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.getSelectedRow();
+                if (e.getClickCount() == 2 && row >= 0) {
+                    openArchivedFile((String) searchModel.getValueAt(row, 3));
+                }
+            }
+        });
+        JPanel queryPanel = new JPanel(new BorderLayout(10, 0));
+        queryPanel.add(new JLabel("关键词:"), BorderLayout.WEST);
+        queryPanel.add(queryField, BorderLayout.CENTER);
+        queryPanel.add(resultLabel, BorderLayout.EAST);
+        panel.add(queryPanel, BorderLayout.NORTH);
+        JScrollPane sp = new JScrollPane(table);
+        sp.getViewport().setBackground(Color.WHITE);
+        panel.add(sp, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void runSearch(String query, JLabel resultLabel) {
+        if (query.trim().isEmpty()) {
+            searchModel.setRowCount(0);
+            resultLabel.setText(" ");
+            return;
+        }
+        SearchIndex index = SearchIndex.forDirectory(new File(savePath));
+        new SwingWorker<List<SearchIndex.Hit>, Void>() {
+            @Override
+            protected List<SearchIndex.Hit> doInBackground() {
+                return index.search(query, SEARCH_LIMIT);
+            }
+
+            @Override
+            protected void done() {
+                List<SearchIndex.Hit> hits;
+                try {
+                    hits = get();
+                } catch (Exception e) {
+                    log.error("检索失败", e);
+                    return;
+                }
+                searchModel.setRowCount(0);
+                for (SearchIndex.Hit hit : hits) {
+                    searchModel.addRow(new Object[]{hit.getTitle(), hit.getAuthor(), hit.getPublishDate(), hit.getSavedPath() + ".html"});
+                }
+                resultLabel.setText(index.isLoaded() ? "共 " + hits.size() + " 条" : "索引加载中...");
+            }
+        }.execute();
+    }
+
+    private void openArchivedFile(String path) {
+        File file = new File(path);
+        if (!file.exists()) {
+            JOptionPane.showMessageDialog(this, "文件不存在: " + path, "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        try {
+            Desktop.getDesktop().open(file);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.error("打开文件失败: {}", path, e);
+            JOptionPane.showMessageDialog(this, "打开文件失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
     private void initData() {
         File saveDir = new File(savePath);
         if (!saveDir.exists()) {
             saveDir.mkdirs();
         }
-        executorService = Executors.newFixedThreadPool(maxConcurrentDownloads);
+        if (downloadScheduler == null) {
+            downloadScheduler = new DownloadScheduler(maxConcurrentDownloads, maxPerHostDownloads);
+        }
     }
 
     private void setupEventListeners() {
         downloadButton.addActionListener(e -> startDownload());
+        autoPdfCheckBox.addItemListener(e -> {
+            if (articleSaver != null) {
+                articleSaver.setPdfEnabled(autoPdfCheckBox.isSelected());
+                preparePdfRenderer();
+            }
+        });
+        markdownCheckBox.addItemListener(e -> {
+            markdownExport = markdownCheckBox.isSelected();
+            if (batchEngine != null) {
+                batchEngine.getDownloader().setMarkdownEnabled(markdownExport);
+            }
+        });
         stopButton.addActionListener(e -> stopDownload());
+        appendButton.addActionListener(e -> appendDownload());
         clearButton.addActionListener(e -> clearInput());
         loadFromFileButton.addActionListener(e -> importUrlsFromFile());
         cookieSettingButton.addActionListener(e -> setupCookie());
@@ -239,19 +415,22 @@ public class CSDNDownloaderUI extends JFrame {
             return;
         }
         // 初始化
-        pendingModel.setRowCount(0);
+        pendingModel.clear();
         completedModel.setRowCount(0);
         pendingUrls.clear();
+        queuedUrls.clear();
+        List<String> listingUrls = new ArrayList<>();
         String[] lines = inputText.split("\n");
-        int idx = 1;
         for (String line : lines) {
             line = line.trim();
             if (isValidCsdnUrl(line)) {
-                pendingUrls.add(line);
-                pendingModel.addRow(new Object[]{idx++, line, "等待中", "0%", ""});
+                addPendingUrl(line);
+            } else if (isListingUrl(line)) {
+                // 博主主页 / 专栏 / 列表页：先发现文章再下载
+                listingUrls.add(line);
             }
         }
-        if (pendingUrls.isEmpty()) {
+        if (pendingUrls.isEmpty() && listingUrls.isEmpty()) {
             JOptionPane.showMessageDialog(this, "没有有效的CSDN链接");
             return;
         }
@@ -259,71 +438,165 @@ public class CSDNDownloaderUI extends JFrame {
         isDownloading = true;
         downloadButton.setEnabled(false);
         stopButton.setEnabled(true);
+        appendButton.setEnabled(true);
         tabbedPane.setSelectedIndex(0);
         // 调用下载处理方法
-        executeBatchDownload();
+        if (executeBatchDownload()) {
+            startDiscovery(listingUrls);
+        }
+    }
+
+    /**
+     * 将文章链接加入待下载列表（按规范化后的链接去重）
+     *
+     * @return 是否为新链接
+     */
+    private boolean addPendingUrl(String url) {
+        if (!queuedUrls.add(UrlUtils.canonicalize(url))) {
+            return false;
+        }
+        pendingUrls.add(url);
+        pendingModel.addRow(url);
+        return true;
+    }
+
+    /**
+     * 在后台从主页/专栏/列表页发现文章，发现一篇即追加到正在运行的批量任务中
+     **/
+    private void startDiscovery(List<String> listingUrls) {
+        if (listingUrls.isEmpty()) {
+            return;
+        }
+        if (articleDiscoverer == null) {
+            articleDiscoverer = new ArticleDiscoverer(batchEngine.getDownloader());
+        }
+        for (String listingUrl : listingUrls) {
+            discoveryRunning.incrementAndGet();
+            statusLabel.setText("正在发现文章: " + listingUrl);
+            articleDiscoverer.discover(listingUrl, url -> SwingUtilities.invokeLater(() -> {
+                if (isDownloading && addPendingUrl(url)) {
+                    progressBar.setMaximum(pendingUrls.size());
+                    batchEngine.submit(pendingUrls.size() - 1, url, DownloadScheduler.Priority.NORMAL);
+                }
+            })).whenComplete((count, e) -> SwingUtilities.invokeLater(() -> {
+                if (e != null) {
+                    log.error("文章发现失败: {}", listingUrl, e);
+                }
+                discoveryRunning.decrementAndGet();
+                checkBatchFinished();
+            }));
+        }
+    }
+
+    /**
+     * 下载进行中追加任务：输入框中尚未入队的链接按所选优先级加入当前批次，无需重新开始
+     **/
+    private void appendDownload() {
+        if (!isDownloading) {
+            return;
+        }
+        DownloadScheduler.Priority priority = (DownloadScheduler.Priority) priorityComboBox.getSelectedItem();
+        List<String> listingUrls = new ArrayList<>();
+        int added = 0;
+        for (String line : urlTextArea.getText().split("\n")) {
+            line = line.trim();
+            if (isValidCsdnUrl(line)) {
+                if (addPendingUrl(line)) {
+                    batchEngine.submit(pendingUrls.size() - 1, line, priority);
+                    added++;
+                }
+            } else if (isListingUrl(line)) {
+                listingUrls.add(line);
+            }
+        }
+        progressBar.setMaximum(pendingUrls.size());
+        startDiscovery(listingUrls);
+        statusLabel.setText(String.format("已追加 %d 个任务（优先级：%s）", added, priority));
+    }
+
+    /**
+     * 勾选生成 PDF 时才加载渲染器，并在后台预热字体与样式，与首批文章的下载同时进行
+     **/
+    private void preparePdfRenderer() {
+        if (autoPdfCheckBox.isSelected()) {
+            PdfRenderService.getInstance().setBoundedMemory(pdfBoundedMemory);
+            PdfRenderService.getInstance().prewarmAsync();
+        }
     }
 
     /**
      * 批量下载任务调度逻辑
+     *
+     * @return 是否成功启动
      **/
-    private void executeBatchDownload() {
-        int total = pendingUrls.size();
-        progressBar.setMaximum(total);
+    private boolean executeBatchDownload() {
+        progressBar.setMaximum(pendingUrls.size());
         progressBar.setValue(0);
         // 初始化完成计数器
         completedCount.set(0);
+        finishedQueue.clear();
         // 创建单例 Downloader (避免循环内 new)
         CSDNDownloader downloader = new CSDNDownloader();
-        // 遍历任务，提交到线程池
-        for (int i = 0; i < total; i++) {
-            final int index = i;
-            final String url = pendingUrls.get(i);
-            // 提交任务到 ExecutorService (实现真正的并发)
-            executorService.submit(() -> {
-                if (!isDownloading) {
-                    // 响应停止按钮
-                    return;
-                }
-                // 1. 更新状态：开始下载
-                SwingUtilities.invokeLater(() -> {
-                    updatePendingTable(index, "下载中", "30%", "正在获取内容...");
-                });
+        downloader.setMarkdownEnabled(markdownExport);
+        if (autoPdfCheckBox.isSelected()) {
+            PdfRenderService.getInstance().configureResources(downloader);
+        }
+        closeArticleSaver();
+        try {
+            articleSaver = new ArticleSaver(savePath, downloader.getOutputLayout());
+        } catch (IOException e) {
+            log.error("打开输出目录失败", e);
+            JOptionPane.showMessageDialog(this, "打开输出目录失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            stopDownload();
+            return false;
+        }
+        articleSaver.setPdfEnabled(autoPdfCheckBox.isSelected());
+        preparePdfRenderer();
+        batchEngine = new BatchDownloadEngine(downloader, articleSaver, downloadScheduler, delayBetweenDownloads, new BatchDownloadEngine.Listener() {
+            @Override
+            public void onStart(int index, String url) {
+                // 1. 更新状态：开始下载（只写入行状态，由定时器统一刷新界面）
+                pendingModel.setStage(index, ProgressTableModel.Stage.DOWNLOADING);
                 //使用 downloadStatusMap 记录当前 URL 正在处理
                 downloadStatusMap.put(url, "Downloading");
-                // 2. 执行下载 (耗时 IO)
-                DownloadResult result = downloader.downloadArticle(url);
+            }
+
+            @Override
+            public void onSave(int index, DownloadResult result) {
+                downloadStatusMap.put(result.getUrl(), "Success");
+                pendingModel.setStage(index, ProgressTableModel.Stage.SAVING);
+            }
+
+            @Override
+            public void onComplete(int index, DownloadResult result) {
                 // 将结果存入 completedDownloads 列表（用于后续导出等功能）
                 completedDownloads.add(result);
-                // 3. 处理结果
+                if (!result.isSuccess()) {
+                    downloadStatusMap.put(result.getUrl(), result.getHttpStatus() == 404 ? "NotFound" : "Failed");
+                }
                 if (result.isSuccess()) {
-                    downloadStatusMap.put(url, "Success");
-                    SwingUtilities.invokeLater(() -> updatePendingTable(index, "处理中", "80%", "生成文件..."));
-                    // 保存文件 (包含PDF 生成)
-                    saveHtmlFile(result, index + 1);
+                    pendingModel.setStage(index, ProgressTableModel.Stage.DONE);
                 } else {
-                    downloadStatusMap.put(url, result.getHttpStatus() == 404 ? "NotFound" : "Failed");
+                    pendingModel.setStage(index, ProgressTableModel.Stage.FAILED, result.getError());
                 }
-                // 4. 延时 (遵守 config.properties 的 delay.ms，防止封 IP)
-                // 注意：并发环境下，这个延时是针对每个线程的，不是全局串行
-                try {
-                    Thread.sleep(delayBetweenDownloads);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-                // 5. 更新最终 UI
-                SwingUtilities.invokeLater(() -> {
-                    updatePendingTable(index, result.isSuccess() ? "完成" : "失败", "100%", result.isSuccess() ? "成功" : result.getError());
-                    updateCompletedTable(result, index + 1);
-                    int current = completedCount.incrementAndGet();
-                    progressBar.setValue(current);
-                    statusLabel.setText(String.format("进度: %d / %d", current, total));
-                    // 检查是否全部完成
-                    if (current == total) {
-                        finishDownload();
-                    }
-                });
-            });
+                // 已下载列表与进度条由定时器批量更新
+                finishedQueue.offer(new AbstractMap.SimpleImmutableEntry<>(index, result));
+            }
+        });
+        // 遍历任务，提交到调度器
+        DownloadScheduler.Priority priority = (DownloadScheduler.Priority) priorityComboBox.getSelectedItem();
+        for (int i = 0; i < pendingUrls.size(); i++) {
+            batchEngine.submit(i, pendingUrls.get(i), priority);
+        }
+        return true;
+    }
+
+    /**
+     * 检查是否全部完成：所有已入队文章下载完毕且没有仍在运行的文章发现任务
+     **/
+    private void checkBatchFinished() {
+        if (isDownloading && discoveryRunning.get() == 0 && completedCount.get() == pendingUrls.size()) {
+            finishDownload();
         }
     }
 
@@ -331,73 +604,76 @@ public class CSDNDownloaderUI extends JFrame {
         isDownloading = false;
         downloadButton.setEnabled(true);
         stopButton.setEnabled(false);
+        appendButton.setEnabled(false);
         statusLabel.setText("任务已完成");
-        JOptionPane.showMessageDialog(this, "批量下载任务已完成！");
+        String summary = "批量下载任务已完成！";
+        if (articleSaver != null) {
+            summary += String.format("\n新增: %d 篇 | 已更新: %d 篇 | 未变化: %d 篇",
+                    articleSaver.getNewCount(), articleSaver.getUpdatedCount(), articleSaver.getUnchangedCount());
+        }
+        JOptionPane.showMessageDialog(this, summary);
         // 自动跳到“已下载”标签页查看结果
         tabbedPane.setSelectedIndex(1);
     }
 
-    private void updatePendingTable(int row, String status, String progress, String msg) {
-        SwingUtilities.invokeLater(() -> {
-            if (row < pendingModel.getRowCount()) {
-                pendingModel.setValueAt(status, row, 2);
-                pendingModel.setValueAt(progress, row, 3);
-                pendingModel.setValueAt(msg, row, 4);
-            }
-        });
+    /**
+     * 定时在界面线程合并刷新：发布待下载列表的状态变化，取出已完成的文章加入已下载列表并更新进度
+     **/
+    private void refreshProgress() {
+        pendingModel.publish();
+        Map.Entry<Integer, DownloadResult> finished = finishedQueue.poll();
+        if (finished == null) {
+            return;
+        }
+        int current = completedCount.get();
+        while (finished != null) {
+            updateCompletedTable(finished.getValue(), finished.getKey() + 1);
+            current = completedCount.incrementAndGet();
+            finished = finishedQueue.poll();
+        }
+        progressBar.setValue(current);
+        statusLabel.setText(String.format("进度: %d / %d", current, pendingUrls.size()));
+        checkBatchFinished();
     }
 
     private void updateCompletedTable(DownloadResult result, int index) {
         String status = result.isSuccess() ? "成功" : "失败";
         String size = result.getContentLength() > 0 ? String.format("%.1f KB", result.getContentLength() / 1024.0) : "0";
-        String path = result.isSuccess() ? savePath : "-";
+        String path = result.isSuccess() && result.getSavedPath() != null ? result.getSavedPath() : "-";
         // 如果有特殊标记
         if (result.getTitle() != null && result.getTitle().startsWith("[需关注]")) {
             status = "限制内容(已尝试破解)";
+        } else if (result.getSaveStatus() != null) {
+            status = result.getSaveStatus().getLabel();
         }
         completedModel.addRow(new Object[]{index, result.getTitle(), status, size, result.getDownloadTime() + "ms", path});
-        // 如果成功，保存文件
-        if (result.isSuccess()) {
-            saveHtmlFile(result, index);
-        }
     }
 
-    private void saveHtmlFile(DownloadResult result, int index) {
-        try {
-            File baseDir = new File(savePath);
-            if (!baseDir.exists()) {
-                baseDir.mkdirs();
-            }
-            String safeTitle = result.getTitle().replaceAll("[\\\\/:*?\"<>|]", "_");
-            String fileName = String.format("%03d_%s", index, safeTitle);
-            // 1. 保存 HTML
-            File htmlFile = new File(baseDir, fileName + ".html");
-            org.apache.commons.io.FileUtils.writeStringToFile(htmlFile, result.getHtml(), "UTF-8");
-            // 2. 如果勾选了“同时生成PDF”
-            if (autoPdfCheckBox.isSelected()) {
-                File pdfFile = new File(baseDir, fileName + ".pdf");
-                try {
-                    com.ctgu.util.PdfGenerator.generate(result.getHtml(), pdfFile.getAbsolutePath());
-                } catch (Exception ex) {
-                    log.error("PDF生成失败: " + safeTitle, ex);
-                }
+    private void closeArticleSaver() {
+        if (articleSaver != null) {
+            try {
+                articleSaver.close();
+            } catch (IOException e) {
+                log.warn("关闭下载日志失败: {}", e.getMessage());
             }
-        } catch (IOException e) {
-            log.error("文件保存失败", e);
+            articleSaver = null;
         }
     }
 
     private void stopDownload() {
         isDownloading = false;
-        for (Future<?> f : futures) f.cancel(true);
+        if (batchEngine != null) {
+            batchEngine.stop();
+        }
         statusLabel.setText("已停止");
         downloadButton.setEnabled(true);
         stopButton.setEnabled(false);
+        appendButton.setEnabled(false);
     }
 
     private void clearInput() {
         urlTextArea.setText("");
-        pendingModel.setRowCount(0);
+        pendingModel.clear();
         completedModel.setRowCount(0);
         progressBar.setValue(0);
     }
@@ -411,9 +687,9 @@ public class CSDNDownloaderUI extends JFrame {
         panel.setBorder(new EmptyBorder(10, 10, 10, 10));
         JTextArea cookieArea = new JTextArea();
         cookieArea.setLineWrap(true);
-        cookieArea.setBorder(BorderFactory.createTitledBorder("请粘贴CSDN的Cookie字符串"));
+        cookieArea.setBorder(BorderFactory.createTitledBorder("请粘贴CSDN的Cookie字符串（多个账号每行一个）"));
         // 尝试读取现有Cookie
-        File cookieFile = new File("cookie.txt");
+        File cookieFile = new File(CookieSessionManager.DEFAULT_FILE);
         if (cookieFile.exists()) {
             try {
                 cookieArea.setText(FileUtils.readFileToString(cookieFile, StandardCharsets.UTF_8));
@@ -426,7 +702,9 @@ public class CSDNDownloaderUI extends JFrame {
             if (!c.isEmpty()) {
                 try {
                     FileUtils.writeStringToFile(cookieFile, c, StandardCharsets.UTF_8);
-                    JOptionPane.showMessageDialog(dialog, "Cookie保存成功！下次下载将生效。");
+                    CookieSessionManager sessions = CookieSessionManager.forFile(cookieFile);
+                    sessions.reload();
+                    JOptionPane.showMessageDialog(dialog, "Cookie保存成功，已立即生效（共 " + sessions.getSessionCount() + " 个账号）。");
                     dialog.dispose();
                 } catch (IOException ex) {
                     ex.printStackTrace();
@@ -457,6 +735,9 @@ public class CSDNDownloaderUI extends JFrame {
         });
         fileMenu.add(importItem);
         fileMenu.add(exportItem);
+        JMenuItem epubItem = new JMenuItem("导出为EPUB电子书");
+        epubItem.addActionListener(e -> exportEpub());
+        fileMenu.add(epubItem);
         fileMenu.addSeparator();
         fileMenu.add(exitItem);
         // 设置菜单
@@ -478,8 +759,20 @@ public class CSDNDownloaderUI extends JFrame {
         validateItem.addActionListener(e -> validateUrls());
         JMenuItem clearLogsItem = new JMenuItem("清理临时文件");
         clearLogsItem.addActionListener(e -> clearTempFiles());
+        // 调试日志：运行中切换日志配置，取消勾选恢复异步的生产配置
+        JCheckBoxMenuItem debugLogItem = new JCheckBoxMenuItem("调试日志", LogProfile.DEBUG.equals(LogProfile.current()));
+        debugLogItem.addActionListener(e -> {
+            try {
+                LogProfile.apply(debugLogItem.isSelected() ? LogProfile.DEBUG : LogProfile.PRODUCTION);
+            } catch (IllegalStateException ex) {
+                debugLogItem.setSelected(!debugLogItem.isSelected());
+                JOptionPane.showMessageDialog(this, "切换日志配置失败: " + ex.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+            }
+        });
         toolsMenu.add(validateItem);
         toolsMenu.add(clearLogsItem);
+        toolsMenu.addSeparator();
+        toolsMenu.add(debugLogItem);
         // 帮助菜单
         JMenu helpMenu = new JMenu("帮助");
         helpMenu.setFont(new Font("微软雅黑", Font.PLAIN, DEFAULT_FONT_SIZE));
@@ -511,7 +804,7 @@ public class CSDNDownloaderUI extends JFrame {
         }
     }
 
-    //url校验
+    //url校验：先检查格式，再可选地联网预检文章是否仍然存在
     private void validateUrls() {
         String text = urlTextArea.getText();
         if (text == null || text.trim().isEmpty()) {
@@ -522,11 +815,15 @@ public class CSDNDownloaderUI extends JFrame {
         int validCount = 0;
         int invalidCount = 0;
         StringBuilder invalidUrls = new StringBuilder();
+        List<String> articleUrls = new ArrayList<>();
         for (String line : lines) {
             String url = line.trim();
             if (url.isEmpty()) continue;
-            if (isValidCsdnUrl(url)) {
+            if (isValidCsdnUrl(url) || isListingUrl(url)) {
                 validCount++;
+                if (isValidCsdnUrl(url)) {
+                    articleUrls.add(url);
+                }
             } else {
                 invalidCount++;
                 invalidUrls.append(url).append("\n");
@@ -536,7 +833,88 @@ public class CSDNDownloaderUI extends JFrame {
         if (invalidCount > 0) {
             message += "\n\n无效链接示例:\n" + (invalidUrls.length() > 100 ? invalidUrls.substring(0, 100) + "..." : invalidUrls.toString());
         }
-        JOptionPane.showMessageDialog(this, message, "URL 有效性验证", invalidCount > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE);
+        int messageType = invalidCount > 0 ? JOptionPane.WARNING_MESSAGE : JOptionPane.INFORMATION_MESSAGE;
+        if (articleUrls.isEmpty()) {
+            JOptionPane.showMessageDialog(this, message, "URL 有效性验证", messageType);
+            return;
+        }
+        message += String.format("\n\n是否联网检查 %d 篇文章是否仍然存在？\n（只请求响应头，不下载正文）", articleUrls.size());
+        if (JOptionPane.showConfirmDialog(this, message, "URL 有效性验证", JOptionPane.YES_NO_OPTION, messageType) == JOptionPane.YES_OPTION) {
+            runPreflight(articleUrls);
+        }
+    }
+
+    /**
+     * 在后台预检文章链接，状态栏显示进度，完成后展示结果
+     **/
+    private void runPreflight(List<String> articleUrls) {
+        int total = articleUrls.size();
+        AtomicInteger checked = new AtomicInteger();
+        statusLabel.setText(String.format("正在预检链接: 0 / %d", total));
+        new SwingWorker<List<LinkPreflight.Result>, Void>() {
+            @Override
+            protected List<LinkPreflight.Result> doInBackground() {
+                LinkPreflight preflight = new LinkPreflight(new CSDNDownloader(), maxConcurrentDownloads);
+                return preflight.check(articleUrls, result -> {
+                    int n = checked.incrementAndGet();
+                    // 每 20 个刷新一次状态栏，避免上千个链接时频繁占用界面线程
+                    if (n % 20 == 0 || n == total) {
+                        SwingUtilities.invokeLater(() -> statusLabel.setText(String.format("正在预检链接: %d / %d", n, total)));
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    showPreflightResult(get());
+                } catch (Exception e) {
+                    log.error("链接预检失败", e);
+                    statusLabel.setText("链接预检失败");
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * 展示预检结果，存在失效链接时可从输入框中一键移除，只让可访问的链接进入下载
+     **/
+    private void showPreflightResult(List<LinkPreflight.Result> results) {
+        Map<LinkPreflight.Status, Integer> counts = new EnumMap<>(LinkPreflight.Status.class);
+        Set<String> dead = new HashSet<>();
+        StringBuilder examples = new StringBuilder();
+        for (LinkPreflight.Result result : results) {
+            counts.merge(result.getStatus(), 1, Integer::sum);
+            if (result.getStatus() == LinkPreflight.Status.NOT_FOUND) {
+                dead.add(result.getUrl());
+                if (dead.size() <= 5) {
+                    examples.append(result.getUrl()).append(" (HTTP ").append(result.getHttpStatus()).append(")\n");
+                }
+            }
+        }
+        statusLabel.setText(String.format("预检完成：%d 篇失效", dead.size()));
+        String message = String.format("预检完成：\n%s: %d 篇\n%s: %d 篇\n%s: %d 篇（限流或网络异常，下载时再重试）",
+                LinkPreflight.Status.LIVE.getLabel(), counts.getOrDefault(LinkPreflight.Status.LIVE, 0),
+                LinkPreflight.Status.NOT_FOUND.getLabel(), dead.size(),
+                LinkPreflight.Status.UNKNOWN.getLabel(), counts.getOrDefault(LinkPreflight.Status.UNKNOWN, 0));
+        if (dead.isEmpty()) {
+            JOptionPane.showMessageDialog(this, message, "链接预检", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        message += "\n\n失效链接示例:\n" + examples;
+        Object[] options = {"移除失效链接", "保留"};
+        int choice = JOptionPane.showOptionDialog(this, message, "链接预检", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE,
+                null, options, options[0]);
+        if (choice == 0) {
+            StringBuilder kept = new StringBuilder();
+            for (String line : urlTextArea.getText().split("\n")) {
+                if (!dead.contains(line.trim())) {
+                    kept.append(line).append("\n");
+                }
+            }
+            urlTextArea.setText(kept.toString());
+            statusLabel.setText(String.format("已移除 %d 个失效链接", dead.size()));
+        }
     }
 
     // 清理临时文件的逻辑
@@ -607,11 +985,24 @@ public class CSDNDownloaderUI extends JFrame {
             if (pathLabel != null) {
                 pathLabel.setText("保存路径: " + savePath);
             }
-            // 4. 初始化线程池
-            if (executorService != null && !executorService.isShutdown()) {
-                executorService.shutdownNow();
+            // 读取单主机并发上限 host.max.concurrent
+            String perHost = props.getProperty("host.max.concurrent");
+            if (perHost != null) {
+                try {
+                    this.maxPerHostDownloads = Integer.parseInt(perHost.trim());
+                } catch (NumberFormatException e) {
+                    log.warn("单主机并发数格式错误，使用默认值: {}", maxPerHostDownloads);
+                }
+            }
+            // 读取 Markdown 导出开关 export.markdown
+            this.markdownExport = Boolean.parseBoolean(props.getProperty("export.markdown", "false").trim());
+            // 读取 PDF 低内存模式开关 pdf.bounded.memory
+            this.pdfBoundedMemory = Boolean.parseBoolean(props.getProperty("pdf.bounded.memory", "false").trim());
+            // 4. 初始化调度器
+            if (downloadScheduler != null && !downloadScheduler.isShutdown()) {
+                downloadScheduler.shutdownNow();
             }
-            executorService = Executors.newFixedThreadPool(maxConcurrentDownloads);
+            downloadScheduler = new DownloadScheduler(maxConcurrentDownloads, maxPerHostDownloads);
         } catch (IOException e) {
             log.error("加载配置时发生 IO 异常", e);
         }
@@ -623,10 +1014,15 @@ public class CSDNDownloaderUI extends JFrame {
     private void saveConfig() {
         Properties props = new Properties();
         props.setProperty("thread.pool.size", String.valueOf(maxConcurrentDownloads));
+        if (maxPerHostDownloads > 0) {
+            props.setProperty("host.max.concurrent", String.valueOf(maxPerHostDownloads));
+        }
         props.setProperty("timeout.seconds", "10");
         props.setProperty("retry.count", "3");
         props.setProperty("delay.ms", String.valueOf(delayBetweenDownloads));
         props.setProperty("output.dir", savePath);
+        props.setProperty("export.markdown", String.valueOf(markdownExport));
+        props.setProperty("pdf.bounded.memory", String.valueOf(pdfBoundedMemory));
         try (FileOutputStream fos = new FileOutputStream(configFileName)) {
             props.store(fos, "CSDN Downloader Configuration");
             log.info("配置已保存至 {}", configFileName);
@@ -635,46 +1031,105 @@ public class CSDNDownloaderUI extends JFrame {
         }
     }
 
-    // 导出下载记录
+    /**
+     * 将本次任务中下载成功的文章按任务顺序合并为一本 EPUB，在后台线程中生成
+     **/
+    private void exportEpub() {
+        Map<String, DownloadResult> byUrl = new HashMap<>();
+        synchronized (completedDownloads) {
+            for (DownloadResult result : completedDownloads) {
+                if (result.isSuccess()) {
+                    byUrl.put(result.getUrl(), result);
+                }
+            }
+        }
+        List<DownloadResult> ordered = new ArrayList<>();
+        for (String url : pendingUrls) {
+            DownloadResult result = byUrl.get(url);
+            if (result != null) {
+                ordered.add(result);
+            }
+        }
+        if (ordered.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "没有下载成功的文章可供导出。", "提示", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        String bookTitle = JOptionPane.showInputDialog(this, "请输入书名:", "CSDN文章合集");
+        if (bookTitle == null || bookTitle.trim().isEmpty()) {
+            return;
+        }
+        JFileChooser fileChooser = new JFileChooser(savePath);
+        fileChooser.setDialogTitle("导出EPUB");
+        fileChooser.setSelectedFile(new File(savePath, bookTitle.trim().replaceAll("[\\\\/:*?\"<>|]", "_") + ".epub"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        statusLabel.setText("正在生成EPUB...");
+        new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return new EpubExporter(new CSDNDownloader()).export(ordered, file, bookTitle.trim());
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    int chapters = get();
+                    statusLabel.setText("EPUB已生成");
+                    JOptionPane.showMessageDialog(CSDNDownloaderUI.this, "EPUB导出成功，共 " + chapters + " 章\n保存位置: " + file.getAbsolutePath());
+                } catch (Exception e) {
+                    log.error("EPUB导出失败", e);
+                    statusLabel.setText("EPUB导出失败");
+                    JOptionPane.showMessageDialog(CSDNDownloaderUI.this, "EPUB导出失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    /**
+     * 导出下载记录：从输出目录的下载日志导出全部历史记录（不限于本次会话），后台线程流式写出，不阻塞界面
+     **/
     private void exportDownloadRecords() {
-        //        if (completedDownloads.isEmpty()) {
-        //            JOptionPane.showMessageDialog(this, "当前没有下载成功的记录可供导出。");
-        //            return;
-        //        }
-        if (completedModel.getRowCount() == 0) {
+        File journalFile = new File(savePath, DownloadJournal.FILE_NAME);
+        if (!journalFile.isFile()) {
             JOptionPane.showMessageDialog(this, "没有可导出的下载记录。", "提示", JOptionPane.WARNING_MESSAGE);
             return;
         }
         JFileChooser fileChooser = new JFileChooser();
-        fileChooser.setDialogTitle("导出下载记录");
+        fileChooser.setDialogTitle("导出下载记录（扩展名为 .jsonl 时导出 JSON Lines，否则导出 CSV）");
         fileChooser.setSelectedFile(new File("download_records_" + System.currentTimeMillis() + ".csv"));
-        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile();
-            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
-                // 写入表头 (BOM用于Excel正确打开UTF-8)
-                writer.write('\ufeff');
-                writer.println("序号,文章标题,下载结果,文件大小,耗时,本地路径");
-                // 写入数据
-                for (int i = 0; i < completedModel.getRowCount(); i++) {
-                    StringBuilder line = new StringBuilder();
-                    for (int j = 0; j < completedModel.getColumnCount(); j++) {
-                        Object value = completedModel.getValueAt(i, j);
-                        String valStr = value == null ? "" : value.toString();
-                        // 处理CSV转义：如果包含逗号，用双引号包围
-                        if (valStr.contains(",")) {
-                            valStr = "\"" + valStr.replace("\"", "\"\"") + "\"";
-                        }
-                        line.append(valStr);
-                        if (j < completedModel.getColumnCount() - 1) line.append(",");
-                    }
-                    writer.println(line);
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = fileChooser.getSelectedFile();
+        RecordExporter.Format format = RecordExporter.Format.ofFile(file);
+        statusLabel.setText("正在导出下载记录...");
+        new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return new RecordExporter(Runtime.getRuntime().availableProcessors()).export(journalFile, file, format, this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> chunks) {
+                statusLabel.setText(String.format("正在导出下载记录: 已写出 %d 条", chunks.get(chunks.size() - 1)));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    long count = get();
+                    statusLabel.setText(String.format("下载记录导出完成: %d 条", count));
+                    JOptionPane.showMessageDialog(CSDNDownloaderUI.this, "导出成功！共 " + count + " 条记录\n保存位置: " + file.getAbsolutePath());
+                } catch (Exception e) {
+                    log.error("导出失败", e);
+                    statusLabel.setText("下载记录导出失败");
+                    Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(CSDNDownloaderUI.this, "导出失败: " + cause.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
                 }
-                JOptionPane.showMessageDialog(this, "导出成功！\n保存位置: " + file.getAbsolutePath());
-            } catch (IOException e) {
-                log.error("导出失败", e);
-                JOptionPane.showMessageDialog(this, "导出失败: " + e.getMessage(), "错误", JOptionPane.ERROR_MESSAGE);
             }
-        }
+        }.execute();
     }
 
     /**
@@ -757,11 +1212,15 @@ public class CSDNDownloaderUI extends JFrame {
                 int threads = Integer.parseInt(input.trim());
                 if (threads >= 1 && threads <= 6) {
                     maxConcurrentDownloads = threads;
-                    // 重新创建线程池
-                    if (!executorService.isShutdown()) {
-                        executorService.shutdownNow();
+                    if (isDownloading) {
+                        JOptionPane.showMessageDialog(this, "请在当前任务结束后再修改并发数", "提示", JOptionPane.WARNING_MESSAGE);
+                        return;
+                    }
+                    // 重新创建调度器
+                    if (!downloadScheduler.isShutdown()) {
+                        downloadScheduler.shutdownNow();
                     }
-                    executorService = Executors.newFixedThreadPool(maxConcurrentDownloads);
+                    downloadScheduler = new DownloadScheduler(maxConcurrentDownloads, maxPerHostDownloads);
                     saveConfig();
                     JOptionPane.showMessageDialog(this, "并发数已设置为: " + threads, "设置成功", JOptionPane.INFORMATION_MESSAGE);
                 } else {
@@ -788,4 +1247,11 @@ public class CSDNDownloaderUI extends JFrame {
     private boolean isValidCsdnUrl(String url) {
         return url != null && url.contains("csdn.net") && url.contains("/article/details/");
     }
+
+    /**
+     * 是否为可自动发现文章的博主主页、专栏或列表页
+     **/
+    private boolean isListingUrl(String url) {
+        return ArticleDiscoverer.isListingUrl(url);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,184 @@
+package com.ctgu.ui;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 待下载列表的表格模型。每行状态保存在按块分配的原子数组中，下载线程只做无锁写入并记录变化的行范围，
+ * 由界面定时器（约 100ms）调用 publish() 合并为一次 fireTableRowsInserted / fireTableRowsUpdated，
+ * 避免逐个单元格触发表格事件，上万行时界面仍然流畅
+ * @date 2026-01-03 14:42
+ */
+public class ProgressTableModel extends AbstractTableModel {
+    /**
+     * 行状态
+     **/
+    public enum Stage {
+        WAITING("等待中", "0%", ""),
+        DOWNLOADING("下载中", "30%", "正在获取内容..."),
+        SAVING("处理中", "80%", "生成文件..."),
+        DONE("完成", "100%", "成功"),
+        FAILED("失败", "100%", "");
+
+        private final String label;
+        private final String progress;
+        private final String detail;
+
+        Stage(String label, String progress, String detail) {
+            this.label = label;
+            this.progress = progress;
+            this.detail = detail;
+        }
+    }
+
+    private static final String[] COLUMNS = {"序号", "文章链接", "当前状态", "进度", "详细信息"};
+    private static final Stage[] STAGES = Stage.values();
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    /**
+     * 没有待发布变化时的脏区间：起始行为 Integer.MAX_VALUE，结束行为 -1
+     **/
+    private static final long CLEAN = pack(Integer.MAX_VALUE, -1);
+
+    /**
+     * 行数据按块存储，扩容时只追加新块，已有块不会被替换，下载线程写入时无需加锁
+     **/
+    private static class Chunk {
+        final String[] urls = new String[CHUNK_SIZE];
+        final AtomicIntegerArray stages = new AtomicIntegerArray(CHUNK_SIZE);
+        final AtomicReferenceArray<String> details = new AtomicReferenceArray<>(CHUNK_SIZE);
+    }
+
+    private volatile Chunk[] chunks = new Chunk[0];
+    /**
+     * 已添加的行数（只在界面线程修改）
+     **/
+    private volatile int size = 0;
+    /**
+     * 已通知给表格的行数，getRowCount() 以此为准，保证表格看到的行数与收到的事件一致
+     **/
+    private int publishedSize = 0;
+    /**
+     * 待发布的变化行区间，高 32 位为起始行，低 32 位为结束行
+     **/
+    private final AtomicLong dirty = new AtomicLong(CLEAN);
+
+    /**
+     * 追加一行，在界面线程调用，下一次 publish() 时通知表格
+     *
+     * @return 新行的行号
+     */
+    public int addRow(String url) {
+        int row = size;
+        int chunkIndex = row >>> CHUNK_BITS;
+        if (chunkIndex == chunks.length) {
+            Chunk[] grown = new Chunk[chunkIndex + 1];
+            System.arraycopy(chunks, 0, grown, 0, chunks.length);
+            grown[chunkIndex] = new Chunk();
+            chunks = grown;
+        }
+        chunks[chunkIndex].urls[row & (CHUNK_SIZE - 1)] = url;
+        size = row + 1;
+        return row;
+    }
+
+    /**
+     * 更新行状态，可在任意线程调用，不触发表格事件
+     *
+     * @param detail 详细信息，为 null 时使用状态默认文字
+     */
+    public void setStage(int row, Stage stage, String detail) {
+        // 先读 chunks 再比较 size：清空与下载线程并发时不会越界，过期的行号直接忽略
+        Chunk[] current = chunks;
+        if (row < 0 || row >= size || (row >>> CHUNK_BITS) >= current.length) {
+            return;
+        }
+        Chunk chunk = current[row >>> CHUNK_BITS];
+        int offset = row & (CHUNK_SIZE - 1);
+        chunk.details.set(offset, detail);
+        chunk.stages.set(offset, stage.ordinal());
+        dirty.accumulateAndGet(pack(row, row), ProgressTableModel::merge);
+    }
+
+    public void setStage(int row, Stage stage) {
+        setStage(row, stage, null);
+    }
+
+    /**
+     * 把自上次调用以来新增与变化的行合并通知给表格，在界面线程调用
+     **/
+    public void publish() {
+        int currentSize = size;
+        if (currentSize > publishedSize) {
+            int first = publishedSize;
+            publishedSize = currentSize;
+            fireTableRowsInserted(first, currentSize - 1);
+        }
+        long range = dirty.getAndSet(CLEAN);
+        int first = (int) (range >> 32);
+        int last = Math.min((int) range, publishedSize - 1);
+        if (first <= last) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    /**
+     * 清空所有行，在界面线程调用
+     **/
+    public void clear() {
+        chunks = new Chunk[0];
+        size = 0;
+        publishedSize = 0;
+        dirty.set(CLEAN);
+        fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+        return publishedSize;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Chunk chunk = chunks[row >>> CHUNK_BITS];
+        int offset = row & (CHUNK_SIZE - 1);
+        Stage stage = STAGES[chunk.stages.get(offset)];
+        switch (column) {
+            case 0:
+                return row + 1;
+            case 1:
+                return chunk.urls[offset];
+            case 2:
+                return stage.label;
+            case 3:
+                return stage.progress;
+            default:
+                String detail = chunk.details.get(offset);
+                return detail != null ? detail : stage.detail;
+        }
+    }
+
+    private static long pack(int first, int last) {
+        return ((long) first << 32) | (last & 0xFFFFFFFFL);
+    }
+
+    private static long merge(long a, long b) {
+        int first = Math.min((int) (a >> 32), (int) (b >> 32));
+        int last = Math.max((int) a, (int) b);
+        return pack(first, last);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ctgu.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 中日韩文本分词工具类。每个 CJK 字符作为一元组，连续的 CJK 字符再切分为二元组 (bigram)，
+ * 单字查询（如“锁”）也能命中“文件锁”；其他语言按字母数字切分为小写单词。索引与查询使用同一套规则，无需词典
+ * @date 2026-01-03 14:42
+ */
+public class CjkTokenizer {
+    /**
+     * 单词最大长度，超长的字符串（如 base64 内容）截断处理
+     **/
+    private static final int MAX_WORD_LENGTH = 40;
+
+    private CjkTokenizer() {
+    }
+
+    /**
+     * 对文本分词，返回去重后的词项（保持首次出现顺序）
+     **/
+    public static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        int prevCjk = -1;
+        int i = 0;
+        while (i < text.length()) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (isCjk(cp)) {
+                flushWord(word, tokens);
+                if (prevCjk >= 0) {
+                    tokens.add(new String(new int[]{prevCjk, cp}, 0, 2));
+                }
+                tokens.add(new String(Character.toChars(cp)));
+                prevCjk = cp;
+            } else {
+                prevCjk = -1;
+                if (Character.isLetterOrDigit(cp)) {
+                    if (word.length() < MAX_WORD_LENGTH) {
+                        word.appendCodePoint(Character.toLowerCase(cp));
+                    }
+                } else {
+                    flushWord(word, tokens);
+                }
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, Set<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean isCjk(int cp) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(cp);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,358 @@
+package com.ctgu.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: EPUB 3 电子书写入器。章节逐篇写入 zip 容器后即释放，图片按内容摘要去重后只保存一份，
+ * 所有章节共用一个样式表；目录 (nav) 与清单 (content.opf) 在关闭时写出，内存占用不随书的大小增长
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class EpubWriter implements Closeable {
+    private static final String CSS = "body { font-family: sans-serif; line-height: 1.6; margin: 0 4%; }\n"
+            + "h1 { font-size: 1.4em; border-bottom: 1px solid #ddd; padding-bottom: 0.3em; }\n"
+            + "img { max-width: 100%; height: auto; display: block; margin: 1em auto; }\n"
+            + "pre { white-space: pre-wrap; word-break: break-all; background: #f6f8fa; padding: 0.6em; font-size: 0.85em; }\n"
+            + "code { font-family: monospace; }\n"
+            + "blockquote { border-left: 4px solid #ddd; color: #666; margin: 1em 0; padding-left: 0.8em; }\n"
+            + "table { border-collapse: collapse; } th, td { border: 1px solid #ccc; padding: 0.3em 0.5em; }\n"
+            + ".source { color: #888; font-size: 0.8em; }\n";
+
+    /**
+     * 图片下载方式，可替换为带缓存的实现
+     **/
+    public interface ResourceLoader {
+        InputStream open(String url) throws IOException;
+    }
+
+    /**
+     * 已写入的章节（只保留目录所需的信息）
+     **/
+    private static class Chapter {
+        final String file;
+        final String title;
+
+        Chapter(String file, String title) {
+            this.file = file;
+            this.title = title;
+        }
+    }
+
+    private final ZipOutputStream zip;
+    private final String bookTitle;
+    private final String author;
+    private final ResourceLoader loader;
+    private final List<Chapter> chapters = new ArrayList<>();
+    /**
+     * 图片链接 -> 书内文件名，同一链接只下载一次
+     **/
+    private final Map<String, String> imagesByUrl = new HashMap<>();
+    /**
+     * 图片内容摘要 -> 书内文件名，不同链接指向相同图片时只保存一份
+     **/
+    private final Map<String, String> imagesByHash = new HashMap<>();
+    private final Map<String, String> imageMediaTypes = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param file      输出文件
+     * @param bookTitle 书名
+     * @param author    作者，可为 null
+     * @param loader    图片下载方式
+     */
+    public EpubWriter(File file, String bookTitle, String author, ResourceLoader loader) throws IOException {
+        this.zip = new ZipOutputStream(new FileOutputStream(file));
+        this.bookTitle = bookTitle;
+        this.author = author;
+        this.loader = loader;
+        writeMimetype();
+        writeText("META-INF/container.xml", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+                + "  <rootfiles><rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/></rootfiles>\n"
+                + "</container>\n");
+        writeText("OEBPS/style.css", CSS);
+    }
+
+    /**
+     * 使用 jsoup 下载图片的默认实现
+     **/
+    public static ResourceLoader httpLoader(String userAgent, int timeout) {
+        return url -> Jsoup.connect(url).userAgent(userAgent).timeout(timeout).ignoreContentType(true)
+                .maxBodySize(0).referrer("https://blog.csdn.net/").execute().bodyStream();
+    }
+
+    /**
+     * 追加一章，正文写入后即可释放
+     *
+     * @param title       章节标题
+     * @param sourceUrl   原文链接，可为 null
+     * @param contentHtml 清洗后的正文 HTML 片段
+     */
+    public void addChapter(String title, String sourceUrl, String contentHtml) throws IOException {
+        String file = String.format("chapter-%04d.xhtml", chapters.size() + 1);
+        Document doc = Jsoup.parseBodyFragment(contentHtml, sourceUrl == null ? "" : sourceUrl);
+        for (Element el : doc.body().select("[style]")) {
+            // 统一使用共享样式表
+            el.removeAttr("style");
+        }
+        for (Element a : doc.body().select("a[href]")) {
+            // 书内没有原站页面，相对链接改为绝对地址
+            String href = a.absUrl("href");
+            if (!href.isEmpty()) {
+                a.attr("href", href);
+            }
+        }
+        for (Element img : doc.body().select("img")) {
+            String local = localImage(img.absUrl("src").isEmpty() ? img.attr("src") : img.absUrl("src"));
+            if (local == null) {
+                img.remove();
+            } else {
+                img.attr("src", local);
+                if (!img.hasAttr("alt")) {
+                    img.attr("alt", "");
+                }
+            }
+        }
+        doc.body().prependElement("h1").text(title);
+        if (sourceUrl != null) {
+            doc.body().child(0).after(new Element("p").addClass("source").text("原文链接: " + sourceUrl));
+        }
+        doc.title(title);
+        doc.head().appendElement("link").attr("rel", "stylesheet").attr("type", "text/css").attr("href", "style.css");
+        Element html = doc.child(0);
+        html.attr("xmlns", "http://www.w3.org/1999/xhtml").attr("xml:lang", "zh-CN").attr("lang", "zh-CN");
+        writeText("OEBPS/" + file, xhtml(doc));
+        chapters.add(new Chapter(file, title));
+    }
+
+    public int getChapterCount() {
+        return chapters.size();
+    }
+
+    /**
+     * 写出目录与清单并关闭容器
+     **/
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            writeText("OEBPS/nav.xhtml", buildNav());
+            writeText("OEBPS/content.opf", buildPackage());
+        } finally {
+            zip.close();
+        }
+    }
+
+    /**
+     * 下载图片到临时文件并计算摘要，新图片写入容器，重复图片直接复用
+     *
+     * @return 书内相对路径，下载失败时返回 null
+     */
+    private String localImage(String url) throws IOException {
+        if (url.isEmpty()) {
+            return null;
+        }
+        if (url.startsWith("data:")) {
+            // 内嵌图片无需下载，保持原样
+            return url;
+        }
+        if (imagesByUrl.containsKey(url)) {
+            return imagesByUrl.get(url);
+        }
+        File temp = File.createTempFile("epub-img", ".tmp");
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] head = new byte[16];
+            int headLength = 0;
+            try (InputStream in = new DigestInputStream(loader.open(url), digest);
+                 OutputStream out = new FileOutputStream(temp)) {
+                byte[] buf = new byte[8192];
+                int n;
+                while ((n = in.read(buf)) != -1) {
+                    if (headLength < head.length) {
+                        int copy = Math.min(n, head.length - headLength);
+                        System.arraycopy(buf, 0, head, headLength, copy);
+                        headLength += copy;
+                    }
+                    out.write(buf, 0, n);
+                }
+            }
+            String hash = HashUtils.toHex(digest.digest());
+            String name = imagesByHash.get(hash);
+            if (name == null) {
+                String[] type = imageType(head, headLength, url);
+                name = "images/" + hash.substring(0, 16) + "." + type[0];
+                try (InputStream in = new FileInputStream(temp)) {
+                    // 图片已压缩，直接存储
+                    writeStream("OEBPS/" + name, in, false);
+                }
+                imagesByHash.put(hash, name);
+                imageMediaTypes.put(name, type[1]);
+            }
+            imagesByUrl.put(url, name);
+            return name;
+        } catch (IOException e) {
+            log.warn("EPUB 图片下载失败，已跳过: {} ({})", url, e.getMessage());
+            imagesByUrl.put(url, null);
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    private String buildNav() {
+        Document nav = Jsoup.parse("");
+        nav.title(bookTitle);
+        nav.child(0).attr("xmlns", "http://www.w3.org/1999/xhtml").attr("xmlns:epub", "http://www.idpf.org/2007/ops").attr("lang", "zh-CN");
+        nav.head().appendElement("link").attr("rel", "stylesheet").attr("type", "text/css").attr("href", "style.css");
+        Element toc = nav.body().appendElement("nav").attr("epub:type", "toc").attr("id", "toc");
+        toc.appendElement("h1").text(bookTitle);
+        Element list = toc.appendElement("ol");
+        for (Chapter chapter : chapters) {
+            list.appendElement("li").appendElement("a").attr("href", chapter.file).text(chapter.title);
+        }
+        return xhtml(nav);
+    }
+
+    private String buildPackage() {
+        SimpleDateFormat iso = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+        iso.setTimeZone(TimeZone.getTimeZone("UTC"));
+        StringBuilder opf = new StringBuilder();
+        opf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"3.0\" unique-identifier=\"book-id\" xml:lang=\"zh-CN\">\n")
+                .append("  <metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n")
+                .append("    <dc:identifier id=\"book-id\">urn:uuid:").append(UUID.randomUUID()).append("</dc:identifier>\n")
+                .append("    <dc:title>").append(escape(bookTitle)).append("</dc:title>\n")
+                .append("    <dc:language>zh-CN</dc:language>\n");
+        if (author != null && !author.isEmpty()) {
+            opf.append("    <dc:creator>").append(escape(author)).append("</dc:creator>\n");
+        }
+        opf.append("    <meta property=\"dcterms:modified\">").append(iso.format(new Date())).append("</meta>\n")
+                .append("  </metadata>\n")
+                .append("  <manifest>\n")
+                .append("    <item id=\"nav\" href=\"nav.xhtml\" media-type=\"application/xhtml+xml\" properties=\"nav\"/>\n")
+                .append("    <item id=\"css\" href=\"style.css\" media-type=\"text/css\"/>\n");
+        for (int i = 0; i < chapters.size(); i++) {
+            opf.append("    <item id=\"c").append(i + 1).append("\" href=\"").append(chapters.get(i).file)
+                    .append("\" media-type=\"application/xhtml+xml\"/>\n");
+        }
+        int imageIndex = 0;
+        for (Map.Entry<String, String> image : imageMediaTypes.entrySet()) {
+            opf.append("    <item id=\"img").append(++imageIndex).append("\" href=\"").append(image.getKey())
+                    .append("\" media-type=\"").append(image.getValue()).append("\"/>\n");
+        }
+        opf.append("  </manifest>\n").append("  <spine>\n").append("    <itemref idref=\"nav\"/>\n");
+        for (int i = 0; i < chapters.size(); i++) {
+            opf.append("    <itemref idref=\"c").append(i + 1).append("\"/>\n");
+        }
+        opf.append("  </spine>\n").append("</package>\n");
+        return opf.toString();
+    }
+
+    /**
+     * 复用 PDF 生成时的 XHTML 规范化，并补充 XML 声明与 HTML5 文档类型
+     **/
+    private static String xhtml(Document doc) {
+        doc.outputSettings().prettyPrint(false);
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<!DOCTYPE html>\n" + PdfGenerator.toXhtml(doc);
+    }
+
+    /**
+     * 根据文件头识别图片格式，无法识别时依据扩展名
+     *
+     * @return {扩展名, 媒体类型}
+     */
+    private static String[] imageType(byte[] head, int length, String url) {
+        if (length >= 8 && (head[0] & 0xff) == 0x89 && head[1] == 'P' && head[2] == 'N' && head[3] == 'G') {
+            return new String[]{"png", "image/png"};
+        }
+        if (length >= 3 && (head[0] & 0xff) == 0xff && (head[1] & 0xff) == 0xd8) {
+            return new String[]{"jpg", "image/jpeg"};
+        }
+        if (length >= 4 && head[0] == 'G' && head[1] == 'I' && head[2] == 'F') {
+            return new String[]{"gif", "image/gif"};
+        }
+        if (length >= 12 && head[0] == 'R' && head[1] == 'I' && head[8] == 'W' && head[9] == 'E' && head[10] == 'B' && head[11] == 'P') {
+            return new String[]{"webp", "image/webp"};
+        }
+        String lower = url.toLowerCase();
+        if (lower.contains(".svg")) {
+            return new String[]{"svg", "image/svg+xml"};
+        }
+        return new String[]{"png", "image/png"};
+    }
+
+    private void writeMimetype() throws IOException {
+        byte[] data = "application/epub+zip".getBytes(StandardCharsets.US_ASCII);
+        // mimetype 必须是第一个条目且不压缩
+        ZipEntry entry = new ZipEntry("mimetype");
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(data.length);
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(data);
+        zip.closeEntry();
+    }
+
+    private void writeText(String name, String text) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(text.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    private void writeStream(String name, InputStream in, boolean compress) throws IOException {
+        zip.setLevel(compress ? Deflater.DEFAULT_COMPRESSION : Deflater.NO_COMPRESSION);
+        try {
+            zip.putNextEntry(new ZipEntry(name));
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                zip.write(buf, 0, n);
+            }
+            zip.closeEntry();
+        } finally {
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,48 @@
+package com.ctgu.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 摘要计算工具类
+ * @date 2026-01-03 14:42
+ */
+public class HashUtils {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private HashUtils() {
+    }
+
+    /**
+     * 计算字符串（UTF-8）的 SHA-256 摘要
+     *
+     * @return 小写十六进制字符串
+     */
+    public static String sha256Hex(String text) {
+        return sha256Hex(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String sha256Hex(byte[] data) {
+        try {
+            return toHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 是 JDK 必须支持的算法
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 摘要转为小写十六进制字符串
+     **/
+    public static String toHex(byte[] digest) {
+        char[] out = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; i++) {
+            out[i * 2] = HEX[(digest[i] >> 4) & 0xf];
+            out[i * 2 + 1] = HEX[digest[i] & 0xf];
+        }
+        return new String(out);
+    }
+}
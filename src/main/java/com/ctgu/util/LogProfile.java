@@ -0,0 +1,76 @@
+package com.ctgu.util;
+
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.core.joran.spi.JoranException;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.LoggerFactory;
+
+import java.net.URL;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 运行期切换日志配置，无需重启：
+ * production 使用 logback.xml（异步写出、无调用行号），debug 使用 logback-debug.xml（同步写出、带行号、DEBUG 级别）
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class LogProfile {
+    public static final String PRODUCTION = "production";
+    public static final String DEBUG = "debug";
+
+    /**
+     * 启动时通过 -Dlogback.configurationFile 指定调试配置的，初始即为 debug
+     **/
+    private static volatile String current = System.getProperty("logback.configurationFile", "").contains("debug") ? DEBUG : PRODUCTION;
+
+    private LogProfile() {
+    }
+
+    /**
+     * 当前使用的日志配置名称
+     **/
+    public static String current() {
+        return current;
+    }
+
+    /**
+     * 切换日志配置：重置日志上下文（异步队列中的日志会先写完）后加载对应的配置文件
+     *
+     * @param profile production 或 debug
+     * @throws IllegalArgumentException 配置名称无效
+     * @throws IllegalStateException    当前未使用 logback 或配置文件加载失败
+     */
+    public static synchronized void apply(String profile) {
+        String name = profile == null ? "" : profile.trim().toLowerCase();
+        String resource;
+        if (PRODUCTION.equals(name)) {
+            resource = "/logback.xml";
+        } else if (DEBUG.equals(name)) {
+            resource = "/logback-debug.xml";
+        } else {
+            throw new IllegalArgumentException("日志配置只能是 production 或 debug: " + profile);
+        }
+        if (name.equals(current)) {
+            return;
+        }
+        ILoggerFactory factory = LoggerFactory.getILoggerFactory();
+        URL url = LogProfile.class.getResource(resource);
+        if (!(factory instanceof LoggerContext) || url == null) {
+            throw new IllegalStateException("无法加载日志配置: " + resource);
+        }
+        LoggerContext context = (LoggerContext) factory;
+        JoranConfigurator configurator = new JoranConfigurator();
+        configurator.setContext(context);
+        context.reset();
+        try {
+            configurator.doConfigure(url);
+        } catch (JoranException e) {
+            throw new IllegalStateException("日志配置加载失败: " + resource, e);
+        }
+        current = name;
+        log.info("日志配置已切换为 {}", name);
+    }
+}
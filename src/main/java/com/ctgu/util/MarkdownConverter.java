@@ -0,0 +1,440 @@
+package com.ctgu.util;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.select.NodeFilter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: Markdown 转换工具类，对清洗后的正文元素做一次遍历直接生成 Markdown，
+ * 保留代码块语言、表格、图片与 KaTeX/MathML 公式（输出为 $...$ / $$...$$）
+ * @date 2026-01-03 14:42
+ */
+public class MarkdownConverter {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern LANGUAGE_CLASS = Pattern.compile("(?:^|\\s)(?:language|lang)-([\\w#+.-]+)");
+    private static final Pattern LINE_START = Pattern.compile("(?m)^");
+    private static final Pattern QUOTE_EMPTY_LINE = Pattern.compile("(?m)^> $");
+    /**
+     * 文本中需要转义的字符：< 防止被当作 HTML 标签，| 在表格外转义（表格单元格闭合时统一转义）
+     **/
+    private static final Pattern SPECIAL_CHARS = Pattern.compile("([\\\\`*_\\[\\]<])");
+    /**
+     * 行首会被解析为标题、引用、列表或 Setext 标题下划线的标记，转义其最后一个字符
+     **/
+    private static final Pattern BLOCK_MARKER = Pattern.compile("^(?:#{1,6}(?=\\s|$)|[-+=](?=\\s|$)|\\d{1,9}[.)](?=\\s|$)|>)");
+
+    private MarkdownConverter() {
+    }
+
+    /**
+     * 将正文元素转换为 Markdown
+     *
+     * @param content 清洗后的正文元素（只读，不会被修改）
+     * @return Markdown 文本
+     */
+    public static String convert(Element content) {
+        Visitor visitor = new Visitor(content);
+        content.filter(visitor);
+        return visitor.finish();
+    }
+
+    /**
+     * 遍历状态：引用块与表格单元格的内容先写入独立缓冲区，闭合时再加前缀或转义后并入上层
+     **/
+    private static class Visitor implements NodeFilter {
+        private final Element root;
+        private final Deque<StringBuilder> buffers = new ArrayDeque<>();
+        /**
+         * 列表嵌套栈，元素为当前序号，无序列表为 -1
+         **/
+        private final Deque<int[]> lists = new ArrayDeque<>();
+        private List<String> tableRow;
+        private int tableRowIndex;
+
+        Visitor(Element root) {
+            this.root = root;
+            buffers.push(new StringBuilder());
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (node instanceof TextNode) {
+                appendText(((TextNode) node).getWholeText());
+                return FilterResult.CONTINUE;
+            }
+            if (!(node instanceof Element) || node == root) {
+                return FilterResult.CONTINUE;
+            }
+            Element el = (Element) node;
+            if (isMath(el)) {
+                return appendMath(el);
+            }
+            switch (el.normalName()) {
+                case "h1":
+                case "h2":
+                case "h3":
+                case "h4":
+                case "h5":
+                case "h6":
+                    blankLine();
+                    out().append(repeat('#', el.normalName().charAt(1) - '0')).append(' ');
+                    break;
+                case "p":
+                case "div":
+                case "section":
+                case "figure":
+                    if (!insideListItem(el)) {
+                        blankLine();
+                    }
+                    break;
+                case "br":
+                    out().append(tableRow != null ? "<br>" : "  \n");
+                    break;
+                case "hr":
+                    blankLine();
+                    out().append("---");
+                    blankLine();
+                    break;
+                case "strong":
+                case "b":
+                    out().append("**");
+                    break;
+                case "em":
+                case "i":
+                    out().append('*');
+                    break;
+                case "del":
+                case "s":
+                    out().append("~~");
+                    break;
+                case "a":
+                    // 没有 href 的锚点（如标题中的 <a name="t0"></a>）按普通文本处理，没有内容的链接整体跳过
+                    if (isLink(el)) {
+                        out().append('[');
+                    } else if (!hrefOf(el).isEmpty()) {
+                        return FilterResult.SKIP_ENTIRELY;
+                    }
+                    break;
+                case "img":
+                    appendImage(el);
+                    break;
+                case "code":
+                    appendInlineCode(el.wholeText());
+                    return FilterResult.SKIP_CHILDREN;
+                case "pre":
+                    appendCodeBlock(el);
+                    return FilterResult.SKIP_CHILDREN;
+                case "ul":
+                case "ol":
+                    if (lists.isEmpty()) {
+                        blankLine();
+                    }
+                    lists.push(new int[]{"ol".equals(el.normalName()) ? startOf(el) : -1});
+                    break;
+                case "li":
+                    appendListMarker();
+                    break;
+                case "blockquote":
+                    blankLine();
+                    buffers.push(new StringBuilder());
+                    break;
+                case "table":
+                    blankLine();
+                    tableRowIndex = 0;
+                    break;
+                case "tr":
+                    tableRow = new ArrayList<>();
+                    break;
+                case "th":
+                case "td":
+                    buffers.push(new StringBuilder());
+                    break;
+                default:
+                    break;
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            if (!(node instanceof Element) || node == root) {
+                return FilterResult.CONTINUE;
+            }
+            Element el = (Element) node;
+            switch (el.normalName()) {
+                case "h1":
+                case "h2":
+                case "h3":
+                case "h4":
+                case "h5":
+                case "h6":
+                case "p":
+                case "div":
+                case "section":
+                case "figure":
+                    if (!insideListItem(el)) {
+                        blankLine();
+                    }
+                    break;
+                case "strong":
+                case "b":
+                    out().append("**");
+                    break;
+                case "em":
+                case "i":
+                    out().append('*');
+                    break;
+                case "del":
+                case "s":
+                    out().append("~~");
+                    break;
+                case "a":
+                    if (isLink(el)) {
+                        out().append("](").append(hrefOf(el)).append(')');
+                    }
+                    break;
+                case "ul":
+                case "ol":
+                    lists.pop();
+                    if (lists.isEmpty()) {
+                        blankLine();
+                    }
+                    break;
+                case "blockquote":
+                    String quoted = buffers.pop().toString().trim();
+                    blankLine();
+                    out().append(QUOTE_EMPTY_LINE.matcher(LINE_START.matcher(quoted).replaceAll("> ")).replaceAll(">"));
+                    blankLine();
+                    break;
+                case "th":
+                case "td":
+                    String cell = WHITESPACE.matcher(buffers.pop().toString()).replaceAll(" ").trim();
+                    if (tableRow != null) {
+                        tableRow.add(cell.replace("|", "\\|"));
+                    }
+                    break;
+                case "tr":
+                    appendTableRow();
+                    break;
+                case "table":
+                    blankLine();
+                    break;
+                default:
+                    break;
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        String finish() {
+            return out().toString().replaceAll("\n{3,}", "\n\n").trim() + "\n";
+        }
+
+        /**
+         * 有 href 且有文字或图片的 a 元素才输出为 Markdown 链接
+         **/
+        private static boolean isLink(Element a) {
+            return !hrefOf(a).isEmpty() && (!a.text().trim().isEmpty() || a.selectFirst("img") != null);
+        }
+
+        private static String hrefOf(Element a) {
+            String href = a.absUrl("href");
+            return href.isEmpty() ? a.attr("href").trim() : href;
+        }
+
+        private StringBuilder out() {
+            return buffers.peek();
+        }
+
+        private void appendText(String text) {
+            String collapsed = WHITESPACE.matcher(text).replaceAll(" ");
+            if (collapsed.trim().isEmpty() && atLineStart()) {
+                return;
+            }
+            if (atLineStart()) {
+                collapsed = collapsed.replaceAll("^ +", "");
+            }
+            String escaped = SPECIAL_CHARS.matcher(collapsed).replaceAll("\\\\$1");
+            if (tableRow == null) {
+                escaped = escaped.replace("|", "\\|");
+            }
+            if (atBlockStart()) {
+                Matcher marker = BLOCK_MARKER.matcher(escaped);
+                if (marker.lookingAt()) {
+                    int at = marker.end() - 1;
+                    escaped = escaped.substring(0, at) + '\\' + escaped.substring(at);
+                }
+            }
+            out().append(escaped);
+        }
+
+        private void appendInlineCode(String code) {
+            String fence = code.contains("`") ? "``" : "`";
+            out().append(fence).append(code.replace('\n', ' ')).append(fence);
+        }
+
+        /**
+         * 代码块：只取 code 子元素文本（跳过 CSDN 的行号列表），从 class 中识别语言
+         **/
+        private void appendCodeBlock(Element pre) {
+            Element code = pre.selectFirst("code");
+            String text = code != null ? code.wholeText() : pre.wholeText();
+            String language = languageOf(code);
+            if (language.isEmpty()) {
+                language = languageOf(pre);
+            }
+            String fence = text.contains("```") ? "~~~~" : "```";
+            blankLine();
+            StringBuilder out = out();
+            out.append(fence).append(language).append('\n').append(text);
+            if (!text.endsWith("\n")) {
+                out.append('\n');
+            }
+            out.append(fence);
+            blankLine();
+        }
+
+        private void appendImage(Element img) {
+            String src = img.absUrl("src");
+            if (src.isEmpty()) {
+                src = img.attr("src");
+            }
+            if (src.isEmpty()) {
+                return;
+            }
+            out().append("![").append(img.attr("alt").replace("]", "\\]")).append("](").append(src.replace(" ", "%20")).append(')');
+        }
+
+        /**
+         * 公式：优先使用 KaTeX/MathML 中保存的 TeX 源码；没有源码时只输出一次公式文本，
+         * KaTeX 的 MathML 与 HTML 两份渲染结果不会重复输出
+         **/
+        private FilterResult appendMath(Element el) {
+            Element annotation = el.selectFirst("annotation[encoding=application/x-tex]");
+            boolean display = el.hasClass("katex--display") || "block".equals(el.attr("display"));
+            if (annotation == null) {
+                Element mathml = "math".equals(el.normalName()) ? el : el.selectFirst("math");
+                if (display) {
+                    blankLine();
+                }
+                appendText((mathml != null ? mathml : el).text());
+                if (display) {
+                    blankLine();
+                }
+                return FilterResult.SKIP_CHILDREN;
+            }
+            String tex = annotation.wholeText().trim();
+            if (display) {
+                blankLine();
+                out().append("$$\n").append(tex).append("\n$$");
+                blankLine();
+            } else {
+                out().append('$').append(tex).append('$');
+            }
+            return FilterResult.SKIP_CHILDREN;
+        }
+
+        private void appendListMarker() {
+            newLine();
+            int[] list = lists.peek();
+            StringBuilder out = out();
+            out.append(repeat(' ', 2 * Math.max(0, lists.size() - 1)));
+            if (list == null || list[0] < 0) {
+                out.append("- ");
+            } else {
+                out.append(list[0]++).append(". ");
+            }
+        }
+
+        private void appendTableRow() {
+            if (tableRow == null || tableRow.isEmpty()) {
+                tableRow = null;
+                return;
+            }
+            StringBuilder out = out();
+            newLine();
+            out.append("| ").append(String.join(" | ", tableRow)).append(" |");
+            // Markdown 表格要求第一行为表头
+            if (tableRowIndex++ == 0) {
+                out.append("\n|");
+                for (int i = 0; i < tableRow.size(); i++) {
+                    out.append(" --- |");
+                }
+            }
+            out.append('\n');
+            tableRow = null;
+        }
+
+        private boolean isMath(Element el) {
+            return "math".equals(el.normalName()) || el.hasClass("katex--inline") || el.hasClass("katex--display");
+        }
+
+        private boolean insideListItem(Element el) {
+            return !lists.isEmpty() && el.parent() != null && "li".equals(el.parent().normalName());
+        }
+
+        private boolean atLineStart() {
+            StringBuilder out = out();
+            return out.length() == 0 || out.charAt(out.length() - 1) == '\n' || out.charAt(out.length() - 1) == ' ';
+        }
+
+        /**
+         * 是否位于一行的真正开头（行首的文本可能被解析为块级标记）
+         **/
+        private boolean atBlockStart() {
+            StringBuilder out = out();
+            return out.length() == 0 || out.charAt(out.length() - 1) == '\n';
+        }
+
+        private void newLine() {
+            StringBuilder out = out();
+            if (out.length() > 0 && out.charAt(out.length() - 1) != '\n') {
+                out.append('\n');
+            }
+        }
+
+        private void blankLine() {
+            StringBuilder out = out();
+            if (out.length() == 0) {
+                return;
+            }
+            newLine();
+            if (out.length() < 2 || out.charAt(out.length() - 2) != '\n') {
+                out.append('\n');
+            }
+        }
+
+        private static int startOf(Element ol) {
+            try {
+                return ol.hasAttr("start") ? Integer.parseInt(ol.attr("start").trim()) : 1;
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+
+        private static String languageOf(Element el) {
+            if (el == null) {
+                return "";
+            }
+            Matcher m = LANGUAGE_CLASS.matcher(el.className());
+            return m.find() ? m.group(1) : "";
+        }
+
+        private static String repeat(char c, int count) {
+            StringBuilder sb = new StringBuilder(count);
+            for (int i = 0; i < count; i++) {
+                sb.append(c);
+            }
+            return sb.toString();
+        }
+    }
+}
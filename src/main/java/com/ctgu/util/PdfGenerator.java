@@ -1,16 +1,14 @@
 package com.ctgu.util;
 
 
-import com.openhtmltopdf.outputdevice.helper.BaseRendererBuilder;
-import com.openhtmltopdf.pdfboxout.PdfRendererBuilder;
+import com.ctgu.service.PdfRenderService;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Entities;
 
-import java.io.ByteArrayInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 /**
  * @author lh2
@@ -21,46 +19,50 @@ import java.io.OutputStream;
 @Slf4j
 public class PdfGenerator {
     /**
-     * 将 HTML 字符串转换为 PDF 文件
+     * 将 HTML 字符串规范化为 XHTML（PDF 与 EPUB 共用）
      *
-     * @param html       符合 XHTML 规范的 HTML 字符串
+     * @param html 任意 HTML 字符串
+     * @return 格式良好的 XHTML 字符串
+     */
+    public static String toXhtml(String html) {
+        return toXhtml(Jsoup.parse(html));
+    }
+
+    /**
+     * 将已解析的文档序列化为 XHTML：使用 XML 语法输出自闭合标签，
+     * 实体只保留 XML 内置的几种（&nbsp; 等输出为数字引用），保证 XML 解析器可直接读取
+     *
+     * @param doc jsoup 文档（会修改其输出设置）
+     * @return 格式良好的 XHTML 字符串
+     */
+    public static String toXhtml(Document doc) {
+        doc.outputSettings()
+                .syntax(Document.OutputSettings.Syntax.xml)
+                .escapeMode(Entities.EscapeMode.xhtml)
+                .charset(StandardCharsets.UTF_8);
+        return doc.html();
+    }
+
+    /**
+     * 将 HTML 字符串转换为 PDF 文件（由常驻的 PdfRenderService 渲染，字体与缓存在多次调用间共享）
+     *
+     * @param html       HTML 字符串
      * @param outputPath PDF 文件保存的绝对路径
-     * @throws Exception 当字体缺失或 IO 异常时抛出
+     * @throws Exception 当 IO 异常或渲染失败时抛出
      **/
     public static void generate(String html, String outputPath) throws Exception {
-        // 1. 规范化HTML 为 XHTML
-        Document doc = Jsoup.parse(html);
-        doc.outputSettings().syntax(Document.OutputSettings.Syntax.xml);
-        // 替换 PDF 不支持的实体
-        String xhtml = doc.html()
-                .replace("&nbsp;", " ")
-                .replace("&quot;", "\"")
-                .replace("&lt;", "<")
-                .replace("&gt;", ">")
-                .replace("&amp;", "&");
-        try (OutputStream os = new FileOutputStream(outputPath)) {
-            PdfRendererBuilder builder = new PdfRendererBuilder();
-            // 2. 加载字体
-            boolean fontLoaded = false;
-            try (InputStream is = PdfGenerator.class.getResourceAsStream("/fonts/Alibaba-PuHuiTi-Regular.ttf")) {
-                if (is != null) {
-                    byte[] fontBytes = org.apache.commons.io.IOUtils.toByteArray(is);
-                    builder.useFont(() -> new ByteArrayInputStream(fontBytes), "MyChineseFont",
-                            400, BaseRendererBuilder.FontStyle.NORMAL, true);
-                    fontLoaded = true;
-                }
-            } catch (Exception e) {
-                System.err.println("自定义字体加载失败，尝试使用后备方案: " + e.getMessage());
-            }
-            // 如果没有找到自定义字体，PDFBox 可能会因为缺字体不显示中文 , 这里可以选择去加载系统字体，或仅依赖标准字体
-            if (!fontLoaded) {
-                // 尝试加载常见的系统字体作为后备 (Windows示例)
-                // builder.useFont(new File("C:\\Windows\\Fonts\\simhei.ttf"), "MyChineseFont");
-                System.err.println("警告: 未加载中文字体，PDF中文可能显示乱码。请确保 resources/fonts 目录下存在字体文件。");
-            }
-            builder.withHtmlContent(xhtml, null);
-            builder.toStream(os);
-            builder.run();
-        }
+        PdfRenderService.getInstance().render(html, new File(outputPath));
+    }
+
+    /**
+     * 将已保存的 HTML 文件转换为 PDF 文件，不需要在内存中保留 HTML 字符串
+     *
+     * @param htmlFile   UTF-8 编码的 HTML 文件
+     * @param baseUri    解析相对链接使用的地址
+     * @param outputPath PDF 文件保存的绝对路径
+     * @throws Exception 当 IO 异常或渲染失败时抛出
+     **/
+    public static void generate(File htmlFile, String baseUri, String outputPath) throws Exception {
+        PdfRenderService.getInstance().render(htmlFile, baseUri, new File(outputPath));
     }
-}
\ No newline at end of file
+}
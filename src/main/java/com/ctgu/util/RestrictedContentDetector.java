@@ -0,0 +1,194 @@
+package com.ctgu.util;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 受限内容检测工具类，判断文章是否被折叠或需要关注后才能阅读（反爬策略）。
+ * 提供基于选择器的 DOM 检测，以及在响应体流式读取过程中识别受限标记的字节扫描器，
+ * 命中后即可中止下载，直接切换爬虫 UA 重新请求
+ * @date 2026-01-03 14:42
+ */
+public class RestrictedContentDetector {
+    /**
+     * 受限页面在原始字节流中的特征标记（均为 ASCII，可直接按字节匹配）
+     **/
+    private static final byte[][] MARKERS = {
+            "class=\"hide-article-box".getBytes(StandardCharsets.US_ASCII),
+            "Custom-Access-Control".getBytes(StandardCharsets.US_ASCII)
+    };
+
+    /**
+     * KMP 失配表，失配时据此回退已匹配长度，保证每个字节只比较常数次
+     **/
+    private static final int[][] FAILURES = new int[MARKERS.length][];
+
+    static {
+        for (int m = 0; m < MARKERS.length; m++) {
+            byte[] marker = MARKERS[m];
+            int[] failure = new int[marker.length];
+            for (int i = 1, k = 0; i < marker.length; i++) {
+                while (k > 0 && marker[i] != marker[k]) {
+                    k = failure[k - 1];
+                }
+                if (marker[i] == marker[k]) {
+                    k++;
+                }
+                failure[i] = k;
+            }
+            FAILURES[m] = failure;
+        }
+    }
+
+    private RestrictedContentDetector() {
+    }
+
+    /**
+     * 基于选择器的受限检测：正文缺失、存在折叠提示框或被防火墙拦截
+     * 只做一次元素查找，不再把整棵 DOM 序列化成字符串搜索
+     *
+     * @param doc     已解析的文档
+     * @param content 按提取配置找到的正文元素，可能为空
+     * @param title   文章标题
+     * @return 是否需要切换爬虫模式
+     */
+    public static boolean isRestricted(Document doc, Element content, String title) {
+        return content == null
+                || doc.selectFirst(".hide-article-box") != null
+                || title.contains("Custom-Access-Control");
+    }
+
+    /**
+     * 创建一个新的流式字节扫描器
+     **/
+    public static Scanner newScanner() {
+        return new Scanner();
+    }
+
+    /**
+     * 包装输入流：读取过程中同步扫描受限标记，命中后立即返回 EOF，
+     * 解析器据此提前结束，调用方通过 {@link ScanningInputStream#isRestrictedDetected()} 判断是否需要回退
+     *
+     * @param in 原始响应体输入流
+     * @return 带扫描功能的输入流
+     */
+    public static ScanningInputStream scanning(InputStream in) {
+        return new ScanningInputStream(in);
+    }
+
+    /**
+     * 增量字节扫描器，可逐块喂入数据，能识别跨数据块边界的标记。
+     * 每个标记维护一个已匹配长度，整体只需对数据做一次遍历
+     **/
+    public static class Scanner {
+        private final int[] matched = new int[MARKERS.length];
+        private boolean detected = false;
+
+        /**
+         * 喂入一段数据
+         *
+         * @return 截止当前是否已命中受限标记
+         */
+        public boolean feed(byte[] buf, int off, int len) {
+            for (int i = off; i < off + len && !detected; i++) {
+                accept(buf[i]);
+            }
+            return detected;
+        }
+
+        /**
+         * 喂入 ByteBuffer 中剩余的数据，不改变其 position
+         **/
+        public boolean feed(ByteBuffer buf) {
+            for (int i = buf.position(); i < buf.limit() && !detected; i++) {
+                accept(buf.get(i));
+            }
+            return detected;
+        }
+
+        public boolean isDetected() {
+            return detected;
+        }
+
+        void accept(byte b) {
+            if (detected) {
+                return;
+            }
+            for (int m = 0; m < MARKERS.length; m++) {
+                byte[] marker = MARKERS[m];
+                int pos = matched[m];
+                while (pos > 0 && marker[pos] != b) {
+                    pos = FAILURES[m][pos - 1];
+                }
+                if (marker[pos] == b) {
+                    pos++;
+                }
+                if (pos == marker.length) {
+                    detected = true;
+                    return;
+                }
+                matched[m] = pos;
+            }
+        }
+    }
+
+    /**
+     * 边读边扫描的输入流，命中受限标记后停止继续读取
+     **/
+    public static class ScanningInputStream extends FilterInputStream {
+        private final Scanner scanner = new Scanner();
+
+        ScanningInputStream(InputStream in) {
+            super(in);
+        }
+
+        public boolean isRestrictedDetected() {
+            return scanner.isDetected();
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (scanner.isDetected()) {
+                return -1;
+            }
+            int b = super.read();
+            if (b >= 0) {
+                scanner.accept((byte) b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (scanner.isDetected()) {
+                return -1;
+            }
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                scanner.feed(b, off, n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // 跳过的数据同样需要扫描，这里按读取处理
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            int read = read(buf, 0, buf.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+}
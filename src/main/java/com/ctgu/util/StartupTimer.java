@@ -0,0 +1,55 @@
+package com.ctgu.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.RuntimeMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 启动耗时统计：main 方法开始时调用 begin()，程序可以开始工作时调用 ready()，
+ * 日志中输出 JVM 启动到 main、main 到就绪两段耗时以及是否使用了 CDS 归档，便于对比冷启动优化效果
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class StartupTimer {
+    private static volatile long mainNanos;
+    private static final AtomicBoolean REPORTED = new AtomicBoolean();
+
+    private StartupTimer() {
+    }
+
+    /**
+     * 记录 main 方法开始的时间
+     **/
+    public static void begin() {
+        mainNanos = System.nanoTime();
+    }
+
+    /**
+     * 输出启动耗时，只在第一次调用时输出
+     *
+     * @param mode 运行模式（图形界面、无界面、守护进程等）
+     */
+    public static void ready(String mode) {
+        if (mainNanos == 0 || !REPORTED.compareAndSet(false, true)) {
+            return;
+        }
+        long sinceMainMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mainNanos);
+        // 管理接口在就绪之后才加载，不计入启动耗时
+        RuntimeMXBean runtime = ManagementFactory.getRuntimeMXBean();
+        long uptimeMs = runtime.getUptime();
+        boolean cds = false;
+        for (String arg : runtime.getInputArguments()) {
+            if (arg.startsWith("-XX:SharedArchiveFile")) {
+                cds = true;
+                break;
+            }
+        }
+        log.info("启动完成（{}）: JVM 启动到 main {}ms，main 到就绪 {}ms，合计 {}ms，CDS 归档{}",
+                mode, Math.max(0, uptimeMs - sinceMainMs), sinceMainMs, uptimeMs, cds ? "已启用" : "未启用");
+    }
+}
@@ -0,0 +1,121 @@
+package com.ctgu.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: URL 工具类，负责文章链接的识别与规范化（去除查询参数、锚点等），便于去重
+ * @date 2026-01-03 14:42
+ */
+public class UrlUtils {
+    private static final Pattern ARTICLE_ID_PATTERN = Pattern.compile("/article/details/(\\d+)");
+
+    private UrlUtils() {
+    }
+
+    /**
+     * 是否为文章详情页链接（不限制域名，便于指向本地测试服务）
+     **/
+    public static boolean isArticleUrl(String url) {
+        return url != null && ARTICLE_ID_PATTERN.matcher(url).find();
+    }
+
+    /**
+     * 从文章链接中提取文章 ID
+     *
+     * @return 文章 ID，非文章链接时返回 null
+     */
+    public static String extractArticleId(String url) {
+        if (url == null) {
+            return null;
+        }
+        Matcher m = ARTICLE_ID_PATTERN.matcher(url);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * 把 CSDN 链接的协议与主机替换为指定地址（用于指向本地测试服务），其他链接原样返回
+     *
+     * @param url     原始链接
+     * @param baseUrl 形如 http://127.0.0.1:18080 的地址，为空时不替换
+     * @return 替换后的链接
+     */
+    public static String rebase(String url, String baseUrl) {
+        if (url == null || baseUrl == null || baseUrl.trim().isEmpty()) {
+            return url;
+        }
+        try {
+            URI uri = new URI(url.trim());
+            if (!isCsdnHost(uri.getHost())) {
+                return url;
+            }
+            String base = baseUrl.trim();
+            while (base.endsWith("/")) {
+                base = base.substring(0, base.length() - 1);
+            }
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            return base + path + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    /**
+     * 是否为 CSDN 站点（csdn.net 及其子域名）的链接，或指向配置的替换地址（csdn.base.url）
+     *
+     * @param baseUrl 替换地址，为空时只接受 CSDN 链接
+     */
+    public static boolean isCsdnUrl(String url, String baseUrl) {
+        if (url == null) {
+            return false;
+        }
+        try {
+            URI uri = new URI(url.trim());
+            if (isCsdnHost(uri.getHost())) {
+                return true;
+            }
+            if (baseUrl == null || baseUrl.trim().isEmpty() || uri.getHost() == null) {
+                return false;
+            }
+            URI base = new URI(baseUrl.trim());
+            return uri.getHost().equalsIgnoreCase(base.getHost()) && uri.getPort() == base.getPort();
+        } catch (URISyntaxException e) {
+            return false;
+        }
+    }
+
+    private static boolean isCsdnHost(String host) {
+        return host != null && (host.equalsIgnoreCase("csdn.net") || host.toLowerCase().endsWith(".csdn.net"));
+    }
+
+    /**
+     * 规范化链接：去掉首尾空白、查询参数与锚点，主机名转小写，去掉末尾斜杠
+     *
+     * @param url 原始链接
+     * @return 规范化后的链接，无法解析时返回去掉空白后的原值
+     */
+    public static String canonicalize(String url) {
+        if (url == null) {
+            return null;
+        }
+        String trimmed = url.trim();
+        try {
+            URI uri = new URI(trimmed);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return trimmed;
+            }
+            String path = uri.getRawPath() == null ? "" : uri.getRawPath();
+            while (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String port = uri.getPort() > 0 ? ":" + uri.getPort() : "";
+            return uri.getScheme().toLowerCase() + "://" + uri.getHost().toLowerCase() + port + path;
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.ctgu;
+
+import com.ctgu.tool.CsdnStubServer;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 守护进程 REST 接口测试：下载器指向本地 CSDN 模拟服务，验证提交任务与参数校验、任务状态、
+ * SSE 进度推送，以及文件下载只允许访问输出目录内的文件
+ * @date 2026-01-03 14:42
+ */
+class DaemonServerTest {
+    private static final String AUTHOR = "daemon";
+    private static final Pattern JOB_ID = Pattern.compile("\"id\":\"([\\w-]+)\"");
+
+    @TempDir
+    File out;
+    @TempDir
+    File outside;
+
+    private CsdnStubServer stub;
+    private DaemonServer daemon;
+
+    @AfterEach
+    void stop() {
+        if (daemon != null) {
+            daemon.stop();
+        }
+        if (stub != null) {
+            stub.close();
+        }
+    }
+
+    @Test
+    void submitValidatesInputsAndReportsStatus() throws Exception {
+        start(CsdnStubServer.Options.builder());
+        assertEquals(400, request("POST", "/jobs", "https://example.com/foo\n").status);
+        assertEquals(400, request("POST", "/jobs?priority=URGENT", url(1)).status);
+        assertEquals(404, request("GET", "/jobs/missing", null).status);
+        assertEquals(404, request("GET", "/nothing", null).status);
+
+        Response submitted = request("POST", "/jobs?priority=high", "# 注释行\n" + url(1) + "\n" + url(2) + "\nhttps://example.com/foo\n");
+        assertEquals(202, submitted.status);
+        assertTrue(submitted.body.contains("\"inputs\":2"), submitted.body);
+        assertTrue(submitted.body.contains("\"rejected\":[\"https://example.com/foo\"]"), submitted.body);
+        String id = jobId(submitted);
+
+        String status = awaitFinished(id);
+        assertTrue(status.contains("\"total\":2") && status.contains("\"succeeded\":2") && status.contains("\"failed\":0"), status);
+        assertTrue(status.contains("\"index\":0,\"url\":\"" + url(1) + "\",\"stage\":\"DONE\""), status);
+        assertTrue(status.contains("\"index\":1,\"url\":\"" + url(2) + "\",\"stage\":\"DONE\""), status);
+        assertTrue(request("GET", "/jobs", null).body.contains("\"id\":\"" + id + "\""));
+        assertTrue(request("GET", "/health", null).body.contains("\"status\":\"ok\""));
+
+        // JSON 请求体与行格式等价
+        Response json = request("POST", "/jobs", "{\"urls\": [\"" + url(3) + "\"]}");
+        assertEquals(202, json.status);
+        assertTrue(awaitFinished(jobId(json)).contains("\"succeeded\":1"));
+    }
+
+    @Test
+    void eventsStreamSnapshotArticlesAndDone() throws Exception {
+        // 每篇文章延迟响应，保证订阅时任务仍在运行
+        start(CsdnStubServer.Options.builder().slowEvery(1).slowDelayMs(300));
+        String id = jobId(request("POST", "/jobs", url(1) + "\n" + url(2) + "\n" + url(3)));
+
+        List<String> events = new ArrayList<>();
+        String done = null;
+        HttpURLConnection conn = open("GET", "/jobs/" + id + "/events");
+        assertEquals(200, conn.getResponseCode());
+        assertTrue(conn.getContentType().startsWith("text/event-stream"));
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            String event = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("event: ")) {
+                    event = line.substring("event: ".length());
+                    events.add(event);
+                } else if (line.startsWith("data: ") && "done".equals(event)) {
+                    done = line;
+                }
+            }
+        }
+        assertEquals("snapshot", events.get(0));
+        assertEquals("done", events.get(events.size() - 1));
+        assertTrue(events.contains("article"), events.toString());
+        assertTrue(done != null && done.contains("\"state\":\"FINISHED\"") && done.contains("\"succeeded\":3"), done);
+    }
+
+    @Test
+    void downloadsOnlyFilesInsideTheOutputDirectory() throws Exception {
+        start(CsdnStubServer.Options.builder());
+        String id = jobId(request("POST", "/jobs", url(1) + "\n" + url(2)));
+        awaitFinished(id);
+
+        Response html = request("GET", "/jobs/" + id + "/articles/0/html", null);
+        assertEquals(200, html.status);
+        assertTrue(html.contentType.startsWith("text/html"), html.contentType);
+        assertTrue(html.body.contains("<html"), html.body);
+        // 未生成 PDF、序号越界与未知扩展名都返回 404
+        assertEquals(404, request("GET", "/jobs/" + id + "/articles/0/pdf", null).status);
+        assertEquals(404, request("GET", "/jobs/" + id + "/articles/9/html", null).status);
+        assertEquals(404, request("GET", "/jobs/" + id + "/articles/0/properties", null).status);
+
+        // 输出目录中的文件被替换为指向目录外的符号链接时拒绝访问
+        Path saved = savedHtml(id, 1);
+        Path secret = new File(outside, "secret.html").toPath();
+        Files.move(saved, secret);
+        Files.createSymbolicLink(saved, secret);
+        assertEquals(404, request("GET", "/jobs/" + id + "/articles/1/html", null).status);
+        assertEquals(200, request("GET", "/jobs/" + id + "/articles/0/html", null).status);
+    }
+
+    private void start(CsdnStubServer.Options.OptionsBuilder options) throws IOException {
+        stub = CsdnStubServer.startOnFreePort(options.paragraphs(3).imagesPerArticle(0));
+        Properties props = new Properties();
+        props.setProperty("csdn.base.url", stub.getBaseUrl());
+        props.setProperty("request.rate.limit", "0");
+        props.setProperty("timeout.seconds", "10");
+        props.setProperty("output.layout", "hash");
+        props.setProperty("delay.ms", "0");
+        daemon = new DaemonServer(new RunnerOptions(props));
+        daemon.parseArgs(new String[]{"--port", "0", "--out", out.getAbsolutePath(), "--no-pdf", "--no-markdown"});
+        daemon.start();
+    }
+
+    /**
+     * 轮询任务状态直到结束，返回最终状态
+     **/
+    private String awaitFinished(String id) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 60000;
+        while (System.currentTimeMillis() < deadline) {
+            Response status = request("GET", "/jobs/" + id, null);
+            assertEquals(200, status.status);
+            if (!status.body.contains("\"state\":\"RUNNING\"")) {
+                return status.body;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("任务未在限定时间内结束: " + id);
+    }
+
+    private Path savedHtml(String id, int index) throws IOException {
+        Matcher m = Pattern.compile("\"index\":" + index + ",.*?\"savedPath\":\"([^\"]+)\"").matcher(request("GET", "/jobs/" + id, null).body);
+        assertTrue(m.find());
+        return new File(m.group(1).replace("\\\\", "\\") + ".html").toPath();
+    }
+
+    private static String jobId(Response response) {
+        assertEquals(202, response.status, response.body);
+        Matcher m = JOB_ID.matcher(response.body);
+        assertTrue(m.find(), response.body);
+        return m.group(1);
+    }
+
+    private static String url(int id) {
+        return "https://blog.csdn.net/" + AUTHOR + "/article/details/" + id;
+    }
+
+    private HttpURLConnection open(String method, String path) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://127.0.0.1:" + daemon.getPort() + path).openConnection();
+        conn.setRequestMethod(method);
+        conn.setConnectTimeout(5000);
+        conn.setReadTimeout(30000);
+        return conn;
+    }
+
+    private Response request(String method, String path, String body) throws IOException {
+        HttpURLConnection conn = open(method, path);
+        if (body != null) {
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = conn.getResponseCode();
+        InputStream in = status < 400 ? conn.getInputStream() : conn.getErrorStream();
+        String text = in == null ? "" : IOUtils.toString(in, StandardCharsets.UTF_8);
+        return new Response(status, text, conn.getContentType());
+    }
+
+    private static final class Response {
+        private final int status;
+        private final String body;
+        private final String contentType;
+
+        private Response(int status, String body, String contentType) {
+            this.status = status;
+            this.body = body;
+            this.contentType = contentType;
+        }
+    }
+}
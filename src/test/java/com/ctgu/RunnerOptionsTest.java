@@ -0,0 +1,79 @@
+package com.ctgu;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 运行参数测试：配置文件提供默认值，命令行覆盖通用参数，模式特有参数交给回调，
+ * 链接来自位置参数与链接文件，未知参数与缺少参数值时报错
+ * @date 2026-01-03 14:42
+ */
+class RunnerOptionsTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void commandLineOverridesConfig() throws Exception {
+        Properties props = new Properties();
+        props.setProperty("output.dir", "/data/csdn");
+        props.setProperty("thread.pool.size", "3");
+        props.setProperty("delay.ms", "abc");
+        props.setProperty("export.markdown", "true");
+        RunnerOptions options = new RunnerOptions(props);
+        assertEquals("/data/csdn", options.getSavePath());
+        assertEquals(3, options.getThreads());
+        // 格式错误的配置使用默认值
+        assertEquals(1500, options.getDelay());
+        assertTrue(options.isMarkdownEnabled());
+
+        AtomicReference<String> queue = new AtomicReference<>();
+        options.parse(new String[]{"--out", "/tmp/out", "--no-pdf", "--no-markdown", "--low-memory", "--queue", "/shared"}, false, (args, i) -> {
+            if ("--queue".equals(args[i])) {
+                queue.set(RunnerOptions.requireValue(args, i + 1, args[i]));
+                return i + 1;
+            }
+            return -1;
+        });
+        assertEquals("/tmp/out", options.getSavePath());
+        assertFalse(options.isPdfEnabled());
+        assertFalse(options.isMarkdownEnabled());
+        assertTrue(options.isPdfBoundedMemory());
+        assertEquals("/shared", queue.get());
+        assertTrue(options.getInputs().isEmpty());
+    }
+
+    @Test
+    void linksComeFromArgumentsAndFiles() throws Exception {
+        File links = new File(dir, "links.txt");
+        Files.write(links.toPath(), Arrays.asList("# 注释", "", " https://blog.csdn.net/a/article/details/2 ", "https://blog.csdn.net/a/article/details/1"),
+                StandardCharsets.UTF_8);
+        RunnerOptions options = new RunnerOptions(new Properties());
+        options.parse(new String[]{"https://blog.csdn.net/a/article/details/1", "--file", links.getAbsolutePath()}, true, (args, i) -> -1);
+        assertEquals(Arrays.asList("https://blog.csdn.net/a/article/details/1", "https://blog.csdn.net/a/article/details/2"),
+                Arrays.asList(options.getInputs().toArray()));
+    }
+
+    @Test
+    void rejectsUnknownArgumentsAndMissingValues() {
+        RunnerOptions options = new RunnerOptions(new Properties());
+        assertThrows(IllegalArgumentException.class, () -> options.parse(new String[]{"--bogus"}, true, (args, i) -> -1));
+        // 不接受链接的模式把位置参数视为未知参数
+        assertThrows(IllegalArgumentException.class, () -> options.parse(new String[]{"https://blog.csdn.net/a"}, false, (args, i) -> -1));
+        assertThrows(IllegalArgumentException.class, () -> options.parse(new String[]{"--out"}, false, (args, i) -> -1));
+        assertThrows(IllegalArgumentException.class, options::requireSavePath);
+    }
+}
@@ -0,0 +1,131 @@
+package com.ctgu.service;
+
+import com.ctgu.tool.CsdnStubServer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 文章发现器测试：入口为 CSDN 链接，替换到本地模拟服务后翻页抓取主页、列表页与专栏页，
+ * 验证文章数量与顺序、只收录本博主文章、链接指向模拟服务并去掉查询参数、到达末页后停止、429 时的重试，以及拒绝非 CSDN 入口
+ * @date 2026-01-03 14:42
+ */
+class ArticleDiscovererTest {
+    private static final String AUTHOR = "discover";
+
+    @BeforeAll
+    static void unlimitedRate() {
+        RateLimiter.global().setRate(0);
+    }
+
+    @Test
+    void homepageFollowsListPagesUntilTheLastOne() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().articlesPerList(20).totalArticles(95))) {
+            List<String> links = discover(stub, "https://blog.csdn.net/" + AUTHOR, 3);
+            List<String> expected = new ArrayList<>();
+            for (int id = 1; id <= 95; id++) {
+                expected.add(url(stub, id));
+            }
+            // 按列表顺序推送，侧边栏中其他博主的文章不收录
+            assertEquals(expected, links);
+        }
+    }
+
+    @Test
+    void listPageEntryDiscoversTheSameArticles() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().articlesPerList(20).totalArticles(45))) {
+            List<String> links = discover(stub, "https://blog.csdn.net/" + AUTHOR + "/article/list/2", 3);
+            assertEquals(45, links.size());
+            assertEquals(url(stub, 1), links.get(0));
+            assertEquals(url(stub, 45), links.get(44));
+        }
+    }
+
+    @Test
+    void columnPagesAreFollowedAndQueryParametersDropped() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().articlesPerList(20).columnArticles(50))) {
+            List<String> links = discover(stub, "https://blog.csdn.net/" + AUTHOR + "/category_7.html", 3);
+            assertEquals(50, links.size());
+            assertEquals(url(stub, 700001), links.get(0));
+            assertEquals(url(stub, 700050), links.get(49));
+        }
+    }
+
+    @Test
+    void rateLimitedPagesAreRetriedBeforeEndingTheCrawl() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().articlesPerList(20).totalArticles(30).listFailures(2))) {
+            List<String> links = discover(stub, "https://blog.csdn.net/" + AUTHOR, 3);
+            assertEquals(30, links.size());
+            assertTrue(stub.getInjectedErrors() >= 4, "前两页各应返回两次 429");
+        }
+    }
+
+    @Test
+    void crawlEndsWhenRetriesAreExhausted() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().articlesPerList(20).totalArticles(30).listFailures(5))) {
+            List<String> links = discover(stub, "https://blog.csdn.net/" + AUTHOR, 1);
+            assertTrue(links.isEmpty());
+        }
+    }
+
+    @Test
+    void rejectsUnsupportedEntries() throws Exception {
+        assertTrue(ArticleDiscoverer.isListingUrl("https://blog.csdn.net/" + AUTHOR));
+        assertTrue(ArticleDiscoverer.isListingUrl("https://blog.csdn.net/" + AUTHOR + "/category_7_2.html"));
+        assertFalse(ArticleDiscoverer.isListingUrl("https://blog.csdn.net/" + AUTHOR + "/article/details/1"));
+        // 其他站点的路径即使形如主页或列表页也不是入口，替换地址只在配置后接受
+        assertFalse(ArticleDiscoverer.isListingUrl("https://example.com/foo"));
+        assertFalse(ArticleDiscoverer.isListingUrl("https://example.com/foo/article/list/2"));
+        assertFalse(ArticleDiscoverer.isListingUrl("http://127.0.0.1:18080/foo"));
+        assertTrue(ArticleDiscoverer.isListingUrl("http://127.0.0.1:18080/foo", "http://127.0.0.1:18080"));
+        assertFalse(ArticleDiscoverer.isListingUrl("http://127.0.0.1:18081/foo", "http://127.0.0.1:18080"));
+        ArticleDiscoverer discoverer = new ArticleDiscoverer("test", 5000, 2, 10, 0);
+        try {
+            ExecutionException e = assertThrows(ExecutionException.class,
+                    () -> discoverer.discover("https://blog.csdn.net/" + AUTHOR + "/article/details/1", link -> { }).get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            e = assertThrows(ExecutionException.class,
+                    () -> discoverer.discover("https://example.com/foo", link -> { }).get(10, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+        } finally {
+            discoverer.shutdown();
+        }
+    }
+
+    /**
+     * 从入口发现文章，等待发现结束，按推送顺序返回链接
+     **/
+    private static List<String> discover(CsdnStubServer stub, String entry, int retries)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        ArticleDiscoverer discoverer = new ArticleDiscoverer("test", 5000, 2, 20, retries);
+        discoverer.setBaseUrl(stub.getBaseUrl());
+        try {
+            List<String> links = Collections.synchronizedList(new ArrayList<>());
+            int count = discoverer.discover(entry, links::add).get(60, TimeUnit.SECONDS);
+            assertEquals(count, links.size());
+            return links;
+        } finally {
+            discoverer.shutdown();
+        }
+    }
+
+    /**
+     * 入口替换到模拟服务后，发现的文章链接也指向模拟服务
+     **/
+    private static String url(CsdnStubServer stub, long id) {
+        return stub.getBaseUrl() + "/" + AUTHOR + "/article/details/" + id;
+    }
+}
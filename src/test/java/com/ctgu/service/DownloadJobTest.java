@@ -0,0 +1,84 @@
+package com.ctgu.service;
+
+import com.ctgu.tool.CsdnStubServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 守护进程任务测试：限制保留数量的常驻任务只保留最近结束的文章，被移除的文章不再出现在进度中，
+ * 其链接也不再参与任务内去重；统计数字仍按全部文章计算
+ * @date 2026-01-03 14:42
+ */
+class DownloadJobTest {
+    @TempDir
+    File out;
+
+    @AfterAll
+    static void shutdownAsync() {
+        CSDNDownloader.shutdownAsync();
+    }
+
+    @Test
+    void finishedArticlesBeyondTheLimitAreDropped() throws Exception {
+        DownloadScheduler scheduler = new DownloadScheduler(4, 0);
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().paragraphs(3).imagesPerArticle(0));
+             ArticleSaver saver = new ArticleSaver(out.getAbsolutePath(), new OutputLayout(OutputLayout.Scheme.HASH, 150))) {
+            saver.setPdfEnabled(false);
+            Properties props = new Properties();
+            props.setProperty("csdn.base.url", stub.getBaseUrl());
+            props.setProperty("request.rate.limit", "0");
+            props.setProperty("timeout.seconds", "10");
+            props.setProperty("output.layout", "hash");
+            // 与常驻任务一样不调用 release()，任务一直处于运行状态
+            DownloadJob job = new DownloadJob("watch", new CSDNDownloader(props), saver, scheduler, 0, DownloadScheduler.Priority.NORMAL);
+            job.setFinishedLimit(3);
+            for (int id = 1; id <= 10; id++) {
+                assertTrue(job.addArticle(url(id)));
+            }
+            long deadline = System.currentTimeMillis() + 60000;
+            // 成功计数先于移除旧文章更新，等到两者都稳定
+            while (!job.summaryJson().contains("\"retained\":3,\"succeeded\":10") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            String summary = job.summaryJson();
+            assertTrue(summary.contains("\"total\":10,\"retained\":3,\"succeeded\":10,\"failed\":0"), summary);
+            assertEquals(DownloadJob.State.RUNNING, job.getState());
+
+            List<Integer> retained = new ArrayList<>();
+            List<Integer> dropped = new ArrayList<>();
+            for (int index = 0; index < 10; index++) {
+                (job.getArticle(index) != null ? retained : dropped).add(index);
+            }
+            assertEquals(3, retained.size());
+            assertEquals(3, job.toJson(true).split("\"index\":").length - 1);
+            for (int index : retained) {
+                assertEquals("DONE", job.getArticle(index).getStage());
+                assertFalse(job.addArticle(url(index + 1)), "保留的文章仍参与去重");
+            }
+            // 被移除的文章可以再次加入，新文章使用新的序号
+            assertTrue(job.addArticle(url(dropped.get(0) + 1)));
+            assertNull(job.getArticle(dropped.get(0)));
+            assertTrue(job.summaryJson().contains("\"total\":11"));
+            job.cancel();
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static String url(int id) {
+        return "https://blog.csdn.net/job/article/details/" + id;
+    }
+}
@@ -0,0 +1,302 @@
+package com.ctgu.service;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.entity.SaveStatus;
+import com.ctgu.tool.CsdnStubServer;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 下载流水线测试：批量下载引擎对接本地 CSDN 模拟服务，验证下载、保存、增量跳过与失败处理。
+ * 输出使用 hash 布局（文件名为文章 ID），结果与系统区域设置无关。PDF 用例覆盖清洗、保存到渲染的完整流程，
+ * 包括低内存模式下从 HTML 文件渲染、图片经资源缓存读取并嵌入 PDF
+ * @date 2026-01-03 14:42
+ */
+class DownloadPipelineTest {
+    private static final String AUTHOR = "pipeline";
+
+    @TempDir
+    File out;
+
+    @AfterAll
+    static void shutdownAsync() {
+        CSDNDownloader.shutdownAsync();
+    }
+
+    @Test
+    void savesEveryArticleAndSkipsUnchangedOnSecondRun() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder());
+             ArticleSaver saver = saver()) {
+            CSDNDownloader downloader = downloader(stub, false);
+            List<DownloadResult> first = download(downloader, saver, 1, 20);
+            assertTrue(first.stream().allMatch(DownloadResult::isSuccess));
+            assertEquals(20, saver.getNewCount());
+            assertEquals(20, htmlFiles().size());
+            // 表头 + 每篇一条记录
+            assertEquals(21, Files.readAllLines(journal().toPath(), StandardCharsets.UTF_8).size());
+
+            List<DownloadResult> second = download(downloader, saver, 1, 20);
+            assertTrue(second.stream().allMatch(r -> r.getSaveStatus() == SaveStatus.UNCHANGED));
+            assertEquals(20, saver.getNewCount());
+            assertEquals(20, saver.getUnchangedCount());
+            assertEquals(20, htmlFiles().size());
+        }
+    }
+
+    @Test
+    void notFoundArticlesFailWith404AndWriteNoFiles() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().notFoundEvery(5));
+             ArticleSaver saver = saver()) {
+            List<DownloadResult> results = download(downloader(stub, false), saver, 1, 20);
+            List<DownloadResult> failed = failures(results);
+            assertEquals(4, failed.size());
+            assertTrue(failed.stream().allMatch(r -> r.getHttpStatus() == 404 && !r.isArticleExists()));
+            assertEquals(16, saver.getNewCount());
+            assertEquals(16, htmlFiles().size());
+            assertEquals(4, journalLines("FAILED").size());
+        }
+    }
+
+    @Test
+    void rateLimitedResponsesFailAndKeepPreviouslySavedFiles() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder());
+             ArticleSaver saver = saver()) {
+            download(downloader(stub, false), saver, 1, 10);
+            assertEquals(10, htmlFiles().size());
+            try (CsdnStubServer limited = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().errorRate(1.0))) {
+                List<DownloadResult> results = download(downloader(limited, false), saver, 1, 10);
+                assertEquals(10, failures(results).size());
+                assertTrue(results.stream().allMatch(r -> r.getHttpStatus() == 429 || r.getHttpStatus() == 503));
+                assertTrue(results.stream().allMatch(DownloadResult::isArticleExists));
+            }
+            // 失败记录不影响已保存的文章：恢复后内容未变化，沿用原文件
+            List<DownloadResult> again = download(downloader(stub, false), saver, 1, 10);
+            assertTrue(again.stream().allMatch(r -> r.getSaveStatus() == SaveStatus.UNCHANGED));
+            assertEquals(10, htmlFiles().size());
+        }
+    }
+
+    @Test
+    void unwritableOutputFailsTheArticleAndRecordsIt() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder());
+             ArticleSaver saver = saver()) {
+            // 文章 3 的 HTML 路径被同名目录占用，写文件时抛出 IOException
+            DownloadResult third = DownloadResult.builder().success(true).url(url(3)).articleId("3").build();
+            File blocked = new File(new OutputLayout(OutputLayout.Scheme.HASH, 150).resolve(out, third, 1) + ".html");
+            assertTrue(blocked.mkdir());
+
+            List<DownloadResult> results = download(downloader(stub, false), saver, 1, 5);
+            List<DownloadResult> failed = failures(results);
+            assertEquals(1, failed.size());
+            assertEquals(url(3), failed.get(0).getUrl());
+            assertEquals(4, saver.getNewCount());
+            assertEquals(4, htmlFiles().size());
+            assertEquals(1, journalLines("FAILED").size());
+
+            // 失败的文章没有被当作已保存：路径恢复后重新下载即可保存
+            assertTrue(blocked.delete());
+            List<DownloadResult> retry = download(downloader(stub, false), saver, 3, 3);
+            assertEquals(SaveStatus.NEW, retry.get(0).getSaveStatus());
+            assertEquals(5, htmlFiles().size());
+        }
+    }
+
+    @Test
+    void restrictedArticlesFallBackToFullContent() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().restrictedEvery(2));
+             ArticleSaver saver = saver()) {
+            List<DownloadResult> results = download(downloader(stub, false), saver, 1, 6);
+            assertTrue(results.stream().allMatch(DownloadResult::isSuccess));
+            for (DownloadResult result : results) {
+                String html = new String(Files.readAllBytes(new File(result.getSavedPath() + ".html").toPath()), StandardCharsets.UTF_8);
+                // 受限页只有开头几段且没有图片，切换爬虫 UA 后取得全文
+                assertTrue(html.contains("示意图1"), result.getUrl());
+                assertFalse(html.contains("关注博主即可阅读全文"), result.getUrl());
+            }
+        }
+    }
+
+    @Test
+    void asyncModeMatchesSyncResults() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().notFoundEvery(5).restrictedEvery(3));
+             ArticleSaver saver = saver()) {
+            List<DownloadResult> results = download(downloader(stub, true), saver, 1, 20);
+            List<DownloadResult> failed = failures(results);
+            assertEquals(4, failed.size());
+            assertTrue(failed.stream().allMatch(r -> r.getHttpStatus() == 404));
+            assertEquals(16, saver.getNewCount());
+            assertEquals(16, htmlFiles().size());
+        }
+    }
+
+    @Test
+    void generatesPdfAlongsideHtml() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().paragraphs(5));
+             ArticleSaver saver = saver()) {
+            saver.setPdfEnabled(true);
+            List<DownloadResult> results = download(downloader(stub, false), saver, 1, 2);
+            for (DownloadResult result : results) {
+                File pdf = new File(result.getSavedPath() + ".pdf");
+                assertTrue(pdf.isFile() && pdf.length() > 0, pdf.getPath());
+            }
+        }
+    }
+
+    @Test
+    void boundedMemoryPdfRendersFromSavedHtmlWithCachedImages() throws Exception {
+        PdfRenderService renderer = PdfRenderService.getInstance();
+        ResourceCache cache = new ResourceCache(new File(out, ".resource-cache"), 1024 * 1024, 16 * 1024 * 1024, "test", 10000);
+        renderer.setResourceCache(cache);
+        renderer.setBoundedMemory(true);
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().paragraphs(5).imagesPerArticle(2));
+             ArticleSaver saver = saver()) {
+            saver.setPdfEnabled(true);
+            List<DownloadResult> results = download(downloader(stub, false), saver, 1, 3);
+            assertTrue(results.stream().allMatch(DownloadResult::isSuccess));
+            for (DownloadResult result : results) {
+                // 低内存模式下页面 HTML 不保留在结果中，PDF 从已写出的 HTML 文件渲染
+                assertNull(result.getHtml(), result.getUrl());
+                assertTrue(new File(result.getSavedPath() + ".html").isFile());
+                File pdf = new File(result.getSavedPath() + ".pdf");
+                assertTrue(pdf.isFile(), pdf.getPath());
+                assertEquals(2, pdfImageCount(pdf), pdf.getPath());
+            }
+            // 每张图片经资源缓存下载一次：3 篇文章各 2 张
+            assertEquals(6, cache.getMissCount());
+            assertEquals(0, cache.getFailedCount());
+        } finally {
+            renderer.setBoundedMemory(false);
+            renderer.setResourceCache(ResourceCache.getShared());
+        }
+    }
+
+    @Test
+    void headRequestsReturnHeadersOnlyAndPreflightDetectsMissingArticles() throws Exception {
+        try (CsdnStubServer stub = CsdnStubServer.startOnFreePort(CsdnStubServer.Options.builder().notFoundEvery(2))) {
+            HttpURLConnection conn = (HttpURLConnection) new URL(stub.getBaseUrl() + "/" + AUTHOR + "/article/details/1").openConnection();
+            conn.setRequestMethod("HEAD");
+            assertEquals(200, conn.getResponseCode());
+            assertTrue(conn.getContentLengthLong() > 0);
+            try (InputStream body = conn.getInputStream()) {
+                assertEquals(-1, body.read());
+            }
+
+            List<LinkPreflight.Result> results = new LinkPreflight(downloader(stub, false), 2).check(Arrays.asList(url(1), url(2)), null);
+            assertEquals(LinkPreflight.Status.LIVE, results.get(0).getStatus());
+            assertEquals(LinkPreflight.Status.NOT_FOUND, results.get(1).getStatus());
+        }
+    }
+
+    /**
+     * PDF 中嵌入的图片数量
+     **/
+    private static int pdfImageCount(File pdf) throws IOException {
+        int count = 0;
+        try (PDDocument document = PDDocument.load(pdf)) {
+            for (PDPage page : document.getPages()) {
+                for (COSName name : page.getResources().getXObjectNames()) {
+                    if (page.getResources().isImageXObject(name)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private static CSDNDownloader downloader(CsdnStubServer stub, boolean async) {
+        Properties props = new Properties();
+        props.setProperty("csdn.base.url", stub.getBaseUrl());
+        props.setProperty("request.rate.limit", "0");
+        props.setProperty("timeout.seconds", "10");
+        props.setProperty("output.layout", "hash");
+        props.setProperty("download.async", String.valueOf(async));
+        return new CSDNDownloader(props);
+    }
+
+    private ArticleSaver saver() throws IOException {
+        ArticleSaver saver = new ArticleSaver(out.getAbsolutePath(), new OutputLayout(OutputLayout.Scheme.HASH, 150));
+        saver.setPdfEnabled(false);
+        return saver;
+    }
+
+    /**
+     * 下载文章 ID 为 from..to 的文章，等待全部完成，按提交顺序返回结果
+     **/
+    private static List<DownloadResult> download(CSDNDownloader downloader, ArticleSaver saver, int from, int to) throws InterruptedException {
+        DownloadScheduler scheduler = new DownloadScheduler(4, 0);
+        try {
+            Map<Integer, DownloadResult> results = new ConcurrentSkipListMap<>();
+            CountDownLatch done = new CountDownLatch(to - from + 1);
+            BatchDownloadEngine engine = new BatchDownloadEngine(downloader, saver, scheduler, 0, new BatchDownloadEngine.Listener() {
+                @Override
+                public void onComplete(int index, DownloadResult result) {
+                    results.put(index, result);
+                    done.countDown();
+                }
+            });
+            for (int id = from; id <= to; id++) {
+                engine.submit(id - from, url(id), DownloadScheduler.Priority.NORMAL);
+            }
+            assertTrue(done.await(60, TimeUnit.SECONDS), "批量下载未在限定时间内结束");
+            assertEquals(to - from + 1, engine.getCompletedCount());
+            return new ArrayList<>(results.values());
+        } finally {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static String url(int id) {
+        return "https://blog.csdn.net/" + AUTHOR + "/article/details/" + id;
+    }
+
+    private static List<DownloadResult> failures(List<DownloadResult> results) {
+        return results.stream().filter(r -> !r.isSuccess()).collect(Collectors.toList());
+    }
+
+    private List<Path> htmlFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(out.toPath())) {
+            return files.filter(p -> p.toString().endsWith(".html") && Files.isRegularFile(p)).collect(Collectors.toList());
+        }
+    }
+
+    private File journal() {
+        return new File(out, DownloadJournal.FILE_NAME);
+    }
+
+    private List<String> journalLines(String status) throws IOException {
+        return Files.readAllLines(journal().toPath(), StandardCharsets.UTF_8).stream()
+                .filter(line -> line.contains("\t" + status + "\t"))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,69 @@
+package com.ctgu.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: PDF 批量渲染测试：结果与提交顺序一致，单个文档失败只记录在自己的结果中，不影响其他文档
+ * @date 2026-01-03 14:42
+ */
+class PdfRenderServiceTest {
+    @TempDir
+    File dir;
+
+    @Test
+    void batchKeepsOrderAndIsolatesFailures() throws IOException {
+        List<PdfRenderService.RenderJob> batch = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            // 第 3 个文档的输出目录不存在，打开输出文件时失败
+            File output = i == 3 ? new File(dir, "missing/3.pdf") : new File(dir, i + ".pdf");
+            batch.add(new PdfRenderService.RenderJob("<html><body><h1>第 " + i + " 篇</h1><p>正文 " + i + "</p></body></html>", output));
+        }
+        List<PdfRenderService.RenderResult> results = PdfRenderService.getInstance().render(batch);
+
+        assertEquals(batch.size(), results.size());
+        for (int i = 0; i < batch.size(); i++) {
+            PdfRenderService.RenderResult result = results.get(i);
+            assertEquals(batch.get(i).getOutput(), result.getOutput());
+            if (i == 2) {
+                assertFalse(result.isSuccess());
+                assertTrue(result.getError() instanceof FileNotFoundException, String.valueOf(result.getError()));
+                assertFalse(result.getOutput().exists());
+            } else {
+                assertTrue(result.isSuccess(), String.valueOf(result.getError()));
+                assertNull(result.getError());
+                assertTrue(result.getElapsedMs() >= 0);
+                assertEquals("%PDF-", head(result.getOutput()));
+            }
+        }
+    }
+
+    @Test
+    void emptyBatchReturnsNoResults() {
+        assertTrue(PdfRenderService.getInstance().render(new ArrayList<>()).isEmpty());
+    }
+
+    private static String head(File file) throws IOException {
+        byte[] head = new byte[5];
+        try (InputStream in = new FileInputStream(file)) {
+            assertEquals(head.length, in.read(head));
+        }
+        return new String(head, StandardCharsets.US_ASCII);
+    }
+}
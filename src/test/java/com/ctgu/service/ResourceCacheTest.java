@@ -0,0 +1,135 @@
+package com.ctgu.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 资源缓存测试：同一资源只下载一次并可从磁盘恢复，失败的资源在冷却期内不再请求，
+ * 下载卡住时读取在超时后返回而不是一直阻塞
+ * @date 2026-01-03 14:42
+ */
+class ResourceCacheTest {
+    private static final byte[] DATA = "resource-bytes".getBytes();
+    private static final int TIMEOUT_MS = 500;
+
+    @TempDir
+    File dir;
+
+    private HttpServer server;
+    private ExecutorService executor;
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "resource-test");
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        release.countDown();
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    @Test
+    void resourceIsDownloadedOnceAndSurvivesRestart() {
+        ResourceCache cache = newCache();
+        assertArrayEquals(DATA, cache.get(url("/ok.png")));
+        assertArrayEquals(DATA, cache.get(url("/ok.png")));
+        assertEquals(1, requests.get("/ok.png").get());
+        assertEquals(1, cache.getMissCount());
+
+        // 新实例从磁盘缓存读取，不再请求
+        ResourceCache reopened = newCache();
+        assertArrayEquals(DATA, reopened.get(url("/ok.png")));
+        assertEquals(1, requests.get("/ok.png").get());
+        assertEquals(0, reopened.getMissCount());
+    }
+
+    @Test
+    void failedResourceIsNotRequestedAgainDuringCooldown() {
+        ResourceCache cache = newCache();
+        assertNull(cache.get(url("/missing.png")));
+        assertNull(cache.get(url("/missing.png")));
+        assertEquals(1, requests.get("/missing.png").get());
+        assertEquals(1, cache.getFailedCount());
+        assertThrows(IOException.class, () -> cache.open(url("/missing.png")));
+        assertEquals(1, requests.get("/missing.png").get());
+    }
+
+    @Test
+    void stalledDownloadTimesOut() {
+        ResourceCache cache = newCache();
+        long start = System.nanoTime();
+        assertNull(cache.get(url("/stall.png")));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMs < TIMEOUT_MS * 4, "读取应在超时后返回，实际耗时 " + elapsedMs + "ms");
+    }
+
+    private ResourceCache newCache() {
+        return new ResourceCache(dir, 1024 * 1024, 10 * 1024 * 1024, "test", TIMEOUT_MS);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        requests.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet();
+        try {
+            if ("/ok.png".equals(path)) {
+                exchange.sendResponseHeaders(200, DATA.length);
+                exchange.getResponseBody().write(DATA);
+            } else if ("/stall.png".equals(path)) {
+                // 声明 1000 字节只发送 1 字节，连接保持到测试结束
+                exchange.sendResponseHeaders(200, 1000);
+                OutputStream out = exchange.getResponseBody();
+                out.write(1);
+                out.flush();
+                release.await(30, TimeUnit.SECONDS);
+            } else {
+                exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // 客户端超时后断开
+        } finally {
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ctgu.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 全文检索索引测试：后台线程建立索引后检索、单字与中英文混合查询、同一文章更新、关闭后重新打开
+ * @date 2026-01-03 14:42
+ */
+class SearchIndexTest {
+    @TempDir
+    File dir;
+
+    private SearchIndex index;
+
+    @AfterEach
+    void close() {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    void findsArticlesByBigramsSingleCharactersAndWords() throws Exception {
+        index = SearchIndex.forDirectory(dir);
+        index.add(doc("1", "h1", "Java 文件锁详解", "<p>使用 FileLock 在多个进程之间互斥写入。</p>"));
+        index.add(doc("2", "h2", "线程池原理", "<p>ThreadPoolExecutor 的核心参数与拒绝策略。</p>"));
+        index.add(doc("3", "h3", "读写锁", "<p>ReentrantReadWriteLock 适合读多写少的场景。</p>"));
+        await(() -> index.size() == 3);
+
+        assertEquals(1, index.search("文件锁", 10).size());
+        // 单字查询命中所有包含该字的文章，标题命中的排在前面
+        List<SearchIndex.Hit> hits = index.search("锁", 10);
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).getScore() > 1);
+        assertEquals("线程池原理", index.search("threadpoolexecutor", 10).get(0).getTitle());
+        assertEquals(1, index.search("filelock 互斥", 10).size());
+        // 所有查询词都需命中
+        assertTrue(index.search("线程池 filelock", 10).isEmpty());
+        assertTrue(index.search("不存在", 10).isEmpty());
+        assertEquals(1, index.search("锁", 1).size());
+    }
+
+    @Test
+    void updatedArticleReplacesItsPreviousVersion() throws Exception {
+        index = SearchIndex.forDirectory(dir);
+        index.add(doc("1", "h1", "旧标题", "<p>旧的正文内容</p>"));
+        await(() -> index.search("旧标题", 10).size() == 1);
+        index.add(doc("1", "h2", "新标题", "<p>新的正文内容</p>"));
+        await(() -> index.search("新标题", 10).size() == 1);
+        assertTrue(index.search("旧标题", 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void reopenedIndexLoadsDocumentsFromDisk() throws Exception {
+        index = SearchIndex.forDirectory(dir);
+        index.add(doc("1", "h1", "Redis 缓存穿透", "<p>布隆过滤器可以拦截不存在的键。</p>"));
+        index.add(doc("2", "h2", "MySQL 索引", "<p>联合索引遵循最左前缀原则。</p>"));
+        index.add(doc("2", "h3", "MySQL 索引优化", "<p>覆盖索引避免回表。</p>"));
+        await(() -> index.search("优化", 10).size() == 1);
+        index.close();
+
+        index = SearchIndex.forDirectory(dir);
+        await(index::isLoaded);
+        assertEquals(2, index.size());
+        assertEquals(1, index.search("过滤", 10).size());
+        assertEquals(1, index.search("回表", 10).size());
+        assertTrue(index.search("最左前缀", 10).isEmpty());
+    }
+
+    private static SearchIndex.Document doc(String id, String hash, String title, String html) {
+        return SearchIndex.Document.builder().key(id).contentHash(hash).title(title).author("tester")
+                .publishDate("2025-01-01").url("https://blog.csdn.net/tester/article/details/" + id)
+                .savedPath("/tmp/" + id).bodyHtml(html).build();
+    }
+
+    /**
+     * 索引由后台线程批量建立，轮询等待结果可见
+     **/
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待索引超时");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ctgu.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 共享工作队列测试：两个队列实例共用同一目录模拟两个 worker，验证入队去重、领取互斥、
+ * 心跳续约与超时回收，以及失败重试直到最大尝试次数
+ * @date 2026-01-03 14:42
+ */
+class SharedWorkQueueTest {
+    private static final long LEASE_MS = 60000;
+
+    @TempDir
+    File dir;
+
+    @Test
+    void enqueueSkipsUrlsAlreadyKnownToAnyWorker() throws Exception {
+        SharedWorkQueue a = new SharedWorkQueue(dir, "a", LEASE_MS, 3);
+        SharedWorkQueue b = new SharedWorkQueue(dir, "b", LEASE_MS, 3);
+        assertEquals(2, a.enqueue(Arrays.asList(url(1), url(2), url(1) + "?spm=1001")));
+        assertEquals(1, b.enqueue(Arrays.asList(url(2), url(3))));
+        assertEquals(3, b.stats().getPending());
+
+        // 已领取与已完成的链接也不会再次入队
+        SharedWorkQueue.Lease lease = a.claim();
+        assertEquals(0, b.enqueue(Collections.singletonList(lease.getUrl())));
+        assertTrue(a.complete(lease));
+        assertEquals(0, b.enqueue(Collections.singletonList(lease.getUrl())));
+        assertEquals(2, b.stats().getPending());
+        assertEquals(1, b.stats().getDone());
+    }
+
+    @Test
+    void eachEntryIsClaimedByExactlyOneWorker() throws Exception {
+        SharedWorkQueue a = new SharedWorkQueue(dir, "a", LEASE_MS, 3);
+        SharedWorkQueue b = new SharedWorkQueue(dir, "b", LEASE_MS, 3);
+        List<String> urls = new ArrayList<>();
+        for (int id = 1; id <= 200; id++) {
+            urls.add(url(id));
+        }
+        assertEquals(200, a.enqueue(urls));
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            Future<List<String>> fromA = pool.submit(drain(a, go));
+            Future<List<String>> fromB = pool.submit(drain(b, go));
+            go.countDown();
+            List<String> claimedA = fromA.get(30, TimeUnit.SECONDS);
+            List<String> claimedB = fromB.get(30, TimeUnit.SECONDS);
+
+            Set<String> all = new HashSet<>(claimedA);
+            all.addAll(claimedB);
+            assertEquals(200, claimedA.size() + claimedB.size(), "同一条目被领取了多次");
+            assertEquals(new HashSet<>(urls), all);
+            assertEquals(claimedA.size(), a.getHeldCount());
+            assertEquals(claimedB.size(), b.getHeldCount());
+            assertEquals(0, a.stats().getPending());
+            assertEquals(200, a.stats().getLeased());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void heartbeatKeepsLeasesAndExpiredOnesAreRequeued() throws Exception {
+        SharedWorkQueue a = new SharedWorkQueue(dir, "a", LEASE_MS, 3);
+        SharedWorkQueue b = new SharedWorkQueue(dir, "b", LEASE_MS, 3);
+        a.enqueue(Arrays.asList(url(1), url(2)));
+        SharedWorkQueue.Lease kept = a.claim();
+        SharedWorkQueue.Lease expired = a.claim();
+        assertNotNull(kept);
+        assertNotNull(expired);
+        assertNull(b.claim());
+
+        // 一个租约超过租约时长没有心跳，由另一个 worker 回收；另一个租约仍然有效
+        assertTrue(expired.getFile().setLastModified(System.currentTimeMillis() - 2 * LEASE_MS));
+        assertEquals(1, b.requeueExpired());
+        assertEquals(1, b.stats().getPending());
+
+        // 被回收的租约在下次心跳时标记为丢失，之后的完成不会覆盖其他 worker 的处理
+        assertEquals(1, a.heartbeat());
+        assertTrue(expired.isLost());
+        assertFalse(kept.isLost());
+        assertEquals(1, a.getHeldCount());
+        assertFalse(a.complete(expired));
+
+        SharedWorkQueue.Lease retaken = b.claim();
+        assertEquals(expired.getUrl(), retaken.getUrl());
+        assertEquals(2, retaken.getAttempts());
+        assertTrue(b.complete(retaken));
+        assertTrue(a.complete(kept));
+        assertEquals(2, a.stats().getDone());
+        assertEquals(0, a.stats().getLeased());
+    }
+
+    @Test
+    void heartbeatRefreshesLeaseBeforeItExpires() throws Exception {
+        SharedWorkQueue a = new SharedWorkQueue(dir, "a", LEASE_MS, 3);
+        SharedWorkQueue b = new SharedWorkQueue(dir, "b", LEASE_MS, 3);
+        a.enqueue(Collections.singletonList(url(1)));
+        SharedWorkQueue.Lease lease = a.claim();
+        assertTrue(lease.getFile().setLastModified(System.currentTimeMillis() - LEASE_MS / 2));
+        assertEquals(0, a.heartbeat());
+        assertTrue(System.currentTimeMillis() - lease.getFile().lastModified() < LEASE_MS / 4);
+        assertEquals(0, b.requeueExpired());
+        assertEquals(1, b.stats().getLeased());
+    }
+
+    @Test
+    void retryableFailuresAreRetriedUpToMaxAttempts() throws Exception {
+        SharedWorkQueue a = new SharedWorkQueue(dir, "a", LEASE_MS, 3);
+        SharedWorkQueue b = new SharedWorkQueue(dir, "b", LEASE_MS, 3);
+        a.enqueue(Collections.singletonList(url(1)));
+
+        // 两个 worker 交替领取同一条目，尝试次数跨 worker 累计
+        SharedWorkQueue[] workers = {a, b, a};
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            SharedWorkQueue worker = workers[attempt - 1];
+            SharedWorkQueue.Lease lease = worker.claim();
+            assertEquals(url(1), lease.getUrl());
+            assertEquals(attempt, lease.getAttempts());
+            assertTrue(worker.fail(lease, "HTTP 503\n限流", true));
+            assertEquals(attempt < 3 ? 1 : 0, worker.stats().getPending());
+        }
+        assertNull(b.claim());
+        File failed = new File(new File(dir, "failed"), "1");
+        assertEquals(Arrays.asList(url(1), "3", "HTTP 503 限流"), Files.readAllLines(failed.toPath(), StandardCharsets.UTF_8));
+
+        // 不可重试的失败（文章不存在）第一次就移入 failed
+        b.enqueue(Collections.singletonList(url(2)));
+        SharedWorkQueue.Lease missing = b.claim();
+        assertEquals(1, missing.getAttempts());
+        assertTrue(b.fail(missing, "404", false));
+        assertEquals(0, b.stats().getPending());
+        assertEquals(2, b.stats().getFailed());
+        assertEquals(0, a.enqueue(Arrays.asList(url(1), url(2))));
+    }
+
+    /**
+     * 领取直到队列为空，返回领取到的链接
+     **/
+    private static Callable<List<String>> drain(SharedWorkQueue queue, CountDownLatch go) {
+        return () -> {
+            go.await();
+            List<String> claimed = new ArrayList<>();
+            SharedWorkQueue.Lease lease;
+            while ((lease = queue.claim()) != null) {
+                claimed.add(lease.getUrl());
+            }
+            return claimed;
+        };
+    }
+
+    private static String url(int id) {
+        return "https://blog.csdn.net/queue/article/details/" + id;
+    }
+}
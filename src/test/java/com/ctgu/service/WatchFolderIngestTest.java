@@ -0,0 +1,122 @@
+package com.ctgu.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 目录监听导入测试：直接触发扫描，验证追加内容只读取新的完整行、未写完的行留到下次、
+ * 链接去重与忽略注释和无效链接，以及文件被截断、原地改写或整体替换（长度相同或更长）时从头读取
+ * @date 2026-01-03 14:42
+ */
+class WatchFolderIngestTest {
+    @TempDir
+    File dir;
+
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void tailsAppendedLinesAndWaitsForPartialOnes() throws IOException {
+        WatchFolderIngest ingest = new WatchFolderIngest(dir, received::add);
+        File links = new File(dir, "links.txt");
+        write(links, "\uFEFF" + url(1) + "\n# 注释\nhttps://example.com/not-csdn\n" + url(2).substring(0, 30));
+        ingest.scanAll();
+        assertEquals(Collections.singletonList(url(1)), received);
+
+        // 补全未写完的行，并追加重复链接（带查询参数）与新链接
+        append(links, url(2).substring(30) + "\n" + url(1) + "?spm=1001\r\n" + url(3) + "\n");
+        ingest.scanAll();
+        assertEquals(Arrays.asList(url(1), url(2), url(3)), received);
+        // 没有新内容时不重复导入
+        ingest.scanAll();
+        assertEquals(3, received.size());
+        assertEquals(3, ingest.getAcceptedCount());
+        // 隐藏文件与写入中的临时文件不读取
+        write(new File(dir, ".hidden"), url(4) + "\n");
+        write(new File(dir, "next.txt.part"), url(5) + "\n");
+        ingest.scanAll();
+        assertEquals(3, received.size());
+    }
+
+    @Test
+    void truncatedFileIsReadFromTheStart() throws IOException {
+        WatchFolderIngest ingest = new WatchFolderIngest(dir, received::add);
+        File links = new File(dir, "links.txt");
+        write(links, url(10) + "\n" + url(11) + "\n");
+        ingest.scanAll();
+        write(links, url(12) + "\n");
+        ingest.scanAll();
+        assertEquals(Arrays.asList(url(10), url(11), url(12)), received);
+    }
+
+    @Test
+    void fileRewrittenInPlaceWithSameLengthIsReadAgain() throws IOException {
+        WatchFolderIngest ingest = new WatchFolderIngest(dir, received::add);
+        File links = new File(dir, "links.txt");
+        write(links, url(20) + "\n" + url(21) + "\n");
+        ingest.scanAll();
+        // 同一文件改写为等长的新内容，长度不变但开头不同
+        write(links, url(22) + "\n" + url(23) + "\n");
+        ingest.scanAll();
+        assertEquals(Arrays.asList(url(20), url(21), url(22), url(23)), received);
+    }
+
+    @Test
+    void replacedFileOfGreaterLengthIsReadFromTheStart() throws IOException {
+        WatchFolderIngest ingest = new WatchFolderIngest(dir, received::add);
+        File links = new File(dir, "links.txt");
+        write(links, url(30) + "\n");
+        ingest.scanAll();
+        // 先写临时文件再改名替换（新的 inode），新文件开头与旧文件相同且更长
+        File staged = new File(dir, "links.txt.tmp");
+        write(staged, url(30) + "\n" + url(31) + "\n" + url(32) + "\n");
+        Files.move(staged.toPath(), links.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ingest.scanAll();
+        // url(30) 已导入过，只推送新的链接
+        assertEquals(Arrays.asList(url(30), url(31), url(32)), received);
+
+        // 替换为等长但内容不同的文件
+        write(staged, url(40) + "\n" + url(41) + "\n" + url(42) + "\n");
+        Files.move(staged.toPath(), links.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ingest.scanAll();
+        assertEquals(Arrays.asList(url(30), url(31), url(32), url(40), url(41), url(42)), received);
+    }
+
+    @Test
+    void seenLinksAreBounded() throws IOException {
+        WatchFolderIngest ingest = new WatchFolderIngest(dir, received::add, 2);
+        File links = new File(dir, "links.txt");
+        write(links, url(50) + "\n" + url(51) + "\n" + url(52) + "\n");
+        ingest.scanAll();
+        // 只记住最近的 2 个链接：最早的 url(50) 被忘记，再次出现时交给调用方，url(52) 仍被去重
+        append(links, url(52) + "\n" + url(50) + "\n");
+        ingest.scanAll();
+        assertEquals(Arrays.asList(url(50), url(51), url(52), url(50)), received);
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void append(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+
+    private static String url(int id) {
+        return "https://blog.csdn.net/watch/article/details/" + id;
+    }
+}
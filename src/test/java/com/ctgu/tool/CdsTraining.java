@@ -0,0 +1,101 @@
+package com.ctgu.tool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: AppCDS 训练运行（mvn -Pappcds package 调用）：在当前进程启动本地 CSDN 模拟服务，
+ * 再用打包好的 jar 以无界面模式下载一批合成文章（含受限页与 404），子进程退出时写出类数据共享归档。
+ * 子进程只以 java -jar 启动，类路径与实际运行时一致，归档才能被加载
+ * 用法：CdsTraining --java JDK13+/bin/java --jar 打包的jar --archive 归档文件 --work 工作目录 [--articles 40]
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class CdsTraining {
+
+    public static void main(String[] args) throws Exception {
+        String java = null;
+        File jar = null;
+        File archive = null;
+        File work = null;
+        int articles = 40;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--java":
+                    java = value;
+                    break;
+                case "--jar":
+                    jar = new File(value);
+                    break;
+                case "--archive":
+                    archive = new File(value);
+                    break;
+                case "--work":
+                    work = new File(value);
+                    break;
+                case "--articles":
+                    articles = Integer.parseInt(value);
+                    break;
+                default:
+                    System.err.println("未知参数 " + args[i]);
+                    System.exit(2);
+            }
+        }
+        if (java == null || jar == null || archive == null || work == null) {
+            System.err.println("用法: CdsTraining --java 路径 --jar 文件 --archive 文件 --work 目录 [--articles 40]");
+            System.exit(2);
+        }
+        System.exit(run(java, jar, archive, work, articles));
+    }
+
+    private static int run(String java, File jar, File archive, File work, int articles) throws IOException, InterruptedException {
+        if (!work.isDirectory() && !work.mkdirs()) {
+            throw new IOException("无法创建训练目录: " + work);
+        }
+        Files.deleteIfExists(archive.toPath());
+        CsdnStubServer.Options options = CsdnStubServer.Options.builder().port(0).restrictedEvery(7).notFoundEvery(20).build();
+        try (CsdnStubServer stub = new CsdnStubServer(options)) {
+            stub.start();
+            // 运行目录下的 config.properties 覆盖内置配置
+            String config = "csdn.base.url=" + stub.getBaseUrl() + "\n"
+                    + "delay.ms=0\n"
+                    + "request.rate.limit=0\n"
+                    + "output.dir=" + new File(work, "out").getAbsolutePath().replace('\\', '/') + "\n";
+            Files.write(new File(work, "config.properties").toPath(), config.getBytes(StandardCharsets.UTF_8));
+            List<String> urls = new ArrayList<>(articles);
+            for (int i = 1; i <= articles; i++) {
+                urls.add("https://blog.csdn.net/training/article/details/" + i);
+            }
+            Files.write(new File(work, "urls.txt").toPath(), urls, StandardCharsets.UTF_8);
+
+            List<String> command = new ArrayList<>();
+            command.add(java);
+            command.add("-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath());
+            command.add("-Djava.awt.headless=true");
+            command.add("-jar");
+            command.add(jar.getAbsolutePath());
+            command.add("--headless");
+            command.add("--markdown");
+            command.add("--file");
+            command.add("urls.txt");
+            log.info("AppCDS 训练开始: {} 篇，模拟服务 {}", articles, stub.getBaseUrl());
+            int exit = new ProcessBuilder(command).directory(work).inheritIO().start().waitFor();
+            // 404 文章会使无界面模式以 1 退出，属于预期结果
+            if (exit > 1 || !archive.isFile()) {
+                log.error("AppCDS 训练失败: 退出码 {}，归档 {}", exit, archive.isFile() ? "已生成" : "未生成");
+                return exit > 1 ? exit : 1;
+            }
+            log.info("AppCDS 归档已生成: {} ({} KB)", archive.getAbsolutePath(), archive.length() / 1024);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.ctgu.tool;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 本地 CSDN 模拟服务，用于离线回放与压测，避免访问 csdn.net 被封。
+ * 提供录制的文章页面或按文章 ID 确定生成的合成文章、博主主页、文章列表页、专栏页与图片，
+ * 并可按比例返回“关注博主即可阅读全文”受限页、404、慢响应以及随机注入的 429/503 错误，
+ * 列表页还可固定先返回若干次 429，用于验证翻页重试。
+ * 下载器配置 csdn.base.url 指向本服务即可。属于测试代码，不随程序打包，执行 mvn test-compile 后启动：
+ * java -cp target/classes:target/test-classes:依赖 com.ctgu.tool.CsdnStubServer [--port 18080]
+ * （依赖的类路径可由 mvn dependency:build-classpath 输出）
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class CsdnStubServer implements Closeable {
+    private static final Pattern ARTICLE_PATH = Pattern.compile("^/([^/]+)/article/details/(\\d+)$");
+    private static final Pattern LIST_PATH = Pattern.compile("^/([^/]+)/article/list(?:/(\\d+))?$");
+    private static final Pattern HOME_PATH = Pattern.compile("^/([^/.]+)$");
+    private static final Pattern COLUMN_PATH = Pattern.compile("^/([^/]+)/category_(\\d+)(?:_(\\d+))?\\.html$");
+    private static final Pattern IMAGE_PATH = Pattern.compile("^/stub-img/(\\d+)\\.png$");
+    private static final String CSS_PATH = "/stub-static/article.css";
+    private static final String[] WORDS = {"线程池", "并发", "缓存", "索引", "事务", "调度", "序列化", "网络", "内存", "算法",
+            "Spring", "Redis", "JVM", "MySQL", "Kafka", "Netty", "优化", "源码", "分析", "实践"};
+    private static final Color[] IMAGE_COLORS = {Color.RED, Color.ORANGE, Color.YELLOW, Color.GREEN, Color.CYAN, Color.BLUE, Color.MAGENTA, Color.GRAY};
+
+    /**
+     * 模拟服务参数，比例类参数为 0 时不启用
+     **/
+    @Data
+    @Builder
+    public static class Options {
+        /**
+         * 监听端口，0 表示随机端口
+         **/
+        @Builder.Default
+        private int port = 18080;
+        /**
+         * 合成文章的段落数，每 5 段插入一个代码块
+         **/
+        @Builder.Default
+        private int paragraphs = 40;
+        @Builder.Default
+        private int imagesPerArticle = 2;
+        /**
+         * 文章 ID 能被该值整除时返回受限页（爬虫 UA 访问时返回全文）
+         **/
+        @Builder.Default
+        private int restrictedEvery = 0;
+        /**
+         * 文章 ID 能被该值整除时返回 404
+         **/
+        @Builder.Default
+        private int notFoundEvery = 0;
+        /**
+         * 文章 ID 能被该值整除时延迟 slowDelayMs 后再响应
+         **/
+        @Builder.Default
+        private int slowEvery = 0;
+        @Builder.Default
+        private long slowDelayMs = 2000;
+        /**
+         * 随机返回 429 或 503 的请求比例（0~1）
+         **/
+        @Builder.Default
+        private double errorRate = 0;
+        /**
+         * 文章列表页每页的文章数与总文章数
+         **/
+        @Builder.Default
+        private int articlesPerList = 40;
+        @Builder.Default
+        private int totalArticles = 1000;
+        /**
+         * 每个专栏的文章数，专栏 c 的文章 ID 为 c * 100000 + 1 起
+         **/
+        @Builder.Default
+        private int columnArticles = 60;
+        /**
+         * 每个主页、列表页与专栏页的前 N 次请求返回 429（带 Retry-After: 1）
+         **/
+        @Builder.Default
+        private int listFailures = 0;
+        /**
+         * 录制页面目录，存在 {文章ID}.html 时原样返回该文件，否则返回合成文章
+         **/
+        private File recordDir;
+    }
+
+    private final Options options;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final String articleTemplate;
+    private final String listTemplate;
+    private final String columnTemplate;
+    private final String restrictedBox;
+    private final byte[] css;
+    private final byte[][] images = new byte[IMAGE_COLORS.length][];
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicInteger injectedErrors = new AtomicInteger();
+    /**
+     * 列表类页面路径 -> 已收到的请求数
+     **/
+    private final Map<String, AtomicInteger> listRequests = new ConcurrentHashMap<>();
+
+    public CsdnStubServer(Options options) throws IOException {
+        this.options = options;
+        this.articleTemplate = loadResource("/stub/article.html");
+        this.listTemplate = loadResource("/stub/list.html");
+        this.columnTemplate = loadResource("/stub/category.html");
+        this.restrictedBox = loadResource("/stub/restricted.html");
+        this.css = loadResource("/stub/article.css").getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < IMAGE_COLORS.length; i++) {
+            images[i] = renderImage(IMAGE_COLORS[i]);
+        }
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", options.getPort()), 512);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "csdn-stub-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("CSDN 模拟服务已启动: {}", getBaseUrl());
+    }
+
+    /**
+     * 在随机空闲端口上创建并启动模拟服务，供测试使用
+     *
+     * @param options 模拟服务参数，端口会被覆盖
+     */
+    public static CsdnStubServer startOnFreePort(Options.OptionsBuilder options) throws IOException {
+        CsdnStubServer stub = new CsdnStubServer(options.port(0).build());
+        stub.start();
+        return stub;
+    }
+
+    /**
+     * 供 csdn.base.url 使用的地址
+     **/
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public int getInjectedErrors() {
+        return injectedErrors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (CSS_PATH.equals(path)) {
+                send(exchange, 200, "text/css; charset=utf-8", css);
+                return;
+            }
+            Matcher image = IMAGE_PATH.matcher(path);
+            if (image.matches()) {
+                send(exchange, 200, "image/png", images[(int) (Long.parseLong(image.group(1)) % images.length)]);
+                return;
+            }
+            Matcher article = ARTICLE_PATH.matcher(path);
+            Matcher list = LIST_PATH.matcher(path);
+            Matcher home = HOME_PATH.matcher(path);
+            Matcher column = COLUMN_PATH.matcher(path);
+            boolean listing = list.matches() || home.matches() || column.matches();
+            if (!article.matches() && !listing) {
+                sendHtml(exchange, 404, "<html><body><h1>404 Not Found</h1></body></html>");
+                return;
+            }
+            if (listing && listRequests.computeIfAbsent(path, k -> new AtomicInteger()).incrementAndGet() <= options.getListFailures()) {
+                sendError(exchange, true);
+                return;
+            }
+            if (options.getErrorRate() > 0 && ThreadLocalRandom.current().nextDouble() < options.getErrorRate()) {
+                sendError(exchange, ThreadLocalRandom.current().nextBoolean());
+                return;
+            }
+            if (article.matches()) {
+                handleArticle(exchange, article.group(1), Long.parseLong(article.group(2)));
+            } else if (column.matches()) {
+                int page = column.group(3) == null ? 1 : Integer.parseInt(column.group(3));
+                sendHtml(exchange, 200, columnPage(column.group(1), Integer.parseInt(column.group(2)), page));
+            } else if (home.matches()) {
+                // 主页展示第一页文章列表
+                sendHtml(exchange, 200, listPage(home.group(1), 1));
+            } else {
+                int page = list.group(2) == null ? 1 : Integer.parseInt(list.group(2));
+                sendHtml(exchange, 200, listPage(list.group(1), page));
+            }
+        } catch (RuntimeException e) {
+            log.warn("模拟服务处理请求失败: {}", exchange.getRequestURI(), e);
+            sendHtml(exchange, 500, "<html><body>Internal Server Error</body></html>");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleArticle(HttpExchange exchange, String author, long id) throws IOException {
+        if (matches(id, options.getNotFoundEvery())) {
+            sendHtml(exchange, 404, "<html><body><h1>404 Not Found</h1></body></html>");
+            return;
+        }
+        if (matches(id, options.getSlowEvery())) {
+            try {
+                Thread.sleep(options.getSlowDelayMs());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        File recorded = options.getRecordDir() != null ? new File(options.getRecordDir(), id + ".html") : null;
+        if (recorded != null && recorded.isFile()) {
+            send(exchange, 200, "text/html; charset=utf-8", FileUtils.readFileToByteArray(recorded));
+            return;
+        }
+        String userAgent = exchange.getRequestHeaders().getFirst("User-Agent");
+        boolean bot = userAgent != null && userAgent.contains("Googlebot");
+        boolean restricted = !bot && matches(id, options.getRestrictedEvery());
+        String host = exchange.getRequestHeaders().getFirst("Host");
+        sendHtml(exchange, 200, articlePage(author, id, restricted, "http://" + (host != null ? host : "127.0.0.1")));
+    }
+
+    /**
+     * 按文章 ID 确定地生成页面，同一 ID 每次内容相同，便于验证增量更新
+     **/
+    private String articlePage(String author, long id, boolean restricted, String origin) {
+        Random random = new Random(id);
+        int paragraphs = restricted ? Math.min(3, options.getParagraphs()) : options.getParagraphs();
+        StringBuilder content = new StringBuilder(paragraphs * 400);
+        for (int i = 0; i < paragraphs; i++) {
+            if (i % 10 == 0) {
+                content.append("<h2>第 ").append(i / 10 + 1).append(" 节 ").append(word(random)).append("</h2>\n");
+            }
+            content.append("<p>");
+            int sentences = 3 + random.nextInt(4);
+            for (int s = 0; s < sentences; s++) {
+                content.append("关于").append(word(random)).append("与").append(word(random))
+                        .append("的讨论，<strong>").append(word(random)).append("</strong> 在实际项目中非常常见。");
+            }
+            content.append("</p>\n");
+            if (i % 5 == 4) {
+                content.append("<pre class=\"set-code-hide\"><code class=\"prism language-java\">");
+                int lines = 5 + random.nextInt(15);
+                for (int l = 0; l < lines; l++) {
+                    content.append("int value").append(l).append(" = compute(").append(random.nextInt(1000)).append(") &lt;&lt; 2;\n");
+                }
+                content.append("</code><ul class=\"pre-numbering\"><li>1</li></ul></pre>\n");
+            }
+        }
+        if (!restricted) {
+            for (int i = 0; i < options.getImagesPerArticle(); i++) {
+                content.append("<p><img src=\"").append(origin).append("/stub-img/").append(id * 10 + i)
+                        .append(".png\" alt=\"示意图").append(i + 1).append("\"></p>\n");
+            }
+        }
+        StringBuilder recommend = new StringBuilder();
+        for (int i = 1; i <= 5; i++) {
+            recommend.append("<a href=\"/other").append(i).append("/article/details/").append(900000 + i).append("\">推荐文章 ").append(i).append("</a>\n");
+        }
+        return articleTemplate
+                .replace("{{title}}", "模拟文章 " + id + " " + word(new Random(id)))
+                .replace("{{author}}", author)
+                .replace("{{date}}", String.format("2025-%02d-%02d", 1 + id % 12, 1 + id % 28))
+                .replace("{{id}}", String.valueOf(id))
+                .replace("{{restricted}}", restricted ? restrictedBox : "")
+                .replace("{{recommend}}", recommend)
+                .replace("{{content}}", content);
+    }
+
+    private String listPage(String author, int page) {
+        StringBuilder items = new StringBuilder();
+        int first = (page - 1) * options.getArticlesPerList() + 1;
+        int last = Math.min(options.getTotalArticles(), page * options.getArticlesPerList());
+        for (int id = first; id <= last; id++) {
+            items.append("<div class=\"article-item-box\"><h4><a href=\"/").append(author).append("/article/details/").append(id)
+                    .append("\">模拟文章 ").append(id).append("</a></h4></div>\n");
+        }
+        return listTemplate.replace("{{author}}", author).replace("{{items}}", items);
+    }
+
+    private String columnPage(String author, int columnId, int page) {
+        StringBuilder items = new StringBuilder();
+        int first = (page - 1) * options.getArticlesPerList() + 1;
+        int last = Math.min(options.getColumnArticles(), page * options.getArticlesPerList());
+        for (int n = first; n <= last; n++) {
+            long id = columnId * 100000L + n;
+            items.append("<li><a href=\"/").append(author).append("/article/details/").append(id)
+                    .append("?spm=1001.2014\"><h2 class=\"title\">专栏文章 ").append(id).append("</h2></a></li>\n");
+        }
+        return columnTemplate.replace("{{author}}", author).replace("{{column}}", String.valueOf(columnId)).replace("{{items}}", items);
+    }
+
+    private void sendError(HttpExchange exchange, boolean tooMany) throws IOException {
+        injectedErrors.incrementAndGet();
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendHtml(exchange, tooMany ? 429 : 503, "<html><body>" + (tooMany ? "Too Many Requests" : "Service Unavailable") + "</body></html>");
+    }
+
+    private void sendHtml(HttpExchange exchange, int status, String html) throws IOException {
+        send(exchange, status, "text/html; charset=utf-8", html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        if ("HEAD".equalsIgnoreCase(exchange.getRequestMethod())) {
+            // HEAD 只返回响应头：长度需手动设置，sendResponseHeaders 传 -1 表示没有响应体
+            exchange.getResponseHeaders().set("Content-Length", String.valueOf(body.length));
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+        bytesSent.addAndGet(body.length);
+    }
+
+    private static boolean matches(long id, int every) {
+        return every > 0 && id % every == 0;
+    }
+
+    private static String word(Random random) {
+        return WORDS[random.nextInt(WORDS.length)];
+    }
+
+    private static String loadResource(String name) throws IOException {
+        try (InputStream is = CsdnStubServer.class.getResourceAsStream(name)) {
+            if (is == null) {
+                throw new IOException("找不到模拟服务资源: " + name);
+            }
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] renderImage(Color color) throws IOException {
+        BufferedImage image = new BufferedImage(320, 180, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(color);
+        g.fillRect(0, 0, image.getWidth(), image.getHeight());
+        g.dispose();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * 命令行启动：--port 端口 --record-dir 录制目录 --error-rate 比例 --restricted-every N --not-found-every N --slow-every N
+     **/
+    public static void main(String[] args) throws IOException {
+        Options.OptionsBuilder builder = Options.builder();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    builder.port(Integer.parseInt(value));
+                    break;
+                case "--record-dir":
+                    builder.recordDir(new File(value));
+                    break;
+                case "--error-rate":
+                    builder.errorRate(Double.parseDouble(value));
+                    break;
+                case "--restricted-every":
+                    builder.restrictedEvery(Integer.parseInt(value));
+                    break;
+                case "--not-found-every":
+                    builder.notFoundEvery(Integer.parseInt(value));
+                    break;
+                case "--slow-every":
+                    builder.slowEvery(Integer.parseInt(value));
+                    break;
+                default:
+                    System.err.println("未知参数 " + args[i]);
+                    return;
+            }
+        }
+        CsdnStubServer server = new CsdnStubServer(builder.build());
+        server.start();
+        System.out.println("模拟服务已启动，在 config.properties 中设置 csdn.base.url=" + server.getBaseUrl()
+                + "，文章地址示例 https://blog.csdn.net/demo/article/details/1");
+    }
+}
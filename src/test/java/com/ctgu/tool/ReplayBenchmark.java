@@ -0,0 +1,162 @@
+package com.ctgu.tool;
+
+import com.ctgu.entity.DownloadResult;
+import com.ctgu.service.ArticleSaver;
+import com.ctgu.service.BatchDownloadEngine;
+import com.ctgu.service.CSDNDownloader;
+import com.ctgu.service.DownloadScheduler;
+import com.ctgu.service.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 离线回放压测：启动本地 CSDN 模拟服务，把大量合成文章完整地走一遍 下载 -> 清洗 -> 保存 -> PDF 流程，
+ * 输出每轮的吞吐量、失败数与堆内存占用。多轮运行（--rounds）可用于长时间浸泡测试，第二轮起覆盖增量跳过路径。
+ * 属于测试代码，执行 mvn test-compile 后运行（类路径同 CsdnStubServer）：
+ * java -cp target/classes:target/test-classes:依赖 com.ctgu.tool.ReplayBenchmark [--articles 2000] [--threads 16] [--rounds 1]
+ * [--no-pdf] [--error-rate 0.02] [--restricted-every 50] [--not-found-every 100] [--slow-every 200] [--out 目录]
+ * @date 2026-01-03 14:42
+ */
+@Slf4j
+public class ReplayBenchmark {
+    private static final String AUTHOR = "bench";
+
+    private int articles = 2000;
+    private int threads = 16;
+    private int rounds = 1;
+    private boolean pdfEnabled = true;
+    private File outDir;
+    private final CsdnStubServer.Options.OptionsBuilder stubOptions = CsdnStubServer.Options.builder().port(0);
+
+    public static void main(String[] args) throws Exception {
+        ReplayBenchmark benchmark = new ReplayBenchmark();
+        try {
+            benchmark.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("参数错误: " + e.getMessage());
+            System.exit(2);
+        }
+        System.exit(benchmark.run());
+    }
+
+    private int run() throws IOException, InterruptedException {
+        if (outDir == null) {
+            outDir = Files.createTempDirectory("csdn-bench").toFile();
+        }
+        int totalFailed = 0;
+        try (CsdnStubServer stub = new CsdnStubServer(stubOptions.build());
+             ArticleSaver saver = new ArticleSaver(outDir.getAbsolutePath())) {
+            stub.start();
+            CSDNDownloader downloader = new CSDNDownloader();
+            downloader.setBaseUrl(stub.getBaseUrl());
+            // 本地模拟服务无需限速，测量的是流水线本身的吞吐
+            RateLimiter.global().setRate(0);
+            saver.setPdfEnabled(pdfEnabled);
+            DownloadScheduler scheduler = new DownloadScheduler(threads, threads);
+            log.info("回放压测开始: {} 篇 x {} 轮，{} 线程，PDF={}，输出目录 {}", articles, rounds, threads, pdfEnabled, outDir.getAbsolutePath());
+            for (int round = 1; round <= rounds; round++) {
+                totalFailed += runRound(round, downloader, saver, scheduler, stub);
+            }
+            scheduler.shutdownNow();
+        } finally {
+            CSDNDownloader.shutdownAsync();
+        }
+        return totalFailed == 0 ? 0 : 1;
+    }
+
+    /**
+     * 执行一轮：所有文章提交给引擎，等待全部完成后输出统计
+     *
+     * @return 本轮失败数
+     */
+    private int runRound(int round, CSDNDownloader downloader, ArticleSaver saver, DownloadScheduler scheduler, CsdnStubServer stub)
+            throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(articles);
+        AtomicInteger failed = new AtomicInteger();
+        int newBefore = saver.getNewCount();
+        int updatedBefore = saver.getUpdatedCount();
+        int unchangedBefore = saver.getUnchangedCount();
+        long requestsBefore = stub.getRequestCount();
+        long bytesBefore = stub.getBytesSent();
+        BatchDownloadEngine engine = new BatchDownloadEngine(downloader, saver, scheduler, 0, new BatchDownloadEngine.Listener() {
+            @Override
+            public void onComplete(int index, DownloadResult result) {
+                if (!result.isSuccess()) {
+                    failed.incrementAndGet();
+                }
+                done.countDown();
+            }
+        });
+        long start = System.nanoTime();
+        for (int i = 0; i < articles; i++) {
+            engine.submit(i, "https://blog.csdn.net/" + AUTHOR + "/article/details/" + (i + 1), DownloadScheduler.Priority.NORMAL);
+        }
+        done.await();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        log.info("第 {} 轮完成: 耗时 {}ms，吞吐 {} 篇/秒，新增 {}，更新 {}，未变化 {}，失败 {}",
+                round, elapsedMs, String.format("%.1f", articles * 1000.0 / Math.max(1, elapsedMs)),
+                saver.getNewCount() - newBefore, saver.getUpdatedCount() - updatedBefore,
+                saver.getUnchangedCount() - unchangedBefore, failed.get());
+        log.info("第 {} 轮服务端: 请求 {} 次，发送 {} KB，累计注入错误 {} 次；堆内存占用 {}MB / 上限 {}MB",
+                round, stub.getRequestCount() - requestsBefore, (stub.getBytesSent() - bytesBefore) / 1024,
+                stub.getInjectedErrors(), usedMb, runtime.maxMemory() / (1024 * 1024));
+        return failed.get();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--articles":
+                    articles = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--rounds":
+                    rounds = Integer.parseInt(requireValue(args, ++i, arg));
+                    break;
+                case "--no-pdf":
+                    pdfEnabled = false;
+                    break;
+                case "--out":
+                    outDir = new File(requireValue(args, ++i, arg));
+                    break;
+                case "--error-rate":
+                    stubOptions.errorRate(Double.parseDouble(requireValue(args, ++i, arg)));
+                    break;
+                case "--restricted-every":
+                    stubOptions.restrictedEvery(Integer.parseInt(requireValue(args, ++i, arg)));
+                    break;
+                case "--not-found-every":
+                    stubOptions.notFoundEvery(Integer.parseInt(requireValue(args, ++i, arg)));
+                    break;
+                case "--slow-every":
+                    stubOptions.slowEvery(Integer.parseInt(requireValue(args, ++i, arg)));
+                    break;
+                case "--paragraphs":
+                    stubOptions.paragraphs(Integer.parseInt(requireValue(args, ++i, arg)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知参数 " + arg);
+            }
+        }
+    }
+
+    private static String requireValue(String[] args, int i, String option) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException(option + " 缺少参数值");
+        }
+        return args[i];
+    }
+}
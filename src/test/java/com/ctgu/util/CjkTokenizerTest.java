@@ -0,0 +1,61 @@
+package com.ctgu.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 分词测试：CJK 一元组与二元组、中英文混排、大小写与超长单词
+ * @date 2026-01-03 14:42
+ */
+class CjkTokenizerTest {
+
+    @Test
+    void everyCjkCharacterIsAUnigramAndNeighboursFormBigrams() {
+        assertEquals(Arrays.asList("文", "文件", "件", "件锁", "锁"), new ArrayList<>(CjkTokenizer.tokenize("文件锁")));
+    }
+
+    @Test
+    void singleCharacterQueryMatchesLongerText() {
+        Set<String> text = CjkTokenizer.tokenize("Java 文件锁的实现");
+        assertTrue(text.containsAll(CjkTokenizer.tokenize("锁")));
+        assertTrue(text.containsAll(CjkTokenizer.tokenize("文件锁")));
+    }
+
+    @Test
+    void mixedCjkAndLatinTextIsSplitAtScriptBoundaries() {
+        assertEquals(Arrays.asList("spring", "框", "框架", "架", "redis2", "缓", "缓存", "存", "jvm"),
+                new ArrayList<>(CjkTokenizer.tokenize("Spring框架Redis2缓存，JVM")));
+    }
+
+    @Test
+    void kanaAndHangulAreTreatedAsCjk() {
+        assertEquals(Arrays.asList("テ", "テス", "ス", "スト", "ト", "한", "한국", "국"),
+                new ArrayList<>(CjkTokenizer.tokenize("テスト 한국")));
+    }
+
+    @Test
+    void wordsAreLowercasedDeduplicatedAndTruncated() {
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            longWord.append('a');
+        }
+        Set<String> tokens = CjkTokenizer.tokenize("Lock lock LOCK " + longWord);
+        assertEquals(2, tokens.size());
+        assertTrue(tokens.contains("lock"));
+        assertTrue(tokens.stream().allMatch(t -> t.length() <= 40));
+    }
+
+    @Test
+    void emptyAndNullTextHaveNoTokens() {
+        assertTrue(CjkTokenizer.tokenize(null).isEmpty());
+        assertTrue(CjkTokenizer.tokenize("，。！ ...").isEmpty());
+    }
+}
@@ -0,0 +1,194 @@
+package com.ctgu.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: EPUB 写入测试：mimetype 为第一个且不压缩的条目，目录与清单完整，章节为格式良好的 XHTML，
+ * 图片按链接只下载一次、按内容去重，下载失败的图片被移除
+ * @date 2026-01-03 14:42
+ */
+class EpubWriterTest {
+    private static final byte[] PNG_A = png(1);
+    private static final byte[] PNG_B = png(2);
+
+    @TempDir
+    File dir;
+
+    @Test
+    void mimetypeIsTheFirstStoredEntry() throws Exception {
+        File file = write(new HashMap<>(), new ConcurrentHashMap<>());
+        try (ZipInputStream zip = new ZipInputStream(new FileInputStream(file))) {
+            ZipEntry first = zip.getNextEntry();
+            assertNotNull(first);
+            assertEquals("mimetype", first.getName());
+            assertEquals(ZipEntry.STORED, first.getMethod());
+            assertEquals("application/epub+zip", new String(readAll(zip), StandardCharsets.US_ASCII));
+        }
+        // 固定偏移：本地文件头 30 字节 + 文件名 8 字节后即为 mimetype 内容，阅读器据此识别格式
+        byte[] head = new byte[58];
+        try (InputStream in = new FileInputStream(file)) {
+            assertEquals(head.length, in.read(head));
+        }
+        assertEquals("mimetypeapplication/epub+zip", new String(head, 30, 28, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void writesNavPackageAndWellFormedChapters() throws Exception {
+        File file = write(images(), new ConcurrentHashMap<>());
+        try (ZipFile zip = new ZipFile(file)) {
+            List<String> names = names(zip);
+            assertTrue(names.containsAll(Arrays.asList("META-INF/container.xml", "OEBPS/style.css",
+                    "OEBPS/chapter-0001.xhtml", "OEBPS/chapter-0002.xhtml", "OEBPS/nav.xhtml", "OEBPS/content.opf")), names.toString());
+
+            String nav = text(zip, "OEBPS/nav.xhtml");
+            assertTrue(nav.contains("<a href=\"chapter-0001.xhtml\">第一章 &lt;入门&gt;</a>"), nav);
+            assertTrue(nav.contains("<a href=\"chapter-0002.xhtml\">第二章</a>"), nav);
+
+            String opf = text(zip, "OEBPS/content.opf");
+            assertTrue(opf.contains("<dc:title>合集 &amp; 笔记</dc:title>"), opf);
+            assertTrue(opf.contains("<dc:creator>作者</dc:creator>"), opf);
+            assertTrue(opf.contains("<itemref idref=\"c1\"/>") && opf.contains("<itemref idref=\"c2\"/>"), opf);
+
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            for (String name : new String[]{"OEBPS/nav.xhtml", "OEBPS/content.opf", "OEBPS/chapter-0001.xhtml", "OEBPS/chapter-0002.xhtml"}) {
+                try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+                    factory.newDocumentBuilder().parse(in);
+                }
+            }
+            String chapter = text(zip, "OEBPS/chapter-0001.xhtml");
+            assertTrue(chapter.contains("原文链接: https://blog.csdn.net/demo/article/details/1"), chapter);
+            assertTrue(chapter.contains("href=\"https://blog.csdn.net/demo/article/details/2\""), chapter);
+            assertFalse(chapter.contains("style=\""), chapter);
+        }
+    }
+
+    @Test
+    void imagesAreDownloadedOnceAndDeduplicatedByContent() throws Exception {
+        Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        File file = write(images(), calls);
+        try (ZipFile zip = new ZipFile(file)) {
+            List<String> images = names(zip).stream().filter(n -> n.startsWith("OEBPS/images/")).collect(Collectors.toList());
+            // a.png 与 copy.png 内容相同只保存一份，b.png 一份，下载失败的 missing.png 不保存
+            assertEquals(2, images.size(), images.toString());
+            for (String image : images) {
+                assertTrue(image.endsWith(".png"));
+            }
+            String opf = text(zip, "OEBPS/content.opf");
+            for (String image : images) {
+                assertTrue(opf.contains("href=\"" + image.substring("OEBPS/".length()) + "\" media-type=\"image/png\""), opf);
+            }
+            String first = text(zip, "OEBPS/chapter-0001.xhtml");
+            String second = text(zip, "OEBPS/chapter-0002.xhtml");
+            assertFalse(first.contains("missing.png"), first);
+            assertFalse(first.contains("http://img.test/"), first);
+            assertEquals(srcOf(first, "a.png 示意"), srcOf(second, "copy"));
+        }
+        assertEquals(1, calls.get("http://img.test/a.png").get());
+        assertEquals(1, calls.get("http://img.test/copy.png").get());
+        assertEquals(1, calls.get("http://img.test/missing.png").get());
+    }
+
+    private File write(Map<String, byte[]> images, Map<String, AtomicInteger> calls) throws IOException {
+        File file = new File(dir, "book.epub");
+        EpubWriter.ResourceLoader loader = url -> {
+            calls.computeIfAbsent(url, k -> new AtomicInteger()).incrementAndGet();
+            byte[] data = images.get(url);
+            if (data == null) {
+                throw new IOException("404");
+            }
+            return new ByteArrayInputStream(data);
+        };
+        try (EpubWriter writer = new EpubWriter(file, "合集 & 笔记", "作者", loader)) {
+            writer.addChapter("第一章 <入门>", "https://blog.csdn.net/demo/article/details/1",
+                    "<p style=\"color:red\">正文<br>换行 &nbsp; 空格</p><img src=\"http://img.test/a.png\" alt=\"a.png 示意\">"
+                            + "<img src=\"http://img.test/a.png\"><img src=\"http://img.test/missing.png\">"
+                            + "<p><a href=\"/demo/article/details/2\">下一篇</a></p>");
+            writer.addChapter("第二章", null, "<p>第二章<img src=\"http://img.test/copy.png\" alt=\"copy\">"
+                    + "<img src=\"http://img.test/b.png\"></p>");
+            assertEquals(2, writer.getChapterCount());
+        }
+        return file;
+    }
+
+    private static Map<String, byte[]> images() {
+        Map<String, byte[]> images = new HashMap<>();
+        images.put("http://img.test/a.png", PNG_A);
+        images.put("http://img.test/copy.png", PNG_A.clone());
+        images.put("http://img.test/b.png", PNG_B);
+        return images;
+    }
+
+    /**
+     * 带 PNG 文件头的测试数据，内容由 seed 区分
+     **/
+    private static byte[] png(int seed) {
+        byte[] data = new byte[64];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+        System.arraycopy(signature, 0, data, 0, signature.length);
+        for (int i = signature.length; i < data.length; i++) {
+            data[i] = (byte) (i * seed);
+        }
+        return data;
+    }
+
+    private static String srcOf(String xhtml, String alt) {
+        int at = xhtml.indexOf("alt=\"" + alt + "\"");
+        int tag = xhtml.lastIndexOf("<img", at);
+        int src = xhtml.indexOf("src=\"", tag) + 5;
+        return xhtml.substring(src, xhtml.indexOf('"', src));
+    }
+
+    private static List<String> names(ZipFile zip) {
+        List<String> names = new ArrayList<>();
+        Enumeration<? extends ZipEntry> entries = zip.entries();
+        while (entries.hasMoreElements()) {
+            names.add(entries.nextElement().getName());
+        }
+        return names;
+    }
+
+    private static String text(ZipFile zip, String name) throws IOException {
+        try (InputStream in = zip.getInputStream(zip.getEntry(name))) {
+            return new String(readAll(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,70 @@
+package com.ctgu.util;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.joran.JoranConfigurator;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: 生产日志配置测试：普通日志经可丢弃 INFO 的异步队列写出，文章汇总 csdn.article 走单独的队列且从不丢弃
+ * @date 2026-01-03 14:42
+ */
+class LogbackConfigTest {
+
+    @Test
+    void articleSummariesUseANonDiscardingQueue() throws Exception {
+        LoggerContext context = new LoggerContext();
+        try {
+            JoranConfigurator configurator = new JoranConfigurator();
+            configurator.setContext(context);
+            configurator.doConfigure(LogbackConfigTest.class.getResource("/logback.xml"));
+
+            Logger article = context.getLogger("csdn.article");
+            assertFalse(article.isAdditive(), "文章汇总不应再进入根日志的可丢弃队列");
+            // 控制台与文件各一个队列（AsyncAppender 只转发给一个下游 appender）
+            List<String> targets = new ArrayList<>();
+            for (AsyncAppender queue : asyncAppenders(article)) {
+                assertEquals(0, queue.getDiscardingThreshold(), queue.getName());
+                for (String name : new String[]{"STDOUT", "FILE"}) {
+                    if (queue.getAppender(name) != null) {
+                        targets.add(name);
+                    }
+                }
+            }
+            targets.sort(null);
+            assertEquals(Arrays.asList("FILE", "STDOUT"), targets);
+
+            for (AsyncAppender root : asyncAppenders(context.getLogger(Logger.ROOT_LOGGER_NAME))) {
+                assertTrue(root.getDiscardingThreshold() > 0, root.getName());
+            }
+        } finally {
+            context.stop();
+        }
+    }
+
+    private static List<AsyncAppender> asyncAppenders(Logger logger) {
+        List<AsyncAppender> result = new ArrayList<>();
+        Iterator<Appender<ILoggingEvent>> it = logger.iteratorForAppenders();
+        while (it.hasNext()) {
+            Appender<ILoggingEvent> appender = it.next();
+            if (appender instanceof AsyncAppender) {
+                result.add((AsyncAppender) appender);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ctgu.util;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author lh2
+ * @version 1.0
+ * @description: Markdown 转换测试：代码块语言、表格、图片、公式、链接与列表，以及普通文本中的 Markdown 标记转义
+ * @date 2026-01-03 14:42
+ */
+class MarkdownConverterTest {
+
+    @Test
+    void codeBlocksKeepLanguageAndSkipLineNumbers() {
+        String md = convert("<pre class=\"set-code-hide\"><code class=\"prism language-java\">int a = 1;\nint b = a &lt;&lt; 2;\n</code>"
+                + "<ul class=\"pre-numbering\"><li>1</li><li>2</li></ul></pre>");
+        assertEquals("```java\nint a = 1;\nint b = a << 2;\n```\n", md);
+    }
+
+    @Test
+    void codeBlockLanguageFallsBackToPreAndFenceAvoidsBackticks() {
+        assertEquals("```python\nprint(1)\n```\n", convert("<pre class=\"lang-python\"><code>print(1)</code></pre>"));
+        assertEquals("~~~~\n```md\n```\n~~~~\n", convert("<pre><code>```md\n```</code></pre>"));
+        assertEquals("调用 `a|b` 与 ``x`y``\n", convert("<p>调用 <code>a|b</code> 与 <code>x`y</code></p>"));
+    }
+
+    @Test
+    void tablesGetHeaderSeparatorAndEscapedPipes() {
+        String md = convert("<table><thead><tr><th>参数</th><th>说明</th></tr></thead>"
+                + "<tbody><tr><td>a|b</td><td>第一行<br>第二行</td></tr><tr><td><code>x|y</code></td><td>*注意*</td></tr></tbody></table>");
+        assertEquals("| 参数 | 说明 |\n| --- | --- |\n| a\\|b | 第一行<br>第二行 |\n| `x\\|y` | \\*注意\\* |\n", md);
+    }
+
+    @Test
+    void imagesUseAbsoluteUrlsAndEscapedAltText() {
+        String md = convert("<p><img src=\"/img/a b.png\" alt=\"示意图[1]\"></p><p><img alt=\"no src\"></p>");
+        assertEquals("![示意图[1\\]](https://blog.csdn.net/img/a%20b.png)\n", md);
+    }
+
+    @Test
+    void katexUsesTexSourceInlineAndDisplay() {
+        String md = convert("<p>质能方程 <span class=\"katex--inline\"><span class=\"katex\"><span class=\"katex-mathml\">"
+                + "<math><semantics><mrow><mi>E</mi></mrow><annotation encoding=\"application/x-tex\">E=mc^2</annotation></semantics></math>"
+                + "</span><span class=\"katex-html\">E=mc2</span></span></span> 成立</p>"
+                + "<span class=\"katex--display\"><span class=\"katex-display\"><span class=\"katex\"><span class=\"katex-mathml\">"
+                + "<math display=\"block\"><semantics><annotation encoding=\"application/x-tex\">\\sum_{i=1}^n i</annotation></semantics></math>"
+                + "</span><span class=\"katex-html\">∑i</span></span></span></span>");
+        assertEquals("质能方程 $E=mc^2$ 成立\n\n$$\n\\sum_{i=1}^n i\n$$\n", md);
+    }
+
+    @Test
+    void mathWithoutTexSourceIsWrittenOnce() {
+        String md = convert("<p>面积 <span class=\"katex--inline\"><span class=\"katex\"><span class=\"katex-mathml\">"
+                + "<math><mi>π</mi><msup><mi>r</mi><mn>2</mn></msup></math></span>"
+                + "<span class=\"katex-html\"><span>π</span><span>r</span><span>2</span></span></span></span></p>");
+        assertEquals("面积 πr2\n", md);
+    }
+
+    @Test
+    void plainTextCannotBecomeHtmlHeadingsOrTables() {
+        assertEquals("\\# 不是标题\n", convert("<p># 不是标题</p>"));
+        assertEquals("List\\<String> 与 a \\| b\n", convert("<p>List&lt;String&gt; 与 a | b</p>"));
+        assertEquals("\\> 不是引用\n\n1\\. 不是列表\n\n\\- 也不是\n", convert("<p>&gt; 不是引用</p><p>1. 不是列表</p><p>- 也不是</p>"));
+        // 行中的同样字符保持原样
+        assertEquals("第 1. 步 - 完成 #1\n", convert("<p>第 1. 步 - 完成 #1</p>"));
+        assertEquals("\\*\\_\\[x\\]\\`\n", convert("<p>*_[x]`</p>"));
+    }
+
+    @Test
+    void headingsListsQuotesAndLinks() {
+        String md = convert("<h2><a name=\"t0\"></a>概述</h2><ol start=\"3\"><li>第三</li><li>第四<ul><li>子项</li></ul></li></ol>"
+                + "<blockquote><p>引用一</p><p>引用二</p></blockquote>"
+                + "<p>见 <a href=\"/demo/article/details/1\">上一篇</a><a href=\"https://x.com\"></a></p>");
+        assertEquals("## 概述\n\n3. 第三\n4. 第四\n  - 子项\n\n> 引用一\n>\n> 引用二\n\n见 [上一篇](https://blog.csdn.net/demo/article/details/1)\n", md);
+    }
+
+    private static String convert(String html) {
+        Element content = Jsoup.parse("<div id=\"content_views\">" + html + "</div>", "https://blog.csdn.net/demo/article/details/9")
+                .getElementById("content_views");
+        String md = MarkdownConverter.convert(content);
+        assertFalse(md.contains("\n\n\n"), md);
+        assertTrue(md.endsWith("\n"));
+        return md;
+    }
+}